@@ -0,0 +1,346 @@
+package systems.intino.datamarts.subjectstore;
+
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+import systems.intino.datamarts.subjectstore.helpers.SubjectQueryParser;
+import systems.intino.datamarts.subjectstore.io.snapshots.BinarySnapshot;
+import systems.intino.datamarts.subjectstore.io.snapshots.Segment;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.Subject;
+import systems.intino.datamarts.subjectstore.model.Subject.Context;
+import systems.intino.datamarts.subjectstore.model.Term;
+import systems.intino.datamarts.subjectstore.model.Triple;
+import systems.intino.datamarts.subjectstore.model.Triples;
+import systems.intino.datamarts.subjectstore.pools.ReadOnlyBitmapPool;
+import systems.intino.datamarts.subjectstore.pools.ReadOnlyLinkPool;
+import systems.intino.datamarts.subjectstore.pools.ReadOnlyStringPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.Comparator.comparingInt;
+
+abstract class AbstractSubjectIndex<S extends ReadOnlyStringPool, L extends ReadOnlyLinkPool, B extends ReadOnlyBitmapPool> implements ReadOnlySubjectIndex {
+	final S subjectPool;
+	final S termPool;
+	final L linkPool;
+	final B tags;
+	final B types;
+	final B children;
+
+	AbstractSubjectIndex(S subjects, S terms, L links, B tags, B types, B children) {
+		this.subjectPool = subjects;
+		this.termPool = terms;
+		this.linkPool = links;
+		this.tags = tags;
+		this.types = types;
+		this.children = children;
+	}
+
+	abstract Context context();
+
+	abstract <T> T read(Supplier<T> reader);
+
+	abstract <T> T read(IntSupplier subject, IntFunction<T> reader);
+
+	@Override
+	public boolean has(String identifier) {
+		return subjectPool.contains(identifier);
+	}
+
+	@Override
+	public Subject open(String identifier) {
+		return has(identifier) ? new Subject(identifier, context()) : null;
+	}
+
+	Subject open(int id) {
+		String value = subjectPool.get(id);
+		return value != null ? Subject.of(value, context()) : null;
+	}
+
+	List<Term> termsOf(int subject) {
+		return subject < 0 ? List.of() : linkPool.termsOf(subject).stream().map(this::term).toList();
+	}
+
+	private Term term(int id) {
+		String value = termPool.get(id);
+		return value != null ? Term.of(value) : Term.Null;
+	}
+
+	List<Subject> children(Subject subject) {
+		return read(() -> childrenOf(subject.identifier()).stream()
+				.mapToObj(this::open)
+				.toList());
+	}
+
+	List<Term> terms(Subject subject) {
+		return read(() -> subjectPool.id(subject.identifier()), this::termsOf);
+	}
+
+	@Override
+	public SubjectQuery query(String query) {
+		return new SubjectQueryParser(this).parse(query);
+	}
+
+	@Override
+	public SubjectQuery query() {
+		return new SubjectQuery() {
+			private final Sorting sorting = new Sorting();
+			private final List<Supplier<Bitmap>> selections = new ArrayList<>();
+			private final List<Predicate<String>> conditions = new ArrayList<>();
+
+			@Override
+			public int size() {
+				return read(() -> (int) candidates().count());
+			}
+
+			@Override
+			public boolean isEmpty() {
+				return read(() -> candidates().findAny().isEmpty());
+			}
+
+			@Override
+			public Subject first() {
+				return stream().findFirst().orElse(null);
+			}
+
+			@Override
+			public Stream<Subject> stream() {
+				return sorting.sort(read(() -> candidates().mapToObj(AbstractSubjectIndex.this::open).toList()).stream());
+			}
+
+			@Override
+			public List<Subject> collect() {
+				return stream().toList();
+			}
+
+			@Override
+			public SubjectQuery nameStartsWith(String value) {
+				conditions.add(s -> nameOf(s).startsWith(value));
+				return this;
+			}
+
+			@Override
+			public SubjectQuery nameContains(String value) {
+				conditions.add(s -> nameOf(s).contains(value));
+				return this;
+			}
+
+			@Override
+			public SubjectQuery nameEndsWith(String value) {
+				conditions.add(s -> nameOf(s).endsWith(value));
+				return this;
+			}
+
+			@Override
+			public SubjectQuery isType(String type) {
+				selections.add(() -> types.get(type));
+				return this;
+			}
+
+			@Override
+			public SubjectQuery isRoot() {
+				selections.add(() -> childrenOf(""));
+				return this;
+			}
+
+			@Override
+			public SubjectQuery isChildOf(String identifier) {
+				selections.add(() -> childrenOf(identifier));
+				return this;
+			}
+
+			@Override
+			public SubjectQuery isUnderOf(String identifier) {
+				selections.add(() -> descendantsOf(identifier));
+				return this;
+			}
+
+			@Override
+			public SubjectQuery orderBy(String tag, Comparator<String> comparator) {
+				sorting.add(tag, comparator);
+				return this;
+			}
+
+			@Override
+			public AttributeFilter where(String tag) {
+				return predicate -> {
+					selections.add(() -> subjectsWith(tag, predicate));
+					return this;
+				};
+			}
+
+			private Bitmap subjectsWith(String tag, Predicate<String> predicate) {
+				List<Bitmap> bitmaps = new ArrayList<>();
+				termsWith(tag).forEach(term -> {
+					if (predicate.test(term(term).value())) bitmaps.add(linkPool.subjectBitmapOf(term));
+				});
+				return Bitmap.or(bitmaps);
+			}
+
+			private Bitmap termsWith(String tag) {
+				return tags.get(tag);
+			}
+
+			private IntStream candidates() {
+				Bitmap selection = selection();
+				IntStream ids = selection != null ? selection.stream() : IntStream.range(0, subjectPool.size());
+				return ids.filter(id -> accepts(subjectPool.get(id)));
+			}
+
+			private Bitmap selection() {
+				List<Bitmap> bitmaps = selections.stream()
+						.map(Supplier::get)
+						.sorted(comparingInt(Bitmap::cardinality))
+						.toList();
+				Bitmap result = null;
+				for (Bitmap bitmap : bitmaps) {
+					result = result == null ? bitmap : Bitmap.and(result, bitmap);
+					if (result.isEmpty()) break;
+				}
+				return result;
+			}
+
+			private boolean accepts(String identifier) {
+				if (identifier == null) return false;
+				for (Predicate<String> condition : conditions)
+					if (!condition.test(identifier)) return false;
+				return true;
+			}
+
+		};
+	}
+
+	static String typedNameOf(String identifier) {
+		return identifier.substring(identifier.lastIndexOf('/') + 1).trim();
+	}
+
+	static String nameOf(String identifier) {
+		String typedName = typedNameOf(identifier);
+		int i = typedName.lastIndexOf('.');
+		return i >= 0 ? typedName.substring(0, i) : typedName;
+	}
+
+	static String typeOf(String identifier) {
+		String typedName = typedNameOf(identifier);
+		int i = typedName.lastIndexOf('.');
+		return i >= 0 ? typedName.substring(i + 1) : "";
+	}
+
+	static String parentOf(String identifier) {
+		int i = identifier.lastIndexOf('/');
+		return i >= 0 ? identifier.substring(0, i) : "";
+	}
+
+	static String renamed(String identifier, String name) {
+		String parent = parentOf(identifier);
+		return Subject.of((parent.isEmpty() ? "" : parent + "/") + name + "." + typeOf(identifier)).identifier();
+	}
+
+	Bitmap childrenOf(String identifier) {
+		return children.get(identifier);
+	}
+
+	Bitmap descendantsOf(String identifier) {
+		List<Bitmap> result = new ArrayList<>();
+		Deque<String> pending = new ArrayDeque<>(List.of(identifier));
+		while (!pending.isEmpty()) {
+			Bitmap bitmap = children.get(pending.pop());
+			if (bitmap.isEmpty()) continue;
+			result.add(bitmap);
+			bitmap.forEach(id -> pending.push(subjectPool.get(id)));
+		}
+		return Bitmap.or(result);
+	}
+
+	@Override
+	public Triples triples() {
+		return this::tripleIterator;
+	}
+
+	@Override
+	public void dump(OutputStream os) throws IOException {
+		for (int id = 0; id < subjectPool.size(); id++)
+			for (Triple triple : triplesOf(id)) {
+				String str = triple.toString() + '\n';
+				os.write(str.getBytes());
+			}
+	}
+
+	@Override
+	public void snapshot(OutputStream os) throws IOException {
+		BinarySnapshot.write(os, subjectPool, termPool, linkPool, tags, types, children);
+	}
+
+	@Override
+	public void segment(Journal changes, OutputStream os) throws IOException {
+		Set<String> drops = new LinkedHashSet<>();
+		Set<String> touched = new LinkedHashSet<>();
+		for (Journal.Transaction transaction : changes) {
+			switch (transaction.type()) {
+				case put, set, del -> touched.add(transaction.subject());
+				case drop -> drops.add(transaction.subject());
+				case rename -> {
+					drops.add(transaction.subject());
+					drops.add(renamed(transaction.subject(), transaction.parameter()));
+				}
+			}
+		}
+		Segment.write(os, drops, subjectsOf(touched, drops));
+	}
+
+	private Map<String, List<String>> subjectsOf(Set<String> touched, Set<String> drops) {
+		Map<String, List<String>> result = new LinkedHashMap<>();
+		for (String identifier : touched) {
+			int id = subjectPool.id(identifier);
+			if (id >= 0) result.put(identifier, serializedTermsOf(id));
+		}
+		for (String identifier : drops) {
+			Bitmap subtree = descendantsOf(identifier);
+			if (subjectPool.contains(identifier)) subtree.add(subjectPool.id(identifier));
+			subtree.forEach(id -> result.put(subjectPool.get(id), serializedTermsOf(id)));
+		}
+		return result;
+	}
+
+	private List<String> serializedTermsOf(int subject) {
+		return linkPool.termsOf(subject).stream().map(termPool::get).toList();
+	}
+
+	private Iterator<Triple> tripleIterator() {
+		return new Iterator<>() {
+			int subject = -1;
+			Iterator<Triple> triples = Collections.emptyIterator();
+
+			@Override
+			public boolean hasNext() {
+				while (triples != null && !triples.hasNext()) triples = read(() -> ++subject, this::triplesAt);
+				return triples != null;
+			}
+
+			@Override
+			public Triple next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return triples.next();
+			}
+
+			private Iterator<Triple> triplesAt(int id) {
+				return id < subjectPool.size() ? triplesOf(id).iterator() : null;
+			}
+		};
+	}
+
+	private List<Triple> triplesOf(int subject) {
+		String identifier = subjectPool.get(subject);
+		if (identifier == null) return List.of();
+		return termsOf(subject).stream()
+				.map(term -> new Triple(identifier, term.tag(), term.value()))
+				.toList();
+	}
+}
@@ -0,0 +1,36 @@
+package systems.intino.datamarts.subjectstore;
+
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.Subject;
+import systems.intino.datamarts.subjectstore.model.Triples;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ReadOnlySubjectIndex {
+
+	default boolean has(String name, String type) {
+		return has(Subject.of(name, type).identifier());
+	}
+
+	boolean has(String identifier);
+
+	default Subject open(String name, String type) {
+		return open(Subject.of(name, type).identifier());
+	}
+
+	Subject open(String identifier);
+
+	SubjectQuery query();
+
+	SubjectQuery query(String query);
+
+	Triples triples();
+
+	void dump(OutputStream os) throws IOException;
+
+	void snapshot(OutputStream os) throws IOException;
+
+	void segment(Journal changes, OutputStream os) throws IOException;
+
+}
@@ -1,11 +1,15 @@
 package systems.intino.datamarts.subjectstore;
 
 import systems.intino.datamarts.subjectstore.io.feeds.RegistryFeeds;
+import systems.intino.datamarts.subjectstore.io.HistoryRegistry.Resolution;
 import systems.intino.datamarts.subjectstore.io.HistoryRegistry.Row;
 import systems.intino.datamarts.subjectstore.io.feeds.DumpFeeds;
 import systems.intino.datamarts.subjectstore.io.HistoryRegistry;
+import systems.intino.datamarts.subjectstore.io.columns.ColumnHistoryRegistry;
 import systems.intino.datamarts.subjectstore.io.database.SqlHistoryRegistry;
+import systems.intino.datamarts.subjectstore.io.database.SqlStatementProvider.Layout;
 import systems.intino.datamarts.subjectstore.model.*;
+import systems.intino.datamarts.subjectstore.model.reducers.NumberReducer;
 import systems.intino.datamarts.subjectstore.model.Signal.Point;
 import systems.intino.datamarts.subjectstore.model.Signal.Summary;
 import systems.intino.datamarts.subjectstore.model.signals.CategoricalSignal;
@@ -20,6 +24,7 @@ import java.time.Instant;
 import java.time.temporal.TemporalAmount;
 import java.util.*;
 import java.util.stream.Collector;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -35,8 +40,20 @@ public class SubjectHistory implements AutoCloseable {
 	private final Map<String, Summary> summaries;
 
 	public SubjectHistory(String subject, Connection connection) {
+		this(subject, connection, Layout.TablePerSubject);
+	}
+
+	public SubjectHistory(String subject, Connection connection, Layout layout) {
+		this(subject, new SqlHistoryRegistry(subject, connection, layout));
+	}
+
+	public SubjectHistory(String subject, File directory) {
+		this(subject, new ColumnHistoryRegistry(directory, subject));
+	}
+
+	public SubjectHistory(String subject, HistoryRegistry registry) {
 		this.subject = subject;
-		this.registry = new SqlHistoryRegistry(subject, connection);
+		this.registry = registry;
 		this.tagSet = new TagSet(registry.tags());
 		this.timeline = new Timeline(registry.instants());
 		this.summaries = new HashMap<>();
@@ -88,8 +105,7 @@ public class SubjectHistory implements AutoCloseable {
 	}
 
 	public boolean exists(Instant from, Instant to) {
-		return timeline.instants().stream()
-				.anyMatch(i -> !i.isBefore(from) && i.isBefore(to));
+		return timeline.contains(from, to);
 	}
 
 	public boolean exists(Instant from, TemporalAmount period) {
@@ -156,12 +172,14 @@ public class SubjectHistory implements AutoCloseable {
 	}
 
 	private List<Point<Double>> readNumbers(String tag, Instant from, Instant to) {
-		return readNumbers(registry.getNumbers(tagSet.get(tag), timeline.from(from), timeline.to(to)));
+		int[] feeds = timeline.feedRange(from, to);
+		return readNumbers(registry.getNumbers(tagSet.get(tag), feeds[0], feeds[1]), from, to);
 	}
 
-	private List<Point<Double>> readNumbers(Stream<Row> records) {
+	private List<Point<Double>> readNumbers(Stream<Row> records, Instant from, Instant to) {
 		try(records) {
 			return records.map(this::readNumber)
+					.filter(p -> within(p.instant(), from, to))
 					.sorted(Comparator.comparing(Point::instant))
 					.toList();
 		}
@@ -172,19 +190,129 @@ public class SubjectHistory implements AutoCloseable {
 		return new Point<>(feed, timeline.get(feed), row.at(2).asDouble());
 	}
 
+	private double[] summarize(String tag, String function, Instant from, Instant to, TemporalAmount period) {
+		List<Instant> starts = TimeReferences.iterate(from, to, period).toList();
+		if (starts.isEmpty()) return new double[0];
+		int[] bounds = new int[starts.size() + 1];
+		for (int i = 0; i < starts.size(); i++) bounds[i] = timeline.firstFeedFrom(starts.get(i));
+		Instant end = TimeReferences.add(starts.getLast(), period);
+		bounds[starts.size()] = Math.min(timeline.firstFeedFrom(end), timeline.firstFeedAfter(to));
+		Aggregate aggregate = Aggregates.get(function);
+		double[] values = new double[starts.size()];
+		Arrays.fill(values, aggregate.empty);
+		try (Stream<Row> rows = registry.summarize(tagSet.get(tag), bounds, aggregate.edges)) {
+			rows.forEach(row -> values[row.at(1).asInt()] = aggregate.value.apply(row));
+		}
+		return values;
+	}
+
+	private record Aggregate(double empty, boolean edges, Function<Row, Double> value) {
+	}
+
+	private double[] rollUp(String tag, String function, Instant from, Instant to, TemporalAmount period) {
+		List<Instant> starts = TimeReferences.iterate(from, to, period).toList();
+		if (starts.isEmpty()) return new double[0];
+		Instant end = TimeReferences.add(starts.getLast(), period);
+		if (end.isAfter(to)) {
+			if (timeline.contains(to)) return null;
+			end = to;
+		}
+		Resolution resolution = resolutionOf(starts, end);
+		if (resolution == null) return null;
+		long[] bounds = new long[starts.size() + 1];
+		for (int i = 0; i < starts.size(); i++) bounds[i] = starts.get(i).toEpochMilli();
+		bounds[starts.size()] = end.toEpochMilli();
+		Rollup[] rollups = new Rollup[starts.size()];
+		for (int i = 0; i < rollups.length; i++) rollups[i] = new Rollup();
+		try (Stream<Row> rows = registry.rollups(tagSet.get(tag), resolution, bounds[0], bounds[starts.size()])) {
+			rows.forEach(row -> rollups[segmentOf(bounds, row.at(1).asLong())].add(row));
+		}
+		return Arrays.stream(rollups).mapToDouble(r -> r.get(function)).toArray();
+	}
+
+	private static Resolution resolutionOf(List<Instant> starts, Instant end) {
+		for (Resolution resolution : Resolution.values())
+			if (resolution.isAligned(end) && starts.stream().allMatch(resolution::isAligned)) return resolution;
+		return null;
+	}
+
+	private static int segmentOf(long[] bounds, long bucket) {
+		int i = Arrays.binarySearch(bounds, 0, bounds.length - 1, bucket);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	private static class Rollup {
+		static final Set<String> Functions = Set.of("count", "sum", "total", "mean", "average", "sd", "first", "last", "min", "max");
+		private int count;
+		private double sum;
+		private double mean;
+		private double m2;
+		private double min = Double.NaN;
+		private double max = Double.NaN;
+		private double first = Double.NaN;
+		private double last = Double.NaN;
+
+		void add(Row row) {
+			int n = row.at(2).asInt();
+			if (count == 0) first = row.at(8).asDouble();
+			min = count == 0 ? row.at(6).asDouble() : Math.min(min, row.at(6).asDouble());
+			max = count == 0 ? row.at(7).asDouble() : Math.max(max, row.at(7).asDouble());
+			last = row.at(9).asDouble();
+			double delta = row.at(4).asDouble() - mean;
+			mean += delta * n / (count + n);
+			m2 += row.at(5).asDouble() + delta * delta * count * n / (count + n);
+			count += n;
+			sum += row.at(3).asDouble();
+		}
+
+		double get(String function) {
+			return switch (function) {
+				case "count" -> count;
+				case "sum", "total" -> sum;
+				case "mean", "average" -> count > 0 ? mean : 0;
+				case "sd" -> count > 1 ? Math.sqrt(m2 / (count - 1)) : Double.NaN;
+				case "first" -> first;
+				case "last" -> last;
+				case "min" -> min;
+				case "max" -> max;
+				default -> throw new RuntimeException("Unknown function: " + function);
+			};
+		}
+	}
+
+	private static final Map<String, Aggregate> Aggregates = aggregates();
+
+	private static Map<String, Aggregate> aggregates() {
+		Map<String, Aggregate> map = new HashMap<>();
+		map.put("count", new Aggregate(0, false, row -> row.at(2).asDouble()));
+		map.put("sum", new Aggregate(0, false, row -> row.at(3).asDouble()));
+		map.put("total", map.get("sum"));
+		map.put("min", new Aggregate(Double.NaN, false, row -> row.at(4).asDouble()));
+		map.put("max", new Aggregate(Double.NaN, false, row -> row.at(5).asDouble()));
+		map.put("first", new Aggregate(Double.NaN, true, row -> row.at(6).asDouble()));
+		map.put("last", new Aggregate(Double.NaN, true, row -> row.at(7).asDouble()));
+		return map;
+	}
+
 	private List<Point<String>> readTexts(String tag, Instant from, Instant to) {
-		return readTexts(registry.getTexts(tagSet.get(tag), timeline.from(from), timeline.to(to)));
+		int[] feeds = timeline.feedRange(from, to);
+		return readTexts(registry.getTexts(tagSet.get(tag), feeds[0], feeds[1]), from, to);
 	}
 
-	private List<Point<String>> readTexts(Stream<Row> records) {
+	private List<Point<String>> readTexts(Stream<Row> records, Instant from, Instant to) {
 		try(records) {
 			return records
 					.map(this::readText)
+					.filter(p -> within(p.instant(), from, to))
 					.sorted(Comparator.comparing(Point::instant))
 					.toList();
 		}
 	}
 
+	private static boolean within(Instant instant, Instant from, Instant to) {
+		return !instant.isBefore(from) && !instant.isAfter(to);
+	}
+
 	private Point<String> readText(Row row) {
 		int feed = row.at(1).asInt();
 		return new Point<>(feed, timeline.get(feed), row.at(2).asString());
@@ -235,6 +363,20 @@ public class SubjectHistory implements AutoCloseable {
 		registry.drop();
 	}
 
+	public boolean hasRollups() {
+		return registry.hasRollups();
+	}
+
+	public boolean supportsRollups() {
+		return registry.rollsUp();
+	}
+
+	public SubjectHistory enableRollups() throws RollupsNotSupportedException {
+		if (!registry.rollsUp()) throw new RollupsNotSupportedException(subject, registry);
+		registry.enableRollups();
+		return this;
+	}
+
 	public Map<String, Summary> summaries(TimeSpan span) {
 		if (summaries.isEmpty()) summaries.putAll(calculateSummaries(span));
 		return summaries;
@@ -283,6 +425,14 @@ public class SubjectHistory implements AutoCloseable {
 			return get(span.from(), span.to());
 		}
 
+		public double[] reduce(String function, Instant from, Instant to, TemporalAmount period) {
+			double[] rolledUp = registry.hasRollups() && Rollup.Functions.contains(function) ? rollUp(tag, function, from, to, period) : null;
+			if (rolledUp != null) return rolledUp;
+			if (registry.summarizes() && timeline.ordered && Aggregates.containsKey(function)) return summarize(tag, function, from, to, period);
+			NumberReducer reducer = NumberReducer.of(function);
+			return Arrays.stream(get(from, to).segments(period)).map(reducer).mapToDouble(v -> v).toArray();
+		}
+
 		@Override
 		public String toString() {
 			return "NumericalQuery(" + tag + ')';
@@ -446,6 +596,12 @@ public class SubjectHistory implements AutoCloseable {
 		}
 	}
 
+	public static class RollupsNotSupportedException extends UnsupportedOperationException {
+		public RollupsNotSupportedException(String subject, HistoryRegistry registry) {
+			super("Rollups are not supported by " + registry.getClass().getSimpleName() + " for " + subject);
+		}
+	}
+
 	public static class TagSet {
 		private final Map<String, Integer> ids;
 		private final Map<Integer, String> labels;
@@ -521,42 +677,98 @@ public class SubjectHistory implements AutoCloseable {
 	}
 
 	public static class Timeline {
-		private final Map<Integer, Instant> instants;
+		private static final long MinSecond = Instant.ofEpochMilli(Long.MIN_VALUE).getEpochSecond();
+		private static final long MaxSecond = Instant.ofEpochMilli(Long.MAX_VALUE).getEpochSecond();
+		private Instant[] instants;
+		private long[] times;
+		private int[] feeds;
+		private int size;
+		private boolean ordered;
 
 		Timeline(Stream<Row> records) {
-			this.instants = new HashMap<>();
+			this.instants = new Instant[16];
+			this.times = new long[16];
+			this.feeds = new int[16];
+			this.ordered = true;
 			this.init(records);
 		}
 
 		Instant get(int feed) {
 			if (feed < 0) return Instant.MIN;
-			return instants.get(feed);
+			return feed < instants.length ? instants[feed] : null;
 		}
 
 		List<Instant> instants() {
-			return new ArrayList<>(instants.values()).stream()
-					.sorted()
-					.toList();
+			Instant[] result = new Instant[size];
+			for (int i = 0; i < size; i++) result[i] = instantAt(i);
+			return List.of(result);
 		}
 
 		public boolean contains(Instant instant) {
-			return instants.values().stream().anyMatch(v->v.equals(instant));
+			int i = lowerBound(instant);
+			return i < size && instantAt(i).equals(instant);
+		}
+
+		boolean contains(Instant from, Instant to) {
+			int i = lowerBound(from);
+			return i < size && instantAt(i).isBefore(to);
 		}
 
 		public Instant getFirst() {
-			return instants().getFirst();
+			if (size == 0) throw new NoSuchElementException();
+			return instantAt(0);
 		}
 
 		public Instant getLast() {
-			return instants().getLast();
+			if (size == 0) throw new NoSuchElementException();
+			return instantAt(size - 1);
 		}
 
 		public boolean isEmpty() {
-			return instants.isEmpty();
+			return size == 0;
 		}
 
 		void add(Instant instant, int feed) {
-			instants.put(feed, instant);
+			if (feed >= instants.length) instants = Arrays.copyOf(instants, Math.max(feed + 1, instants.length * 2));
+			if (size == times.length) {
+				times = Arrays.copyOf(times, size * 2);
+				feeds = Arrays.copyOf(feeds, size * 2);
+			}
+			instants[feed] = instant;
+			long millis = millisOf(instant);
+			int i = size > 0 && compare(size - 1, millis, instant, feed) > 0 ? insertionPoint(millis, instant, feed) : size;
+			if (i < size || (size > 0 && feeds[size - 1] > feed)) ordered = false;
+			System.arraycopy(times, i, times, i + 1, size - i);
+			System.arraycopy(feeds, i, feeds, i + 1, size - i);
+			times[i] = millis;
+			feeds[i] = feed;
+			size++;
+		}
+
+		int firstFeedFrom(Instant instant) {
+			return feedAt(lowerBound(instant));
+		}
+
+		int firstFeedAfter(Instant instant) {
+			return feedAt(upperBound(instant));
+		}
+
+		private int feedAt(int index) {
+			if (index < size) return feeds[index];
+			return size > 0 ? feeds[size - 1] + 1 : 0;
+		}
+
+		int[] feedRange(Instant from, Instant to) {
+			int lo = lowerBound(from);
+			int hi = upperBound(to);
+			if (lo >= hi) return new int[] {0, -1};
+			if (ordered) return new int[] {feeds[lo], feeds[hi - 1]};
+			int min = Integer.MAX_VALUE, max = -1;
+			for (int i = lo; i < hi; i++) {
+				min = Math.min(min, feeds[i]);
+				max = Math.max(max, feeds[i]);
+			}
+			return new int[] {min, max};
 		}
 
 		private void init(Stream<Row> records) {
@@ -566,35 +778,55 @@ public class SubjectHistory implements AutoCloseable {
 		}
 
 		private void init(Row r) {
-			instants.put(r.at(1).asInt(), r.at(2).asInstant());
-		}
-
-		private int from(Instant from) {
-			if (from.equals(Instant.MIN)) return 0;
-			int index = instants.size();
-			Instant min = Instant.MAX;
-			for (Map.Entry<Integer, Instant> entry : instants.entrySet()) {
-				Instant instant = entry.getValue();
-				if (instant.isBefore(from)) continue;
-				if (instant.isAfter(min)) continue;
-				index = entry.getKey();
-				min = instant;
+			add(r.at(2).asInstant(), r.at(1).asInt());
+		}
+
+		private Instant instantAt(int index) {
+			return instants[feeds[index]];
+		}
+
+		private int lowerBound(Instant instant) {
+			long millis = millisOf(instant);
+			int lo = 0, hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (times[mid] < millis || (times[mid] == millis && instantAt(mid).isBefore(instant))) lo = mid + 1;
+				else hi = mid;
 			}
-			return index;
+			return lo;
 		}
 
-		private int to(Instant to) {
-			if (to.equals(Instant.MAX)) return instants.size();
-			int index = -1;
-			Instant max = Instant.MIN;
-			for (Map.Entry<Integer, Instant> entry : instants.entrySet()) {
-				Instant instant = entry.getValue();
-				if (instant.isAfter(to)) continue;
-				if (instant.isBefore(max)) continue;
-				index = entry.getKey();
-				max = instant;
+		private int upperBound(Instant instant) {
+			long millis = millisOf(instant);
+			int lo = 0, hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (times[mid] < millis || (times[mid] == millis && !instantAt(mid).isAfter(instant))) lo = mid + 1;
+				else hi = mid;
 			}
-			return index;
+			return lo;
+		}
+
+		private int insertionPoint(long millis, Instant instant, int feed) {
+			int lo = 0, hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (compare(mid, millis, instant, feed) < 0) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo;
+		}
+
+		private int compare(int index, long millis, Instant instant, int feed) {
+			if (times[index] != millis) return Long.compare(times[index], millis);
+			int result = instantAt(index).compareTo(instant);
+			return result != 0 ? result : Integer.compare(feeds[index], feed);
+		}
+
+		private static long millisOf(Instant instant) {
+			if (instant.getEpochSecond() <= MinSecond) return Long.MIN_VALUE;
+			if (instant.getEpochSecond() >= MaxSecond) return Long.MAX_VALUE;
+			return instant.toEpochMilli();
 		}
 	}
 
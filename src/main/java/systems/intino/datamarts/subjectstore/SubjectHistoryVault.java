@@ -1,37 +1,132 @@
 package systems.intino.datamarts.subjectstore;
 
+import systems.intino.datamarts.subjectstore.io.HistoryRegistry;
+import systems.intino.datamarts.subjectstore.io.columns.ColumnHistoryRegistry;
+import systems.intino.datamarts.subjectstore.io.database.SqlConnectionLanes;
+import systems.intino.datamarts.subjectstore.io.database.SqlStatementProvider.Layout;
+
 import java.io.Closeable;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
+import java.io.File;
+import java.lang.ref.Cleaner;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class SubjectHistoryVault implements Closeable {
-	private final Connection connection;
+	private static final int Backlog = 256;
+	private static final Cleaner Reaper = Cleaner.create();
+	private final SqlConnectionLanes sqlLanes;
+	private final File directory;
+	private final int lanes;
 
 	public SubjectHistoryVault(String jdbcUrl) {
-		this.connection = connection(jdbcUrl);
+		this(jdbcUrl, Layout.TablePerSubject);
+	}
+
+	public SubjectHistoryVault(String jdbcUrl, Layout layout) {
+		this(jdbcUrl, layout, 1);
+	}
+
+	public SubjectHistoryVault(String jdbcUrl, Layout layout, int lanes) {
+		this.sqlLanes = new SqlConnectionLanes(jdbcUrl, layout, lanes);
+		this.directory = null;
+		this.lanes = sqlLanes.lanes();
+	}
+
+	public SubjectHistoryVault(File directory) {
+		this(directory, Runtime.getRuntime().availableProcessors());
+	}
+
+	public SubjectHistoryVault(File directory, int lanes) {
+		this.sqlLanes = null;
+		this.directory = directory;
+		this.lanes = Math.max(1, lanes);
 	}
 
 	public SubjectHistory open(String subject) {
-		return new SubjectHistory(subject, connection);
+		return new SubjectHistory(subject, registryOf(subject));
+	}
+
+	private HistoryRegistry registryOf(String subject) {
+		return sqlLanes != null ? sqlLanes.registry(subject) : new ColumnHistoryRegistry(directory, subject);
+	}
+
+	private int laneOf(String subject) {
+		return sqlLanes != null ? sqlLanes.laneOf(subject) : Math.floorMod(subject.hashCode(), lanes);
+	}
+
+	public List<SubjectHistory> openAll(Collection<String> subjects) {
+		Map<String, SubjectHistory> histories = new HashMap<>();
+		try (Stream<SubjectHistory> opened = parallel(subjects, history -> history)) {
+			opened.forEach(h -> histories.put(h.subject(), h));
+		}
+		return subjects.stream().map(histories::get).toList();
+	}
+
+	public <T> Stream<T> parallel(Collection<String> subjects, Function<SubjectHistory, T> reader) {
+		BlockingQueue<Result> results = new ArrayBlockingQueue<>(Backlog);
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		for (List<String> lane : lanesOf(subjects))
+			executor.submit(() -> read(lane, reader, results));
+		executor.shutdown();
+		Stream<T> stream = Stream.generate(() -> take(results))
+				.limit(subjects.size())
+				.map(result -> this.<T>valueOf(result))
+				.onClose(executor::shutdownNow);
+		Reaper.register(stream, executor::shutdownNow);
+		return stream;
 	}
 
-	private Connection connection(String jdbcUrl) {
+	private List<List<String>> lanesOf(Collection<String> subjects) {
+		List<List<String>> lanes = new ArrayList<>();
+		for (int i = 0; i < this.lanes; i++) lanes.add(new ArrayList<>());
+		for (String subject : subjects) lanes.get(laneOf(subject)).add(subject);
+		lanes.removeIf(List::isEmpty);
+		return lanes;
+	}
+
+	private <T> void read(List<String> lane, Function<SubjectHistory, T> reader, BlockingQueue<Result> results) {
 		try {
-			Connection connection = DriverManager.getConnection(jdbcUrl);
-			connection.setAutoCommit(false);
-			return connection;
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
+			for (String subject : lane) results.put(resultOf(subject, reader));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
-	@Override
-	public void close() {
+	private <T> Result resultOf(String subject, Function<SubjectHistory, T> reader) {
+		try {
+			return new Result(reader.apply(open(subject)), null);
+		} catch (Throwable e) {
+			return new Result(null, e);
+		}
+	}
+
+	private static Result take(BlockingQueue<Result> results) {
 		try {
-			connection.close();
-		} catch (SQLException e) {
+			return results.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			throw new RuntimeException(e);
 		}
 	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T valueOf(Result result) {
+		if (result.error instanceof RuntimeException e) throw e;
+		if (result.error instanceof Error e) throw e;
+		if (result.error != null) throw new RuntimeException(result.error);
+		return (T) result.value;
+	}
+
+	@Override
+	public void close() {
+		if (sqlLanes != null) sqlLanes.close();
+	}
+
+	private record Result(Object value, Throwable error) {
+	}
 }
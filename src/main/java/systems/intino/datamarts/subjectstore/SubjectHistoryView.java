@@ -6,7 +6,6 @@ import systems.intino.datamarts.subjectstore.calculator.model.Vector;
 import systems.intino.datamarts.subjectstore.calculator.model.vectors.DoubleVector;
 import systems.intino.datamarts.subjectstore.calculator.model.vectors.StringVector;
 import systems.intino.datamarts.subjectstore.model.signals.CategoricalSignal;
-import systems.intino.datamarts.subjectstore.model.signals.NumericalSignal;
 import systems.intino.datamarts.subjectstore.view.history.Column;
 import systems.intino.datamarts.subjectstore.view.history.Column.DoubleColumn;
 import systems.intino.datamarts.subjectstore.view.history.Column.StringColumn;
@@ -202,7 +201,7 @@ public class SubjectHistoryView implements Iterable<Column> {
 			if (isTemporal(tag) && TimeReducer.contains(field))
 				return calculate(TimeReducer.of(field));
 			if (NumberReducer.contains(field))
-				return calculate(NumberReducer.of(field), history.query().number(tag).get(from(), to()));
+				return new DoubleVector(history.query().number(tag).reduce(field, from(), to(), duration()));
 			if (TextReducer.contains(field))
 				return calculate(NumberReducer.of(field), history.query().text(tag).get(from(), to()));
 		}
@@ -216,12 +215,6 @@ public class SubjectHistoryView implements Iterable<Column> {
 		return new DoubleVector(values);
 	}
 
-	private DoubleVector calculate(NumberReducer reducer, NumericalSignal signal) {
-		NumericalSignal[] segments = signal.segments(duration());
-		double[] values = Arrays.stream(segments).map(reducer).mapToDouble(v -> v).toArray();
-		return new DoubleVector(values);
-	}
-
 	private DoubleVector calculate(NumberReducer reducer, CategoricalSignal categoricalSignal) {
 		CategoricalSignal[] segments = categoricalSignal.segments(duration());
 		double[] values = Arrays.stream(segments).map(reducer).mapToDouble(s -> s).toArray();
@@ -1,327 +1,587 @@
 package systems.intino.datamarts.subjectstore;
 
-import systems.intino.datamarts.subjectstore.helpers.SubjectQueryParser;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
 import systems.intino.datamarts.subjectstore.model.Triples;
+import systems.intino.datamarts.subjectstore.io.snapshots.BinarySnapshot;
+import systems.intino.datamarts.subjectstore.io.snapshots.MappedSnapshot;
+import systems.intino.datamarts.subjectstore.io.snapshots.Segment;
 import systems.intino.datamarts.subjectstore.io.triples.DumpTriples;
+import systems.intino.datamarts.subjectstore.io.triples.ParallelDump;
 import systems.intino.datamarts.subjectstore.model.*;
 import systems.intino.datamarts.subjectstore.model.Subject.Context;
 import systems.intino.datamarts.subjectstore.model.Subject.Updating;
 import systems.intino.datamarts.subjectstore.model.journals.FileJournal;
+import systems.intino.datamarts.subjectstore.pools.BitmapPool;
 import systems.intino.datamarts.subjectstore.pools.LinkPool;
 import systems.intino.datamarts.subjectstore.pools.StringPool;
+import systems.intino.datamarts.subjectstore.pools.bitmaps.VersionedBitmapPool;
+import systems.intino.datamarts.subjectstore.pools.links.VersionedLinkPool;
+import systems.intino.datamarts.subjectstore.pools.strings.VersionedStringPool;
 
 import java.io.*;
 import java.util.*;
-import java.util.function.Predicate;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 import static systems.intino.datamarts.subjectstore.model.Journal.Transaction.Type.*;
 
-public class SubjectIndex {
-	private final FileJournal journal;
-	private final StringPool subjectPool;
-	private final StringPool termPool;
-	private final LinkPool linkPool;
+public class SubjectIndex extends AbstractSubjectIndex<VersionedStringPool, VersionedLinkPool, VersionedBitmapPool> {
+	private static final int Stripes = 64;
+	private static final int OptimisticReads = 3;
+	private final Journal journal;
 	private final Context context;
+	private final StampedLock lock;
+	private final StampedLock[] stripes;
+	private final Object[] termStripes;
 
 	public SubjectIndex(File journal) {
-		this.journal = new FileJournal(journal);
-		this.subjectPool = new StringPool();
-		this.termPool = new StringPool();
-		this.linkPool = new LinkPool();
-		this.context = createContext();
+		this(journal, StringPool::onHeap);
 	}
 
-	public boolean has(String name, String type) {
-		return has(Subject.of(name, type).identifier());
+	public SubjectIndex(File journal, Supplier<StringPool> dictionary) {
+		this(journal, dictionary, LinkPool::bitmaps);
 	}
 
-	public boolean has(String identifier) {
-		return subjectPool.contains(identifier);
+	public SubjectIndex(File journal, Supplier<StringPool> dictionary, Supplier<LinkPool> links) {
+		this(new FileJournal(journal), dictionary, links);
 	}
 
-	private boolean has(int identifier) {
-		return subjectPool.contains(identifier);
+	public SubjectIndex(Journal journal) {
+		this(journal, StringPool::onHeap, LinkPool::bitmaps);
 	}
 
-	public Subject open(String name, String type) {
-		return open(Subject.of(name, type).identifier()) ;
+	public SubjectIndex(Journal journal, Supplier<StringPool> dictionary, Supplier<LinkPool> links) {
+		this(journal, dictionary.get(), dictionary.get(), links.get(), BitmapPool.onHeap(), BitmapPool.onHeap(), BitmapPool.onHeap());
 	}
 
-	public Subject open(String identifier) {
-		return has(identifier) ? new Subject(identifier, context) : null;
+	public SubjectIndex(Journal journal, MappedSnapshot snapshot) {
+		this(journal, snapshot.subjects(), snapshot.terms(), snapshot.links(), snapshot.tags(), snapshot.types(), snapshot.children());
 	}
 
-	private Subject open(int id) {
-		String value = subjectPool.get(id);
-		return value != null ? Subject.of(value, context) : null;
+	private SubjectIndex(Journal journal, StringPool subjects, StringPool terms, LinkPool links, BitmapPool tags, BitmapPool types, BitmapPool children) {
+		super(new VersionedStringPool(subjects), new VersionedStringPool(terms), new VersionedLinkPool(links), new VersionedBitmapPool(tags), new VersionedBitmapPool(types), new VersionedBitmapPool(children));
+		this.journal = journal;
+		this.context = createContext();
+		this.lock = new StampedLock();
+		this.stripes = IntStream.range(0, Stripes).mapToObj(i -> new StampedLock()).toArray(StampedLock[]::new);
+		this.termStripes = IntStream.range(0, Stripes).mapToObj(i -> new Object()).toArray();
 	}
 
-	private Term term(int id) {
-		String value = termPool.get(id);
-		return value != null ? Term.of(value) : Term.Null;
+	public Subject create(String name, String type) {
+		return create(Subject.of(name, type));
 	}
 
-	public SubjectQuery query(String query) {
-		return new SubjectQueryParser(this).parse(query);
+	public Subject create(String identifier) {
+		return create(Subject.of(identifier));
 	}
 
-	public SubjectQuery query() {
-		return new SubjectQuery() {
-			private final SubjectQuery This = this;
-			private final Sorting sorting = new Sorting();
-			private final List<Predicate<Integer>> conditions = new ArrayList<>();
+	public Subject create(Subject subject) {
+		String identifier = subject.identifier();
+		return has(identifier) ? new Subject(identifier, context) : write(() -> open(addSubject(identifier)));
+	}
 
-			@Override
-			public int size() {
-				return (int) stream().count();
+	@Override
+	<T> T read(Supplier<T> reader) {
+		long stamp = lock.readLock();
+		try {
+			for (int i = 0; i < OptimisticReads; i++) {
+				long[] stamps = tryOptimisticReadStripes();
+				if (stamps == null) {
+					Thread.onSpinWait();
+					continue;
+				}
+				try {
+					T result = reader.get();
+					if (validateStripes(stamps)) return result;
+				} catch (RuntimeException e) {
+					if (validateStripes(stamps)) throw e;
+				}
 			}
-
-			@Override
-			public boolean isEmpty() {
-				return stream().findAny().isEmpty();
+			long[] stamps = readLockStripes();
+			try {
+				return reader.get();
+			} finally {
+				unlockReadStripes(stamps);
 			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
 
-			@Override
-			public Subject first() {
-				return stream().findFirst().orElse(null);
-			}
+	private <T> T readAll(Supplier<T> reader) {
+		long[] stamps = readLockAll();
+		try {
+			return reader.get();
+		} finally {
+			unlockReadAll(stamps);
+		}
+	}
 
-			@Override
-			public Stream<Subject> stream() {
-				return candidates()
-						.mapToObj(this::subject)
-						.sorted(sorting::sort);
-			}
+	@Override
+	<T> T read(IntSupplier subject, IntFunction<T> reader) {
+		long stamp = lock.readLock();
+		try {
+			int id = subject.getAsInt();
+			StampedLock stripe = stripeOf(id);
+			long stripeStamp = stripe.readLock();
+			try {
+				return reader.apply(id);
+			} finally {
+				stripe.unlockRead(stripeStamp);
+			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
 
-			@Override
-			public List<Subject> collect() {
-				return stream().toList();
-			}
+	private <T> T write(String identifier, IntFunction<T> writer) {
+		long stamp = lock.readLock();
+		try {
+			int id = subjectPool.id(identifier);
+			StampedLock stripe = stripeOf(id);
+			long stripeStamp = stripe.writeLock();
+			try {
+				return writer.apply(id);
+			} finally {
+				stripe.unlockWrite(stripeStamp);
+			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
 
-			@Override
-			public SubjectQuery nameStartsWith(String value) {
-				conditions.add(id-> subject(id).name().startsWith(value));
-				return this;
-			}
+	private <T> T write(Supplier<T> writer) {
+		long stamp = lock.writeLock();
+		try {
+			return writer.get();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
 
-			@Override
-			public SubjectQuery nameContains(String value) {
-				conditions.add(id-> subject(id).name().contains(value));
-				return this;
-			}
+	private StampedLock stripeOf(int subject) {
+		return stripes[subject & (Stripes - 1)];
+	}
 
-			@Override
-			public SubjectQuery nameEndsWith(String value) {
-				conditions.add(id-> subject(id).name().endsWith(value));
-				return this;
-			}
+	private long[] readLockAll() {
+		long[] stamps = new long[Stripes + 1];
+		stamps[Stripes] = lock.readLock();
+		for (int i = 0; i < Stripes; i++) stamps[i] = stripes[i].readLock();
+		return stamps;
+	}
+
+	private void unlockReadAll(long[] stamps) {
+		unlockReadStripes(stamps);
+		lock.unlockRead(stamps[Stripes]);
+	}
+
+	private long[] readLockStripes() {
+		long[] stamps = new long[Stripes];
+		for (int i = 0; i < Stripes; i++) stamps[i] = stripes[i].readLock();
+		return stamps;
+	}
+
+	private void unlockReadStripes(long[] stamps) {
+		for (int i = Stripes - 1; i >= 0; i--) stripes[i].unlockRead(stamps[i]);
+	}
+
+	private long[] tryOptimisticReadStripes() {
+		long[] stamps = new long[Stripes];
+		for (int i = 0; i < Stripes; i++)
+			if ((stamps[i] = stripes[i].tryOptimisticRead()) == 0) return null;
+		return stamps;
+	}
+
+	private boolean validateStripes(long[] stamps) {
+		for (int i = 0; i < Stripes; i++)
+			if (!stripes[i].validate(stamps[i])) return false;
+		return true;
+	}
+
+	private void rename(String oldId, String newId) {
+		Bitmap subtree = descendantsOf(oldId);
+		if (subjectPool.contains(oldId)) subtree.add(subjectPool.id(oldId));
+		subtree.forEach(id -> fixSubject(id, newId + subjectPool.get(id).substring(oldId.length())));
+	}
+
+	private void drop(String identifier) {
+		int id = subjectPool.id(identifier);
+		if (id < 0) return;
+		childrenOf(identifier).toList().forEach(child -> drop(subjectPool.get(child)));
+		linkPool.remove(id).stream()
+				.filter(term -> !linkPool.termIsUsed(term))
+				.forEach(this::removeTerm);
+		fixSubject(id, null);
+	}
+
+	private int addSubject(String identifier) {
+		int id = subjectPool.id(identifier);
+		return id >= 0 ? id : createSubject(identifier);
+	}
+
+	private int createSubject(String identifier) {
+		int id = subjectPool.create(identifier);
+		link(id, identifier);
+		return id;
+	}
+
+	private void fixSubject(int id, String identifier) {
+		String old = subjectPool.get(id);
+		if (old != null) unlink(id, old);
+		subjectPool.fix(id, identifier);
+		if (identifier != null) link(id, identifier);
+	}
+
+	private void link(int id, String identifier) {
+		types.add(typeOf(identifier), id);
+		children.add(parentOf(identifier), id);
+	}
+
+	private void unlink(int id, String identifier) {
+		types.remove(typeOf(identifier), id);
+		children.remove(parentOf(identifier), id);
+	}
+
+	private Updating update(Subject subject) {
+		return new Updating() {
 
 			@Override
-			public SubjectQuery isType(String type) {
-				conditions.add(id-> subject(id).is(type));
+			public Updating put(Term term) {
+				if (term.isEmpty()) return this;
+				boolean written = write(subject.identifier(), id -> {
+					if (hasLink(id, term)) return false;
+					journal.add(new Journal.Transaction(put, subject.identifier(), term.toString()));
+					addLink(id, term);
+					return true;
+				});
+				if (written) journal.await();
 				return this;
 			}
 
 			@Override
-			public SubjectQuery isRoot() {
-				conditions.add(id -> subject(id).isRoot());
+			public Updating set(Term term) {
+				if (term.value().isEmpty()) return del(term.tag());
+				write(subject.identifier(), id -> {
+					journal.add(new Journal.Transaction(set, subject.identifier(), term.toString()));
+					setLink(id, term);
+					return null;
+				});
+				journal.await();
 				return this;
 			}
 
 			@Override
-			public SubjectQuery isChildOf(String identifier) {
-				conditions.add(id -> subject(id).isChildOf(identifier));
+			public Updating del(Term term) {
+				boolean erased = write(subject.identifier(), id -> {
+					if (termPool.id(term.serialize()) < 0) return false;
+					journal.add(new Journal.Transaction(del, subject.identifier(), term.toString()));
+					removeLink(id, term);
+					return true;
+				});
+				if (erased) journal.await();
 				return this;
 			}
 
 			@Override
-			public SubjectQuery isUnderOf(String identifier) {
-				conditions.add(id -> subject(id).isUnderOf(identifier));
+			public Updating del(String tag) {
+				read(() -> subjectPool.id(subject.identifier()), id -> termsWith(id, tag)).forEach(this::del);
 				return this;
 			}
+		};
+	}
 
-			private Subject subject(int id) {
-				return open(id);
-			}
+	private boolean hasLink(int subject, Term term) {
+		int id = termPool.id(term.serialize());
+		return id >= 0 && linkPool.exists(subject, id);
+	}
 
-			@Override
-			public SubjectQuery orderBy(String tag, Comparator<String> comparator) {
-				sorting.add(tag, comparator);
-				return this;
-			}
+	private void addLink(int subject, Term term) {
+		String value = term.serialize();
+		synchronized (termStripeOf(value)) {
+			linkPool.add(subject, addTerm(value));
+		}
+	}
 
-			@Override
-			public AttributeFilter where(String tag) {
-				return where(termHas(tag));
-			}
+	private void setLink(int subject, Term term) {
+		List<Term> terms = termsWith(subject, term.tag());
+		if (!terms.contains(term)) addLink(subject, term);
+		terms.stream().filter(t -> !t.equals(term)).forEach(t -> removeLink(subject, t));
+	}
 
-			private List<Integer> termHas(String tag) {
-				return termPool.ids(s -> Term.of(s).is(tag));
-			}
+	private void removeLink(int subject, Term term) {
+		String value = term.serialize();
+		synchronized (termStripeOf(value)) {
+			int id = termPool.id(value);
+			if (id < 0 || !linkPool.exists(subject, id)) return;
+			linkPool.remove(subject, id);
+			if (!linkPool.termIsUsed(id)) removeTerm(id);
+		}
+	}
 
-			private AttributeFilter where(List<Integer> terms) {
-				return new AttributeFilter() {
+	private Object termStripeOf(String term) {
+		int hash = term.hashCode();
+		return termStripes[(hash ^ hash >>> 16) & (Stripes - 1)];
+	}
 
+	private List<Term> termsWith(int subject, String tag) {
+		return termsOf(subject).stream().filter(t -> t.is(tag)).toList();
+	}
+
+	public Transaction transaction() {
+		return new Transaction() {
+			private final List<Journal.Transaction> transactions = new ArrayList<>();
+
+			@Override
+			public Updating update(String identifier) {
+				String subject = Subject.of(identifier).identifier();
+				return new Updating() {
 					@Override
-					public SubjectQuery satisfy(Predicate<String> predicate) {
-						List<Integer> selection = termsThat(predicate);
-						if (selection.isEmpty()) return SubjectQuery.Empty;
-						Set<Integer> subjects = subjectWith(selection);
-						conditions.add(subjects::contains);
-						return This;
+					public Updating put(Term term) {
+						if (!term.isEmpty()) transactions.add(new Journal.Transaction(put, subject, term.toString()));
+						return this;
 					}
 
-					private List<Integer> termsThat(Predicate<String> predicate) {
-						List<Integer> result = new ArrayList<>();
-						for (int term : terms)
-							if (predicate.test(term(term).value()))
-								result.add(term);
-						return result;
+					@Override
+					public Updating set(Term term) {
+						transactions.add(new Journal.Transaction(set, subject, term.toString()));
+						return this;
 					}
 
-					private Set<Integer> subjectWith(List<Integer> terms) {
-						Set<Integer> subjects = new HashSet<>();
-						for (int term : terms)
-							subjects.addAll(linkPool.subjectsWith(term));
-						return subjects;
+					@Override
+					public Updating del(Term term) {
+						transactions.add(new Journal.Transaction(del, subject, term.toString()));
+						return this;
 					}
 
+					@Override
+					public Updating del(String tag) {
+						return set(new Term(tag, ""));
+					}
 				};
 			}
 
-			private IntStream candidates() {
-				return subjectsWith(conditions());
+			@Override
+			public Transaction drop(String identifier) {
+				transactions.add(new Journal.Transaction(drop, Subject.of(identifier).identifier(), "-"));
+				return this;
 			}
 
-			private IntStream subjectsWith(Predicate<Integer> conditions) {
-				return IntStream.range(0, subjectPool.size())
-						.filter(s -> subjectPool.get(s) != null)
-						.filter(conditions::test);
+			@Override
+			public int size() {
+				return transactions.size();
 			}
 
-			private Predicate<Integer> conditions() {
-				return conditions.stream().reduce(x -> true, Predicate::and);
+			@Override
+			public void commit() {
+				SubjectIndex.this.commit(List.copyOf(transactions));
+				transactions.clear();
 			}
-
 		};
 	}
 
-	public Subject create(String name, String type) {
-		return create(Subject.of(name, type));
+	private void commit(List<Journal.Transaction> transactions) {
+		if (transactions.isEmpty()) return;
+		write(() -> {
+			journal.add(transactions);
+			transactions.forEach(this::apply);
+			return null;
+		});
+		journal.await();
 	}
 
-	public Subject create(String identifier) {
-		return create(Subject.of(identifier));
+	private void apply(Journal.Transaction transaction) {
+		String identifier = transaction.subject();
+		int id = addSubject(identifier);
+		switch (transaction.type()) {
+			case put -> {
+				Term term = Term.of(transaction.parameter());
+				if (!term.isEmpty() && !hasLink(id, term)) addLink(id, term);
+			}
+			case set -> {
+				Term term = Term.of(transaction.parameter());
+				if (!term.isEmpty()) setLink(id, term);
+				else termsWith(id, term.tag()).forEach(t -> removeLink(id, t));
+			}
+			case del -> {
+				Term term = Term.of(transaction.parameter());
+				if (termPool.id(term.serialize()) >= 0) removeLink(id, term);
+			}
+			case drop -> drop(identifier);
+			case rename -> rename(identifier, renamed(identifier, transaction.parameter()));
+		}
 	}
 
-	public Subject create(Subject subject) {
-		synchronized (journal) {
-			int id = subjectPool.add(subject.identifier());
-			return open(id);
+	private int addTerm(String term) {
+		int id = termPool.add(term);
+		tags.add(tagOf(term), id);
+		return id;
+	}
+
+	private void removeTerm(int id) {
+		if (id < 0) return;
+		String term = termPool.get(id);
+		if (term == null) return;
+		tags.remove(tagOf(term), id);
+		termPool.remove(id);
+	}
+
+	private static String tagOf(String term) {
+		int i = term.indexOf('=');
+		return (i >= 0 ? term.substring(0, i) : term).trim();
+	}
+
+	public Snapshot snapshot() {
+		return readAll(() -> new Snapshot(this));
+	}
+
+	public Snapshot snapshot(Runnable action) {
+		return readAll(() -> {
+			action.run();
+			return new Snapshot(this);
+		});
+	}
+
+	@Override
+	public void dump(OutputStream os) throws IOException {
+		try (Snapshot snapshot = snapshot()) {
+			snapshot.dump(os);
 		}
 	}
 
-	private void rename(String oldId, String newId) {
-		subjectPool.stream()
-				.filter(s->s.startsWith(oldId))
-				.forEach(s ->subjectPool.fix(subjectPool.id(s), newId + s.substring(oldId.length())));
+	@Override
+	public void snapshot(OutputStream os) throws IOException {
+		try (Snapshot snapshot = snapshot()) {
+			snapshot.snapshot(os);
+		}
 	}
 
-	private void drop(Subject subject) {
-		if (!has(subject.identifier())) return;
-		dropChildrenOf(subject);
-		dropTermsOf(subject);
-		subjectPool.remove(subject.identifier());
+	@Override
+	public void segment(Journal changes, OutputStream os) throws IOException {
+		try (Snapshot snapshot = snapshot()) {
+			snapshot.segment(changes, os);
+		}
 	}
 
-	private Updating update(Subject subject) {
-		return new Updating() {
-			private final int id = subjectPool.id(subject.identifier());
+	public SubjectIndex restore(Segment segment) throws IOException {
+		long stamp = lock.writeLock();
+		try {
+			segment.load(new Segment.Loader() {
+				@Override
+				public void drop(String identifier) {
+					SubjectIndex.this.drop(identifier);
+				}
 
-			@Override
-			public Updating put(Term term) {
-				synchronized (journal) {
-					if (term.isEmpty() || existsLink(term)) return this;
-					journal.add(new Journal.Transaction(put, subject.identifier(), term.toString()));
-					return write(term);
+				@Override
+				public void subject(String identifier, List<String> terms) {
+					int id = addSubject(identifier);
+					linkPool.remove(id).stream()
+							.filter(term -> !linkPool.termIsUsed(term))
+							.forEach(SubjectIndex.this::removeTerm);
+					terms.forEach(term -> linkPool.add(id, addTerm(term)));
 				}
-			}
+			});
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		return this;
+	}
 
+	public SubjectIndex restore(BinarySnapshot snapshot) throws IOException {
+		long stamp = lock.writeLock();
+		try {
+			if (subjectPool.size() == 0 && termPool.size() == 0) bulkLoad(snapshot);
+			else snapshot.load(mergingLoader());
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		return this;
+	}
+
+	private void bulkLoad(BinarySnapshot snapshot) throws IOException {
+		snapshot.load(new BinarySnapshot.Loader() {
 			@Override
-			public Updating set(Term term) {
-				if (term.value().isEmpty()) return del(term.tag());
-				synchronized (journal) {
-					journal.add(new Journal.Transaction(set, subject.identifier(), term.toString()));
-					termsWith(term.tag()).forEach(this::erase);
-					return write(term);
-				}
+			public void subjects(String[] identifiers) {
+				subjectPool.create(identifiers);
 			}
 
 			@Override
-			public Updating del(Term term) {
-				synchronized (journal) {
-					if (!existsTerm(term)) return this;
-					journal.add(new Journal.Transaction(del, subject.identifier(), term.toString()));
-					return erase(term);
-				}
+			public void terms(String[] terms) {
+				termPool.create(terms);
 			}
 
 			@Override
-			public Updating del(String tag) {
-				termsWith(tag).forEach(this::del);
-				return this;
+			public void links(int subject, int[] terms) {
+				linkPool.add(subject, terms);
 			}
 
-			private boolean existsTerm(Term term) {
-				return termPool.id(term.serialize()) >= 0;
+			@Override
+			public void tags(String tag, int[] terms) {
+				tags.add(tag, terms);
 			}
 
-			private boolean existsLink(Term term) {
-				int id = termPool.id(term.serialize());
-				return id >= 0 && linkPool.exists(this.id, id);
+			@Override
+			public void types(String type, int[] subjects) {
+				types.add(type, subjects);
 			}
 
-			private Updating write(Term term) {
-				linkPool.add(id, termPool.add(term.serialize()));
-				return this;
+			@Override
+			public void children(String parent, int[] subjects) {
+				children.add(parent, subjects);
 			}
+		});
+	}
 
-			private Updating erase(Term term) {
-				int id = termPool.id(term.serialize());
-				linkPool.remove(this.id, id);
-				if (!linkPool.termIsUsed(id)) termPool.remove(term.serialize());
-				return this;
+	private BinarySnapshot.Loader mergingLoader() {
+		return new BinarySnapshot.Loader() {
+			private int[] subjects;
+			private int[] terms;
+
+			@Override
+			public void subjects(String[] identifiers) {
+				subjects = Arrays.stream(identifiers).mapToInt(SubjectIndex.this::addSubject).toArray();
 			}
 
-			private Stream<Term> termsWith(String tag) {
-				return subject.terms().stream().filter(t->t.is(tag));
+			@Override
+			public void terms(String[] terms) {
+				this.terms = Arrays.stream(terms).mapToInt(SubjectIndex.this::addTerm).toArray();
 			}
 
+			@Override
+			public void links(int subject, int[] terms) {
+				for (int term : terms) linkPool.add(subjects[subject], this.terms[term]);
+			}
 		};
 	}
 
-	private void dropChildrenOf(Subject subject) {
-		subject.children().collect().forEach(this::drop);
-	}
-
-	private void dropTermsOf(Subject subject) {
-		List<Integer> usedTerms = linkPool.remove(subjectPool.id(subject.identifier()));
-		usedTerms.stream()
-				.filter(term -> linkPool.subjectsWith(term).isEmpty())
-				.forEach(termPool::remove);
-	}
+	public SubjectIndex restore(ParallelDump dump) throws IOException {
+		IntArrayList subjects = new IntArrayList();
+		IntArrayList terms = new IntArrayList();
+		long stamp = lock.writeLock();
+		try {
+			dump.load(new ParallelDump.Loader() {
+				@Override
+				public void subject(String identifier) {
+					subjects.add(addSubject(identifier));
+				}
 
-	public Triples triples() {
-		return this::tripleIterator;
-	}
+				@Override
+				public void term(String term) {
+					terms.add(addTerm(term));
+				}
 
-	public void dump(OutputStream os) throws IOException {
-		for (Triple triple : triples()) {
-			String str = triple.toString() + '\n';
-			os.write(str.getBytes());
+				@Override
+				public void link(int subject, int term) {
+					linkPool.add(subjects.getInt(subject), terms.getInt(term));
+				}
+			});
+		} finally {
+			lock.unlockWrite(stamp);
 		}
+		return this;
 	}
 
 	public SubjectIndex restore(InputStream is) throws IOException {
@@ -339,7 +599,24 @@ public class SubjectIndex {
 
 	public SubjectIndex restore(Journal journal) {
 		if (journal.isEmpty()) return this;
-		for (Journal.Transaction transaction : journal.transactions()) {
+		Iterator<Journal.Transaction> transactions = journal.iterator();
+		try {
+			replay(transactions);
+		} finally {
+			close(transactions);
+		}
+		return this;
+	}
+
+	private void replay(Iterator<Journal.Transaction> transactions) {
+		while (transactions.hasNext()) {
+			Journal.Transaction transaction = transactions.next();
+			if (transaction.type() == batch) {
+				List<Journal.Transaction> group = next(transactions, Integer.parseInt(transaction.parameter()));
+				if (group == null) break;
+				commit(group);
+				continue;
+			}
 			Subject subject = create(transaction.subject());
 			switch (transaction.type()) {
 				case put -> subject.update().put(Term.of(transaction.parameter()));
@@ -349,26 +626,21 @@ public class SubjectIndex {
 				case rename -> subject.rename(transaction.parameter());
 			}
 		}
-		return this;
 	}
 
-	private Iterator<Triple> tripleIterator() {
-		return new Iterator<>() {
-			final Iterator<int[]> iterator = linkPool.iterator();
-
-			@Override
-			public boolean hasNext() {
-				return iterator.hasNext();
-			}
+	private static void close(Iterator<Journal.Transaction> transactions) {
+		if (!(transactions instanceof AutoCloseable closeable)) return;
+		try {
+			closeable.close();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
 
-			@Override
-			public Triple next() {
-				int[] id = iterator.next();
-				String identifier = subjectPool.get(id[0]);
-				Term term = term(id[1]);
-				return new Triple(identifier, term.tag(), term.value());
-			}
-		};
+	private static List<Journal.Transaction> next(Iterator<Journal.Transaction> transactions, int size) {
+		List<Journal.Transaction> group = new ArrayList<>(size);
+		while (group.size() < size && transactions.hasNext()) group.add(transactions.next());
+		return group.size() == size ? group : null;
 	}
 
 	private Context createContext() {
@@ -376,17 +648,12 @@ public class SubjectIndex {
 
 			@Override
 			public List<Subject> children(Subject subject) {
-				return subjectPool.stream()
-						.filter(s -> s.startsWith(subject.identifier()))
-						.map(s -> open(s))
-						.filter(s -> s.parent().equals(subject))
-						.toList();
+				return SubjectIndex.this.children(subject);
 			}
 
 			@Override
 			public List<Term> terms(Subject subject) {
-				int id = subjectPool.id(subject.identifier());
-				return id < 0 ? List.of() : linkPool.termsOf(id).stream().map(i->term(i)).toList();
+				return SubjectIndex.this.terms(subject);
 			}
 
 			@Override
@@ -406,18 +673,22 @@ public class SubjectIndex {
 
 			@Override
 			public void rename(Subject subject, String identifier) {
-				synchronized (journal) {
+				write(() -> {
 					journal.add(new Journal.Transaction(rename, subject.identifier(), nameIn(identifier)));
 					SubjectIndex.this.rename(subject.identifier(), identifier);
-				}
+					return null;
+				});
+				journal.await();
 			}
 
 			@Override
 			public void drop(Subject subject) {
-				synchronized (journal) {
+				write(() -> {
 					journal.add(new Journal.Transaction(drop, subject.identifier(), "-"));
-					SubjectIndex.this.drop(subject);
-				}
+					SubjectIndex.this.drop(subject.identifier());
+					return null;
+				});
+				journal.await();
 			}
 		};
 	}
@@ -432,18 +703,19 @@ public class SubjectIndex {
 			private int id;
 			@Override
 			public void put(Triple triple) {
-				linkPool.add(id(triple.subject()), termPool.add(triple.term()));
+				write(() -> linkPool.add(id(triple.subject()), addTerm(triple.term())));
 			}
 
 			private int id(String subject) {
 				if (subject.equals(last)) return id;
 				this.last = subject;
-				id = subjectPool.create(subject);
+				id = createSubject(subject);
 				return id;
 			}
 		};
 	}
 
+	@Override
 	public Context context() {
 		return context;
 	}
@@ -452,6 +724,94 @@ public class SubjectIndex {
 		void put(Triple triple);
 	}
 
+	public interface Transaction {
+		Updating update(String identifier);
+
+		default Updating update(Subject subject) {
+			return update(subject.identifier());
+		}
+
+		Transaction drop(String identifier);
+
+		default Transaction drop(Subject subject) {
+			return drop(subject.identifier());
+		}
+
+		int size();
+
+		void commit();
+	}
+
+	public static class Snapshot extends AbstractSubjectIndex<VersionedStringPool.Version, VersionedLinkPool.Version, VersionedBitmapPool.Version> implements AutoCloseable {
+		private final Context context;
+
+		private Snapshot(SubjectIndex index) {
+			super(index.subjectPool.snapshot(), index.termPool.snapshot(), index.linkPool.snapshot(index.subjectPool.size()), index.tags.snapshot(), index.types.snapshot(), index.children.snapshot());
+			this.context = createContext();
+		}
+
+		@Override
+		Context context() {
+			return context;
+		}
+
+		@Override
+		<T> T read(Supplier<T> reader) {
+			return reader.get();
+		}
+
+		@Override
+		<T> T read(IntSupplier subject, IntFunction<T> reader) {
+			return reader.apply(subject.getAsInt());
+		}
 
+		@Override
+		public void close() {
+			subjectPool.release();
+			termPool.release();
+			linkPool.release();
+			tags.release();
+			types.release();
+			children.release();
+		}
+
+		private Context createContext() {
+			return new Context() {
+				@Override
+				public List<Subject> children(Subject subject) {
+					return Snapshot.this.children(subject);
+				}
 
+				@Override
+				public List<Term> terms(Subject subject) {
+					return Snapshot.this.terms(subject);
+				}
+
+				@Override
+				public Subject create(Subject child) {
+					throw new UnsupportedOperationException("Snapshot is read-only");
+				}
+
+				@Override
+				public Subject open(String identifier) {
+					return Snapshot.this.open(identifier);
+				}
+
+				@Override
+				public void rename(Subject subject, String identifier) {
+					throw new UnsupportedOperationException("Snapshot is read-only");
+				}
+
+				@Override
+				public void drop(Subject subject) {
+					throw new UnsupportedOperationException("Snapshot is read-only");
+				}
+
+				@Override
+				public Updating update(Subject subject) {
+					throw new UnsupportedOperationException("Snapshot is read-only");
+				}
+			};
+		}
+	}
 }
@@ -149,16 +149,27 @@ public interface SubjectQuery {
 			sorts.add(new Sort(tag, comparator));
 		}
 
-		public int sort(Subject s1, Subject s2) {
-			for (Sort sort : sorts) {
-				String v1 = s1.get(sort.tag());
-				String v2 = s2.get(sort.tag());
-				int compare = sort.comparator().compare(v1, v2);
+		public Stream<Subject> sort(Stream<Subject> subjects) {
+			if (sorts.isEmpty()) return subjects;
+			return subjects.map(s -> new Keyed(s, keysOf(s)))
+					.sorted(this::sort)
+					.map(Keyed::subject);
+		}
+
+		private String[] keysOf(Subject subject) {
+			return sorts.stream().map(s -> subject.get(s.tag())).toArray(String[]::new);
+		}
+
+		private int sort(Keyed k1, Keyed k2) {
+			for (int i = 0; i < sorts.size(); i++) {
+				int compare = sorts.get(i).comparator().compare(k1.keys()[i], k2.keys()[i]);
 				if (compare != 0) return compare;
 			}
 			return 0;
 		}
+
 		private record Sort(String tag, Comparator<String> comparator) {}
+		private record Keyed(Subject subject, String[] keys) {}
 
 	}
 
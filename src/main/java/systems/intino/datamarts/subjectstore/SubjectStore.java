@@ -1,25 +1,79 @@
 package systems.intino.datamarts.subjectstore;
 
-import systems.intino.datamarts.subjectstore.io.triples.DumpTriples;
+import systems.intino.datamarts.subjectstore.io.database.SqlStatementProvider.Layout;
+import systems.intino.datamarts.subjectstore.io.snapshots.BinarySnapshot;
+import systems.intino.datamarts.subjectstore.io.snapshots.MappedSnapshot;
+import systems.intino.datamarts.subjectstore.io.snapshots.Segment;
+import systems.intino.datamarts.subjectstore.io.triples.ParallelDump;
 import systems.intino.datamarts.subjectstore.model.Journal;
 import systems.intino.datamarts.subjectstore.model.Subject;
 import systems.intino.datamarts.subjectstore.model.Triple;
 import systems.intino.datamarts.subjectstore.model.Triples;
-import systems.intino.datamarts.subjectstore.model.journals.FileJournal;
+import systems.intino.datamarts.subjectstore.model.journals.GroupCommitJournal;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 public class SubjectStore {
+	private static final int MaxSegments = 8;
+	private static final byte[] GenerationMagic = {'S', 'S', 'G', 'N'};
+	private static final Pattern Generation = Pattern.compile("\\.(\\d+)$");
+	private static final ExecutorService Checkpointer = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "index-checkpointer");
+		thread.setDaemon(true);
+		return thread;
+	});
 	private final File indexFile;
+	private final Journal journal;
+	private final Object checkpointing;
 	private final SubjectIndex index;
+	private long generation;
 	private Connection connection;
+	private Layout layout;
+	private File historyDirectory;
 
 	public SubjectStore(File indexFile) throws IOException {
+		this(indexFile, Journal::from);
+	}
+
+	public SubjectStore(File indexFile, GroupCommitJournal.Policy policy) throws IOException {
+		this(indexFile, file -> Journal.from(file, policy));
+	}
+
+	public SubjectStore(File indexFile, Function<File, Journal> journal) throws IOException {
+		this(indexFile, journal, false);
+	}
+
+	private SubjectStore(File indexFile, Function<File, Journal> journal, boolean mapped) throws IOException {
 		this.indexFile = indexFile;
-		this.index = initIndex();
+		this.journal = journal.apply(journalFileOf(indexFile));
+		this.checkpointing = new Object();
+		this.index = initIndex(mapped);
 		this.connection = null;
+		this.layout = Layout.TablePerSubject;
+	}
+
+	public static SubjectStore mapped(File indexFile) throws IOException {
+		return mapped(indexFile, Journal::from);
+	}
+
+	public static SubjectStore mapped(File indexFile, Function<File, Journal> journal) throws IOException {
+		return new SubjectStore(indexFile, journal, true);
 	}
 
 	public Connection connection() {
@@ -27,11 +81,25 @@ public class SubjectStore {
 	}
 
 	public SubjectStore connection(Connection connection) {
+		return connection(connection, Layout.TablePerSubject);
+	}
+
+	public SubjectStore connection(Connection connection, Layout layout) {
 		this.connection = connection;
+		this.layout = layout;
 		tryDisableAutoCommit();
 		return this;
 	}
 
+	public File historyDirectory() {
+		return historyDirectory;
+	}
+
+	public SubjectStore historyDirectory(File directory) {
+		this.historyDirectory = directory;
+		return this;
+	}
+
 	public boolean has(String identifier) {
 		return index.has(identifier);
 	}
@@ -60,14 +128,48 @@ public class SubjectStore {
 		return historyOf(new Subject(identifier, index.context()));
 	}
 
-	@SuppressWarnings("ResultOfMethodCallIgnored")
 	public void seal() throws IOException {
-		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(indexFile))) {
-			index.dump(os);
-			journalFile().delete();
+		synchronized (checkpointing) {
+			long generation = ++this.generation;
+			try (SubjectIndex.Snapshot snapshot = index.snapshot(() -> rotate(generation))) {
+				write(indexFile, os -> {
+					snapshot.snapshot(os);
+					writeGeneration(os, generation);
+				});
+			}
+			segments().forEach(File::delete);
+			rotatedJournals().forEach(File::delete);
+		}
+	}
+
+	public void checkpoint() throws IOException {
+		synchronized (checkpointing) {
+			long generation = ++this.generation;
+			File changes = rotatedJournalOf(generation);
+			try (SubjectIndex.Snapshot snapshot = index.snapshot(() -> rotate(generation))) {
+				if (!changes.exists()) return;
+				write(segmentOf(generation), os -> snapshot.segment(Journal.read(changes), os));
+			}
+			Files.delete(changes.toPath());
+			if (segments().size() > MaxSegments) merge();
 		}
 	}
 
+	public Future<?> checkpointInBackground() {
+		return Checkpointer.submit(() -> {
+			checkpoint();
+			return null;
+		});
+	}
+
+	public void sync() {
+		journal.sync();
+	}
+
+	public SubjectIndex.Snapshot snapshot() {
+		return index.snapshot();
+	}
+
 	public SubjectIndex restore(Journal journal) {
 		return index.restore(journal);
 	}
@@ -76,6 +178,10 @@ public class SubjectStore {
 		return index.batch();
 	}
 
+	public SubjectIndex.Transaction transaction() {
+		return index.transaction();
+	}
+
 	public SubjectQuery query() {
 		return index.query();
 	}
@@ -85,8 +191,9 @@ public class SubjectStore {
 	}
 
 	public SubjectHistory historyOf(Subject subject) {
-		if (connection == null) throw new IllegalStateException("Historical database is not configured. Define store.connection(...) before using historyOf().");
-		return new SubjectHistory(subject.identifier(), connection);
+		if (historyDirectory != null) return new SubjectHistory(subject.identifier(), historyDirectory);
+		if (connection == null) throw new IllegalStateException("Historical database is not configured. Define store.connection(...) or store.historyDirectory(...) before using historyOf().");
+		return new SubjectHistory(subject.identifier(), connection, layout);
 	}
 
 	public Triples triples() {
@@ -94,22 +201,133 @@ public class SubjectStore {
 	}
 
 	@SuppressWarnings("ResultOfMethodCallIgnored")
-	private SubjectIndex initIndex() throws IOException {
+	private SubjectIndex initIndex(boolean mapped) throws IOException {
 		File journalFile = journalFile();
 		File recoverFile = new File(journalFile.getAbsolutePath() + ".recovering");
 		journalFile.renameTo(recoverFile);
-		try (InputStream is = inputStream()) {
-			SubjectIndex index = new SubjectIndex(journalFile).restore(new DumpTriples(is)).restore(new FileJournal(recoverFile));
-			recoverFile.delete();
-			return index;
+		SubjectIndex index = mapped && MappedSnapshot.supports(indexFile) ? new SubjectIndex(journal, MappedSnapshot.open(indexFile)) : load();
+		generation = generationOf(indexFile);
+		for (File segment : segments()) {
+			if (generationOf(segment.getName()) > generation) restore(index, segment);
+			else segment.delete();
+		}
+		List<File> replayed = new ArrayList<>();
+		for (File changes : rotatedJournals()) {
+			if (generationOf(changes.getName()) > generation) {
+				index.restore(Journal.read(changes));
+				replayed.add(changes);
+			}
+			else changes.delete();
+		}
+		generation = Math.max(generation, replayed.isEmpty() ? 0 : generationOf(replayed.getLast().getName()));
+		index.restore(Journal.read(recoverFile));
+		journal.sync();
+		replayed.forEach(File::delete);
+		recoverFile.delete();
+		return index;
+	}
+
+	private void restore(SubjectIndex index, File segment) throws IOException {
+		try (Segment changes = new Segment(new FileInputStream(segment))) {
+			index.restore(changes);
 		}
+		generation = generationOf(segment.getName());
 	}
 
-	private InputStream inputStream() throws FileNotFoundException {
-		return indexFile.exists() ? new BufferedInputStream(new FileInputStream(indexFile)) : new ByteArrayInputStream(new byte[0]);
+	private void rotate(long generation) {
+		try {
+			journal.sync();
+			File journalFile = journalFile();
+			if (journalFile.exists()) Files.move(journalFile.toPath(), rotatedJournalOf(generation).toPath(), ATOMIC_MOVE);
+			journal.clear();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void merge() throws IOException {
+		List<File> segments = segments();
+		File merged = segmentOf(++generation);
+		List<Segment> merging = new ArrayList<>();
+		try {
+			for (File segment : segments) merging.add(new Segment(new FileInputStream(segment)));
+			write(merged, os -> Segment.merge(merging, os));
+		} finally {
+			for (Segment segment : merging) segment.close();
+		}
+		segments.forEach(File::delete);
+	}
+
+	private static void write(File file, Content content) throws IOException {
+		File temporary = new File(file.getAbsolutePath() + ".sealing");
+		try (FileOutputStream fos = new FileOutputStream(temporary)) {
+			OutputStream os = new BufferedOutputStream(fos);
+			content.writeTo(os);
+			os.flush();
+			fos.getFD().sync();
+		}
+		Files.move(temporary.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+	}
+
+	private static void writeGeneration(OutputStream os, long generation) throws IOException {
+		DataOutputStream out = new DataOutputStream(os);
+		out.write(GenerationMagic);
+		out.writeLong(generation);
+		out.flush();
+	}
+
+	private static long generationOf(File indexFile) throws IOException {
+		if (!BinarySnapshot.isSnapshot(indexFile)) return 0;
+		try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+			if (file.length() < GenerationMagic.length + Long.BYTES) return 0;
+			file.seek(file.length() - GenerationMagic.length - Long.BYTES);
+			byte[] magic = new byte[GenerationMagic.length];
+			file.readFully(magic);
+			return Arrays.equals(magic, GenerationMagic) ? file.readLong() : 0;
+		}
+	}
+
+	private static long generationOf(String name) {
+		Matcher matcher = Generation.matcher(name);
+		return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+	}
+
+	private List<File> segments() {
+		return filesOf(indexFile.getName() + ".segment.");
+	}
+
+	private List<File> rotatedJournals() {
+		return filesOf(journalFile().getName() + ".");
+	}
+
+	private List<File> filesOf(String prefix) {
+		File[] files = indexFile.getAbsoluteFile().getParentFile().listFiles((dir, name) -> name.startsWith(prefix) && name.substring(prefix.length()).matches("\\d+"));
+		if (files == null) return List.of();
+		return Arrays.stream(files).sorted(Comparator.comparingLong(f -> generationOf(f.getName()))).toList();
+	}
+
+	private File segmentOf(long generation) {
+		return new File(indexFile.getAbsolutePath() + ".segment." + generation);
+	}
+
+	private File rotatedJournalOf(long generation) {
+		return new File(journalFile().getAbsolutePath() + "." + generation);
+	}
+
+	private SubjectIndex load() throws IOException {
+		SubjectIndex index = new SubjectIndex(journal);
+		if (!indexFile.exists()) return index;
+		if (!BinarySnapshot.isSnapshot(indexFile)) return index.restore(new ParallelDump(indexFile));
+		try (InputStream is = new BufferedInputStream(new FileInputStream(indexFile))) {
+			return index.restore(new BinarySnapshot(is));
+		}
 	}
 
 	private File journalFile() {
+		return journalFileOf(indexFile);
+	}
+
+	private static File journalFileOf(File indexFile) {
 		return new File(indexFile.getAbsolutePath() + ".journal");
 	}
 
@@ -122,7 +340,14 @@ public class SubjectStore {
 	}
 
 	public void close() throws Exception {
+		synchronized (checkpointing) {
+			if (journal instanceof AutoCloseable closeable) closeable.close();
+		}
 		if(connection != null && !connection.isClosed())
 			connection.close();
 	}
+
+	private interface Content {
+		void writeTo(OutputStream os) throws IOException;
+	}
 }
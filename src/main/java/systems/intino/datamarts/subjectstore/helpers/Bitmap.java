@@ -0,0 +1,506 @@
+package systems.intino.datamarts.subjectstore.helpers;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+public class Bitmap {
+	private static final Container[] NoContainers = new Container[0];
+	private static final char[] NoKeys = new char[0];
+	private char[] keys;
+	private Container[] containers;
+	private int size;
+
+	public Bitmap() {
+		this.keys = NoKeys;
+		this.containers = NoContainers;
+	}
+
+	private Bitmap(char[] keys, Container[] containers, int size) {
+		this.keys = keys;
+		this.containers = containers;
+		this.size = size;
+	}
+
+	public static Bitmap of(int... values) {
+		Bitmap bitmap = new Bitmap();
+		for (int value : values) bitmap.add(value);
+		return bitmap;
+	}
+
+	public static Bitmap of(Collection<Integer> values) {
+		Bitmap bitmap = new Bitmap();
+		for (int value : values) bitmap.add(value);
+		return bitmap;
+	}
+
+	public static Bitmap range(int from, int to) {
+		Bitmap bitmap = new Bitmap();
+		for (int i = from; i < to; i++) bitmap.add(i);
+		return bitmap;
+	}
+
+	public boolean contains(int value) {
+		int i = indexOf(high(value));
+		return i >= 0 && containers[i].contains(low(value));
+	}
+
+	public boolean add(int value) {
+		char high = high(value);
+		int i = indexOf(high);
+		if (i < 0) {
+			i = -i - 1;
+			insert(i, high, new ArrayContainer());
+		}
+		int cardinality = containers[i].cardinality();
+		containers[i] = containers[i].add(low(value));
+		return containers[i].cardinality() > cardinality;
+	}
+
+	public boolean remove(int value) {
+		int i = indexOf(high(value));
+		if (i < 0) return false;
+		int cardinality = containers[i].cardinality();
+		containers[i] = containers[i].remove(low(value));
+		if (containers[i].cardinality() == 0) delete(i);
+		else if (containers[i].cardinality() == cardinality) return false;
+		return true;
+	}
+
+	public int cardinality() {
+		int result = 0;
+		for (int i = 0; i < size; i++) result += containers[i].cardinality();
+		return result;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int first() {
+		if (size == 0) throw new NoSuchElementException();
+		return containers[0].first() | keys[0] << 16;
+	}
+
+	public void forEach(IntConsumer consumer) {
+		for (int i = 0; i < size; i++)
+			containers[i].forEach(keys[i] << 16, consumer);
+	}
+
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+			int container = 0;
+			PrimitiveIterator.OfInt values = size > 0 ? containers[0].iterator() : IntStream.empty().iterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!values.hasNext() && ++container < size) values = containers[container].iterator();
+				return values.hasNext();
+			}
+
+			@Override
+			public int nextInt() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return values.nextInt() | keys[container] << 16;
+			}
+		};
+	}
+
+	public IntStream stream() {
+		Spliterator.OfInt spliterator = Spliterators.spliterator(iterator(), cardinality(), Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
+		return StreamSupport.intStream(spliterator, false);
+	}
+
+	public List<Integer> toList() {
+		List<Integer> result = new ArrayList<>(cardinality());
+		forEach(result::add);
+		return result;
+	}
+
+	public Bitmap copy() {
+		Container[] copies = new Container[size];
+		for (int i = 0; i < size; i++) copies[i] = containers[i].copy();
+		return new Bitmap(Arrays.copyOf(keys, size), copies, size);
+	}
+
+	public static Bitmap and(Bitmap a, Bitmap b) {
+		Bitmap result = new Bitmap(new char[Math.min(a.size, b.size)], new Container[Math.min(a.size, b.size)], 0);
+		int i = 0, j = 0;
+		while (i < a.size && j < b.size) {
+			if (a.keys[i] < b.keys[j]) i++;
+			else if (a.keys[i] > b.keys[j]) j++;
+			else {
+				Container container = a.containers[i++].and(b.containers[j++]);
+				if (container.cardinality() > 0) result.append(a.keys[i - 1], container);
+			}
+		}
+		return result;
+	}
+
+	public static Bitmap or(Bitmap a, Bitmap b) {
+		Bitmap result = new Bitmap(new char[a.size + b.size], new Container[a.size + b.size], 0);
+		int i = 0, j = 0;
+		while (i < a.size || j < b.size) {
+			if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) result.append(a.keys[i], a.containers[i++].copy());
+			else if (i == a.size || a.keys[i] > b.keys[j]) result.append(b.keys[j], b.containers[j++].copy());
+			else result.append(a.keys[i], a.containers[i++].or(b.containers[j++]));
+		}
+		return result;
+	}
+
+	public static Bitmap or(List<Bitmap> bitmaps) {
+		if (bitmaps.isEmpty()) return new Bitmap();
+		if (bitmaps.size() == 1) return bitmaps.getFirst().copy();
+		List<Bitmap> result = new ArrayList<>(bitmaps);
+		while (result.size() > 1) {
+			List<Bitmap> next = new ArrayList<>((result.size() + 1) / 2);
+			for (int i = 0; i < result.size(); i += 2)
+				next.add(i + 1 < result.size() ? or(result.get(i), result.get(i + 1)) : result.get(i));
+			result = next;
+		}
+		return result.getFirst();
+	}
+
+	public static Bitmap andNot(Bitmap a, Bitmap b) {
+		Bitmap result = new Bitmap(new char[a.size], new Container[a.size], 0);
+		int j = 0;
+		for (int i = 0; i < a.size; i++) {
+			while (j < b.size && b.keys[j] < a.keys[i]) j++;
+			Container container = j < b.size && b.keys[j] == a.keys[i] ? a.containers[i].andNot(b.containers[j]) : a.containers[i].copy();
+			if (container.cardinality() > 0) result.append(a.keys[i], container);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Bitmap bitmap) || bitmap.size != size) return false;
+		for (int i = 0; i < size; i++)
+			if (keys[i] != bitmap.keys[i] || !Arrays.equals(containers[i].toArray(), bitmap.containers[i].toArray())) return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 1;
+		for (int i = 0; i < size; i++) result = 31 * result + keys[i] * 31 + Arrays.hashCode(containers[i].toArray());
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return toList().toString();
+	}
+
+	private int indexOf(char high) {
+		if (size > 0 && keys[size - 1] == high) return size - 1;
+		return Arrays.binarySearch(keys, 0, size, high);
+	}
+
+	private void append(char key, Container container) {
+		keys[size] = key;
+		containers[size++] = container;
+	}
+
+	private void insert(int i, char key, Container container) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, Math.max(1, size * 2));
+			containers = Arrays.copyOf(containers, Math.max(1, size * 2));
+		}
+		System.arraycopy(keys, i, keys, i + 1, size - i);
+		System.arraycopy(containers, i, containers, i + 1, size - i);
+		keys[i] = key;
+		containers[i] = container;
+		size++;
+	}
+
+	private void delete(int i) {
+		System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+		System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+		containers[--size] = null;
+	}
+
+	private static char high(int value) {
+		return (char) (value >>> 16);
+	}
+
+	private static char low(int value) {
+		return (char) value;
+	}
+
+	private interface Container {
+		int cardinality();
+		boolean contains(char value);
+		Container add(char value);
+		Container remove(char value);
+		Container and(Container container);
+		Container or(Container container);
+		Container andNot(Container container);
+		char first();
+		void forEach(int base, IntConsumer consumer);
+		PrimitiveIterator.OfInt iterator();
+		char[] toArray();
+		Container copy();
+	}
+
+	private static final class ArrayContainer implements Container {
+		private static final int MaxSize = 4096;
+		private char[] values;
+		private int cardinality;
+
+		ArrayContainer() {
+			this(new char[2], 0);
+		}
+
+		ArrayContainer(char[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		public int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		public boolean contains(char value) {
+			return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+		}
+
+		@Override
+		public Container add(char value) {
+			int i = cardinality > 0 && values[cardinality - 1] < value ? -cardinality - 1 : Arrays.binarySearch(values, 0, cardinality, value);
+			if (i >= 0) return this;
+			if (cardinality == MaxSize) return BitsetContainer.of(this).add(value);
+			i = -i - 1;
+			if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(MaxSize, Math.max(2, cardinality * 2)));
+			System.arraycopy(values, i, values, i + 1, cardinality - i);
+			values[i] = value;
+			cardinality++;
+			return this;
+		}
+
+		@Override
+		public Container remove(char value) {
+			int i = Arrays.binarySearch(values, 0, cardinality, value);
+			if (i < 0) return this;
+			System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+			cardinality--;
+			return this;
+		}
+
+		@Override
+		public Container and(Container container) {
+			char[] result = new char[cardinality];
+			int count = 0;
+			for (int i = 0; i < cardinality; i++)
+				if (container.contains(values[i])) result[count++] = values[i];
+			return new ArrayContainer(result, count);
+		}
+
+		@Override
+		public Container or(Container container) {
+			if (container instanceof BitsetContainer) return container.or(this);
+			ArrayContainer other = (ArrayContainer) container;
+			if (cardinality + other.cardinality > MaxSize) return BitsetContainer.of(this).or(other);
+			char[] result = new char[cardinality + other.cardinality];
+			int i = 0, j = 0, count = 0;
+			while (i < cardinality || j < other.cardinality) {
+				if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) result[count++] = values[i++];
+				else if (i == cardinality || values[i] > other.values[j]) result[count++] = other.values[j++];
+				else {
+					result[count++] = values[i++];
+					j++;
+				}
+			}
+			return new ArrayContainer(result, count);
+		}
+
+		@Override
+		public Container andNot(Container container) {
+			char[] result = new char[cardinality];
+			int count = 0;
+			for (int i = 0; i < cardinality; i++)
+				if (!container.contains(values[i])) result[count++] = values[i];
+			return new ArrayContainer(result, count);
+		}
+
+		@Override
+		public char first() {
+			return values[0];
+		}
+
+		@Override
+		public void forEach(int base, IntConsumer consumer) {
+			for (int i = 0; i < cardinality; i++) consumer.accept(base | values[i]);
+		}
+
+		@Override
+		public PrimitiveIterator.OfInt iterator() {
+			return new PrimitiveIterator.OfInt() {
+				int i = 0;
+
+				@Override
+				public boolean hasNext() {
+					return i < cardinality;
+				}
+
+				@Override
+				public int nextInt() {
+					return values[i++];
+				}
+			};
+		}
+
+		@Override
+		public char[] toArray() {
+			return Arrays.copyOf(values, cardinality);
+		}
+
+		@Override
+		public Container copy() {
+			return new ArrayContainer(toArray(), cardinality);
+		}
+	}
+
+	private static final class BitsetContainer implements Container {
+		private final long[] words;
+		private int cardinality;
+
+		BitsetContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		static BitsetContainer of(ArrayContainer container) {
+			BitsetContainer result = new BitsetContainer(new long[1024], 0);
+			for (int i = 0; i < container.cardinality; i++) result.add(container.values[i]);
+			return result;
+		}
+
+		@Override
+		public int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		public boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		public Container add(char value) {
+			long word = words[value >>> 6];
+			words[value >>> 6] = word | (1L << value);
+			if (word != words[value >>> 6]) cardinality++;
+			return this;
+		}
+
+		@Override
+		public Container remove(char value) {
+			long word = words[value >>> 6];
+			words[value >>> 6] = word & ~(1L << value);
+			if (word == words[value >>> 6]) return this;
+			cardinality--;
+			return cardinality <= ArrayContainer.MaxSize ? toArrayContainer() : this;
+		}
+
+		@Override
+		public Container and(Container container) {
+			if (container instanceof ArrayContainer) return container.and(this);
+			long[] result = new long[1024];
+			long[] other = ((BitsetContainer) container).words;
+			for (int i = 0; i < 1024; i++) result[i] = words[i] & other[i];
+			return compact(result);
+		}
+
+		@Override
+		public Container or(Container container) {
+			if (container instanceof ArrayContainer array) {
+				BitsetContainer result = (BitsetContainer) copy();
+				for (int i = 0; i < array.cardinality; i++) result.add(array.values[i]);
+				return result;
+			}
+			long[] result = new long[1024];
+			long[] other = ((BitsetContainer) container).words;
+			for (int i = 0; i < 1024; i++) result[i] = words[i] | other[i];
+			return new BitsetContainer(result, count(result));
+		}
+
+		@Override
+		public Container andNot(Container container) {
+			long[] result = words.clone();
+			if (container instanceof ArrayContainer array)
+				for (int i = 0; i < array.cardinality; i++) result[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+			else {
+				long[] other = ((BitsetContainer) container).words;
+				for (int i = 0; i < 1024; i++) result[i] &= ~other[i];
+			}
+			return compact(result);
+		}
+
+		@Override
+		public char first() {
+			for (int i = 0; ; i++)
+				if (words[i] != 0) return (char) (i * 64 + Long.numberOfTrailingZeros(words[i]));
+		}
+
+		@Override
+		public void forEach(int base, IntConsumer consumer) {
+			for (int i = 0; i < 1024; i++)
+				for (long word = words[i]; word != 0; word &= word - 1)
+					consumer.accept(base | (i * 64 + Long.numberOfTrailingZeros(word)));
+		}
+
+		@Override
+		public PrimitiveIterator.OfInt iterator() {
+			return new PrimitiveIterator.OfInt() {
+				int i = 0;
+				long word = words[0];
+
+				@Override
+				public boolean hasNext() {
+					while (word == 0 && ++i < 1024) word = words[i];
+					return word != 0;
+				}
+
+				@Override
+				public int nextInt() {
+					hasNext();
+					int value = i * 64 + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+					return value;
+				}
+			};
+		}
+
+		@Override
+		public char[] toArray() {
+			char[] result = new char[cardinality];
+			int[] count = {0};
+			forEach(0, v -> result[count[0]++] = (char) v);
+			return result;
+		}
+
+		@Override
+		public Container copy() {
+			return new BitsetContainer(words.clone(), cardinality);
+		}
+
+		private ArrayContainer toArrayContainer() {
+			return new ArrayContainer(toArray(), cardinality);
+		}
+
+		private static Container compact(long[] words) {
+			BitsetContainer result = new BitsetContainer(words, count(words));
+			return result.cardinality <= ArrayContainer.MaxSize ? result.toArrayContainer() : result;
+		}
+
+		private static int count(long[] words) {
+			int result = 0;
+			for (long word : words) result += Long.bitCount(word);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package systems.intino.datamarts.subjectstore.helpers;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class MappedDictionary {
+	private final MappedFile file;
+	private final int size;
+	private final long offsets;
+	private final long blob;
+
+	public MappedDictionary(MappedFile file, long position) {
+		this.file = file;
+		this.size = file.getInt(position);
+		this.offsets = position + Integer.BYTES;
+		this.blob = offsets + (long) Long.BYTES * (size + 1);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long end() {
+		return blob + offsetOf(size);
+	}
+
+	public String get(int id) {
+		long start = offsetOf(id);
+		byte[] bytes = new byte[(int) (offsetOf(id + 1) - start)];
+		file.get(blob + start, bytes, bytes.length);
+		return new String(bytes, UTF_8);
+	}
+
+	public int find(String value) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comparison = get(mid).compareTo(value);
+			if (comparison < 0) low = mid + 1;
+			else if (comparison > 0) high = mid - 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	private long offsetOf(int id) {
+		return file.getLong(offsets + (long) Long.BYTES * id);
+	}
+}
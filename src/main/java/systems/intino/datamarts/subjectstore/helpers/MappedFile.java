@@ -0,0 +1,66 @@
+package systems.intino.datamarts.subjectstore.helpers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+public class MappedFile {
+	private static final int ChunkBits = 30;
+	private static final long ChunkSize = 1L << ChunkBits;
+	private final MappedByteBuffer[] chunks;
+	private final long size;
+
+	private MappedFile(MappedByteBuffer[] chunks, long size) {
+		this.chunks = chunks;
+		this.size = size;
+	}
+
+	public static MappedFile map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			long size = channel.size();
+			MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + ChunkSize - 1) >>> ChunkBits)];
+			for (int i = 0; i < chunks.length; i++) {
+				long position = (long) i << ChunkBits;
+				chunks[i] = channel.map(READ_ONLY, position, Math.min(ChunkSize, size - position));
+			}
+			return new MappedFile(chunks, size);
+		}
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public byte get(long position) {
+		return chunks[(int) (position >>> ChunkBits)].get((int) (position & (ChunkSize - 1)));
+	}
+
+	public int getInt(long position) {
+		int offset = (int) (position & (ChunkSize - 1));
+		if (offset <= ChunkSize - Integer.BYTES) return chunks[(int) (position >>> ChunkBits)].getInt(offset);
+		int value = 0;
+		for (int i = 0; i < Integer.BYTES; i++) value = value << 8 | get(position + i) & 0xFF;
+		return value;
+	}
+
+	public long getLong(long position) {
+		int offset = (int) (position & (ChunkSize - 1));
+		if (offset <= ChunkSize - Long.BYTES) return chunks[(int) (position >>> ChunkBits)].getLong(offset);
+		long value = 0;
+		for (int i = 0; i < Long.BYTES; i++) value = value << 8 | get(position + i) & 0xFF;
+		return value;
+	}
+
+	public void get(long position, byte[] bytes, int length) {
+		int offset = (int) (position & (ChunkSize - 1));
+		if (offset + length <= ChunkSize) {
+			chunks[(int) (position >>> ChunkBits)].get(offset, bytes, 0, length);
+			return;
+		}
+		for (int i = 0; i < length; i++) bytes[i] = get(position + i);
+	}
+}
@@ -0,0 +1,56 @@
+package systems.intino.datamarts.subjectstore.helpers;
+
+public class MappedPostings {
+	private final MappedFile file;
+	private final int size;
+	private final long offsets;
+	private final long ids;
+
+	public MappedPostings(MappedFile file, long position) {
+		this.file = file;
+		this.size = file.getInt(position);
+		this.offsets = position + Integer.BYTES;
+		this.ids = offsets + (long) Long.BYTES * (size + 1);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long end() {
+		return ids + (long) Integer.BYTES * offsetOf(size);
+	}
+
+	public int length(int row) {
+		return row >= 0 && row < size ? (int) (offsetOf(row + 1) - offsetOf(row)) : 0;
+	}
+
+	public boolean contains(int row, int value) {
+		if (row < 0 || row >= size) return false;
+		long low = offsetOf(row);
+		long high = offsetOf(row + 1) - 1;
+		while (low <= high) {
+			long mid = (low + high) >>> 1;
+			int id = idAt(mid);
+			if (id < value) low = mid + 1;
+			else if (id > value) high = mid - 1;
+			else return true;
+		}
+		return false;
+	}
+
+	public Bitmap bitmap(int row) {
+		Bitmap bitmap = new Bitmap();
+		if (row < 0 || row >= size) return bitmap;
+		for (long i = offsetOf(row), end = offsetOf(row + 1); i < end; i++) bitmap.add(idAt(i));
+		return bitmap;
+	}
+
+	private int idAt(long index) {
+		return file.getInt(ids + (long) Integer.BYTES * index);
+	}
+
+	private long offsetOf(int row) {
+		return file.getLong(offsets + (long) Long.BYTES * row);
+	}
+}
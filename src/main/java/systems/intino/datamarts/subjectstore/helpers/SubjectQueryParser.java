@@ -1,6 +1,6 @@
 package systems.intino.datamarts.subjectstore.helpers;
 
-import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.ReadOnlySubjectIndex;
 import systems.intino.datamarts.subjectstore.SubjectQuery;
 import systems.intino.datamarts.subjectstore.SubjectQuery.OrderType;
 
@@ -11,7 +11,7 @@ public class SubjectQueryParser {
 	private final SubjectQuery query;
 	private final Map<String, Consumer<String>> mappings;
 
-	public SubjectQueryParser(SubjectIndex index) {
+	public SubjectQueryParser(ReadOnlySubjectIndex index) {
 		this.query = index.query();
 		this.mappings = createMappings();
 	}
@@ -0,0 +1,32 @@
+package systems.intino.datamarts.subjectstore.helpers;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class Versions<T> {
+	private final List<WeakReference<T>> versions;
+
+	public Versions() {
+		this.versions = new CopyOnWriteArrayList<>();
+	}
+
+	public T add(T version) {
+		versions.add(new WeakReference<>(version));
+		return version;
+	}
+
+	public void remove(T version) {
+		versions.removeIf(reference -> reference.get() == null || reference.get() == version);
+	}
+
+	public void forEach(Consumer<T> consumer) {
+		if (versions.isEmpty()) return;
+		for (WeakReference<T> reference : versions) {
+			T version = reference.get();
+			if (version != null) consumer.accept(version);
+			else versions.remove(reference);
+		}
+	}
+}
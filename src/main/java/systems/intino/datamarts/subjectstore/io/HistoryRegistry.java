@@ -1,6 +1,7 @@
 package systems.intino.datamarts.subjectstore.io;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.stream.Stream;
 
 public interface HistoryRegistry extends AutoCloseable {
@@ -25,6 +26,24 @@ public interface HistoryRegistry extends AutoCloseable {
 
 	Stream<Row> getTexts(int tag, int from, int to);
 
+	default boolean summarizes() { return false; }
+
+	default Stream<Row> summarize(int tag, int[] bounds, boolean edges) {
+		throw new UnsupportedOperationException("Summaries are not supported by " + getClass().getSimpleName());
+	}
+
+	default boolean rollsUp() { return false; }
+
+	default boolean hasRollups() { return false; }
+
+	default void enableRollups() {
+		throw new UnsupportedOperationException("Rollups are not supported by " + getClass().getSimpleName());
+	}
+
+	default Stream<Row> rollups(int tag, Resolution resolution, long from, long to) {
+		throw new UnsupportedOperationException("Rollups are not supported by " + getClass().getSimpleName());
+	}
+
 	void setTag(int id, String label);
 
 	void setTagLastFeed(int id, int feed);
@@ -39,6 +58,25 @@ public interface HistoryRegistry extends AutoCloseable {
 
 	Stream<Row> dump();
 
+	enum Resolution {
+		Month, Day, Hour;
+
+		private static final long HourMillis = 3_600_000L;
+		private static final long DayMillis = 86_400_000L;
+
+		public long bucketOf(long millis) {
+			return switch (this) {
+				case Hour -> millis - Math.floorMod(millis, HourMillis);
+				case Day -> millis - Math.floorMod(millis, DayMillis);
+				case Month -> LocalDate.ofEpochDay(Math.floorDiv(millis, DayMillis)).withDayOfMonth(1).toEpochDay() * DayMillis;
+			};
+		}
+
+		public boolean isAligned(Instant instant) {
+			return instant.getNano() % 1_000_000 == 0 && bucketOf(instant.toEpochMilli()) == instant.toEpochMilli();
+		}
+	}
+
 	interface Row {
 		Data at(int index);
 
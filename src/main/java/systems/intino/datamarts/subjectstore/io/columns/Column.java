@@ -0,0 +1,118 @@
+package systems.intino.datamarts.subjectstore.io.columns;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.*;
+
+class Column {
+	static final int RecordSize = 16;
+	private static final int SegmentRecords = 1 << 16;
+	private final File file;
+	private final List<MappedByteBuffer> segments;
+	private ByteBuffer pending;
+	private long length;
+	private boolean synced;
+
+	Column(File file, long length) {
+		this.file = file;
+		this.length = length;
+		this.segments = new ArrayList<>();
+		this.pending = ByteBuffer.allocate(RecordSize * 64);
+		this.synced = true;
+	}
+
+	long length() {
+		return length;
+	}
+
+	int size() {
+		return (int) (length / RecordSize);
+	}
+
+	void add(int feed, int code, double value) {
+		if (pending.remaining() < RecordSize) pending = grow(pending);
+		pending.putInt(feed).putInt(code).putDouble(value);
+	}
+
+	void flush() throws IOException {
+		if (pending.position() == 0) return;
+		pending.flip();
+		try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE)) {
+			channel.truncate(length);
+			channel.position(length);
+			while (pending.hasRemaining()) length += channel.write(pending);
+		}
+		pending.clear();
+		synced = false;
+	}
+
+	void sync() throws IOException {
+		flush();
+		if (synced) return;
+		try (FileChannel channel = FileChannel.open(file.toPath(), WRITE)) {
+			channel.force(false);
+		}
+		synced = true;
+	}
+
+	int feedAt(int index) {
+		return segmentOf(index).getInt(offsetOf(index));
+	}
+
+	int codeAt(int index) {
+		return segmentOf(index).getInt(offsetOf(index) + 4);
+	}
+
+	double valueAt(int index) {
+		return segmentOf(index).getDouble(offsetOf(index) + 8);
+	}
+
+	int indexOf(int feed) {
+		int index = lowerBound(feed);
+		return index < size() && feedAt(index) == feed ? index : -1;
+	}
+
+	int lowerBound(int feed) {
+		int lo = 0, hi = size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (feedAt(mid) < feed) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	private static int offsetOf(int index) {
+		return index % SegmentRecords * RecordSize;
+	}
+
+	private MappedByteBuffer segmentOf(int index) {
+		int segment = index / SegmentRecords;
+		while (segments.size() <= segment) segments.add(null);
+		MappedByteBuffer buffer = segments.get(segment);
+		long position = (long) segment * SegmentRecords * RecordSize;
+		long size = Math.min((long) SegmentRecords * RecordSize, length - position);
+		if (buffer == null || buffer.capacity() < size) segments.set(segment, buffer = map(position, size));
+		return buffer;
+	}
+
+	private MappedByteBuffer map(long position, long size) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			return channel.map(READ_ONLY, position, size);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static ByteBuffer grow(ByteBuffer buffer) {
+		ByteBuffer result = ByteBuffer.allocate(buffer.capacity() * 2);
+		return result.put(buffer.flip());
+	}
+}
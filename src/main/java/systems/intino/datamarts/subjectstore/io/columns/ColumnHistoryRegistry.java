@@ -0,0 +1,351 @@
+package systems.intino.datamarts.subjectstore.io.columns;
+
+import systems.intino.datamarts.subjectstore.io.HistoryRegistry;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+public class ColumnHistoryRegistry implements HistoryRegistry {
+	private static final byte[] Magic = {'S', 'H', 'C', '1'};
+	private final String identifier;
+	private final File directory;
+	private final Map<Integer, Tag> tags;
+	private Timestamps timestamps;
+	private int feedCount;
+	private int current;
+	private boolean changed;
+
+	public ColumnHistoryRegistry(File root, String identifier) {
+		this.identifier = identifier;
+		this.directory = new File(root, URLEncoder.encode(identifier, UTF_8));
+		this.tags = new TreeMap<>();
+		this.current = -1;
+		this.load();
+	}
+
+	@Override
+	public int size() {
+		return feedCount;
+	}
+
+	@Override
+	public Stream<Row> tags() {
+		return tags.values().stream().map(t -> row(value(t.id), value(t.label), value(t.lastFeed)));
+	}
+
+	@Override
+	public Stream<Row> instants() {
+		flush();
+		long[] millis = timestamps.millis().toLongArray();
+		return IntStream.range(0, millis.length).mapToObj(feed -> row(value(feed), value(millis[feed])));
+	}
+
+	@Override
+	public String ss(int feed) {
+		return getText(1, feed);
+	}
+
+	@Override
+	public double getNumber(int tag, int feed) {
+		flush();
+		if (tag == 0) return feed >= 0 && feed < feedCount ? timestamps.get(feed) : 0;
+		Tag t = tags.get(tag);
+		int index = t != null ? t.column.indexOf(feed) : -1;
+		return index >= 0 ? t.column.valueAt(index) : 0;
+	}
+
+	@Override
+	public String getText(int tag, int feed) {
+		flush();
+		if (tag == 0) return feed >= 0 && feed < feedCount ? labelOf(timestamps.get(feed)) : null;
+		Tag t = tags.get(tag);
+		int index = t != null ? t.column.indexOf(feed) : -1;
+		return index >= 0 ? t.dictionary.get(t.column.codeAt(index)) : null;
+	}
+
+	@Override
+	public Stream<Row> current() {
+		flush();
+		List<Row> rows = new ArrayList<>();
+		for (Tag t : tags.values()) {
+			int index = t.lastFeed >= 0 ? t.column.indexOf(t.lastFeed) : -1;
+			if (index >= 0) rows.add(row(value(t.lastFeed), value(t.id), value(t.column.valueAt(index)), text(t, index)));
+		}
+		return rows.stream();
+	}
+
+	@Override
+	public Stream<Row> getNumbers(int tag, int from, int to) {
+		flush();
+		Tag t = tags.get(tag);
+		if (t == null || tag == 0) return Stream.empty();
+		return IntStream.range(t.column.lowerBound(from), t.column.lowerBound(to + 1))
+				.mapToObj(i -> row(value(t.column.feedAt(i)), value(t.column.valueAt(i))));
+	}
+
+	@Override
+	public Stream<Row> getTexts(int tag, int from, int to) {
+		flush();
+		Tag t = tags.get(tag);
+		if (t == null || tag == 0) return Stream.empty();
+		return IntStream.range(t.column.lowerBound(from), t.column.lowerBound(to + 1))
+				.mapToObj(i -> row(value(t.column.feedAt(i)), text(t, i)));
+	}
+
+	@Override
+	public void setTag(int id, String label) {
+		tags.computeIfAbsent(id, i -> tagOf(i, label, -1, 0, 0));
+		changed = true;
+	}
+
+	@Override
+	public void setTagLastFeed(int id, int feed) {
+		Tag t = tags.get(id);
+		if (t == null) return;
+		t.lastFeed = feed;
+		changed = true;
+	}
+
+	@Override
+	public int nextFeed() {
+		if (!directory.exists() && !directory.mkdirs()) throw new RuntimeException("Cannot create " + directory);
+		current = feedCount++;
+		changed = true;
+		return current;
+	}
+
+	@Override
+	public void put(int tag, Object value) {
+		if (current < 0) return;
+		if (tag == 0 && value instanceof Instant instant) {
+			timestamps.add(instant.toEpochMilli());
+			return;
+		}
+		Tag t = tags.computeIfAbsent(tag, id -> tagOf(id, String.valueOf(id), -1, 0, 0));
+		if (value instanceof Number number) t.column.add(current, -1, number.doubleValue());
+		else if (value instanceof Instant instant) t.column.add(current, t.dictionary.codeOf(labelOf(instant.toEpochMilli())), instant.toEpochMilli());
+		else t.column.add(current, t.dictionary.codeOf(value.toString()), 0);
+	}
+
+	@Override
+	public void commit() {
+		current = -1;
+		if (!changed) {
+			flush();
+			return;
+		}
+		sync();
+		writeManifest();
+		changed = false;
+	}
+
+	@Override
+	public void drop() {
+		File[] files = directory.listFiles();
+		if (files != null) Arrays.stream(files).forEach(File::delete);
+		directory.delete();
+		tags.clear();
+		current = -1;
+		changed = false;
+		init();
+	}
+
+	@Override
+	public Stream<Row> dump() {
+		flush();
+		long[] millis = timestamps.millis().toLongArray();
+		List<Tag> columns = tags.values().stream().filter(t -> t.id > 0).toList();
+		int[] cursors = new int[columns.size()];
+		return IntStream.range(0, millis.length).boxed().flatMap(feed -> {
+			List<Row> rows = new ArrayList<>();
+			rows.add(row(value(feed), value(0), value(millis[feed]), value(labelOf(millis[feed]))));
+			for (int c = 0; c < columns.size(); c++) {
+				Tag t = columns.get(c);
+				for (; cursors[c] < t.column.size() && t.column.feedAt(cursors[c]) == feed; cursors[c]++)
+					rows.add(row(value(feed), value(t.id), value(t.column.valueAt(cursors[c])), text(t, cursors[c])));
+			}
+			return rows.stream();
+		});
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public String toString() {
+		return identifier;
+	}
+
+	private void flush() {
+		try {
+			timestamps.flush();
+			for (Tag t : tags.values()) t.flush();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void sync() {
+		try {
+			timestamps.sync();
+			for (Tag t : tags.values()) t.sync();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void load() {
+		File manifest = new File(directory, "manifest");
+		if (!manifest.exists()) {
+			init();
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)))) {
+			if (!Arrays.equals(in.readNBytes(Magic.length), Magic)) throw new IOException("Not a history manifest: " + manifest);
+			feedCount = in.readInt();
+			timestamps = new Timestamps(new File(directory, "ts"), in.readLong(), in.readLong());
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				Tag tag = tagOf(in.readInt(), in.readUTF(), in.readInt(), in.readLong(), in.readLong());
+				tags.put(tag.id, tag);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void init() {
+		feedCount = 0;
+		timestamps = new Timestamps(new File(directory, "ts"), 0, 0);
+		tags.put(0, tagOf(0, "ts", -1, 0, 0));
+		tags.put(1, tagOf(1, "ss", -1, 0, 0));
+	}
+
+	private void writeManifest() {
+		File manifest = new File(directory, "manifest");
+		File temporary = new File(directory, "manifest.tmp");
+		try (FileOutputStream os = new FileOutputStream(temporary); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+			out.write(Magic);
+			out.writeInt(feedCount);
+			out.writeLong(timestamps.length());
+			out.writeLong(timestamps.last());
+			out.writeInt(tags.size());
+			for (Tag t : tags.values()) {
+				out.writeInt(t.id);
+				out.writeUTF(t.label);
+				out.writeInt(t.lastFeed);
+				out.writeLong(t.column.length());
+				out.writeLong(t.dictionary.length());
+			}
+			out.flush();
+			os.getFD().sync();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		try {
+			Files.move(temporary.toPath(), manifest.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+			syncDirectory();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void syncDirectory() {
+		try (FileChannel channel = FileChannel.open(directory.toPath(), READ)) {
+			channel.force(true);
+		} catch (IOException ignored) {
+			// not every platform can open a directory for syncing
+		}
+	}
+
+	private Tag tagOf(int id, String label, int lastFeed, long columnLength, long dictionaryLength) {
+		return new Tag(id, label, lastFeed,
+				new Column(new File(directory, id + ".col"), columnLength),
+				new Dictionary(new File(directory, id + ".dict"), dictionaryLength));
+	}
+
+	private static String labelOf(long millis) {
+		return Instant.ofEpochMilli(millis).toString().substring(0, 19).replace('T', ' ');
+	}
+
+	private static Value text(Tag tag, int index) {
+		return value(tag.dictionary.get(tag.column.codeAt(index)));
+	}
+
+	private static Value value(double number) {
+		return new Value(number, null);
+	}
+
+	private static Value value(String text) {
+		return new Value(Double.NaN, text);
+	}
+
+	private static Row row(Value... values) {
+		return index -> values[index - 1];
+	}
+
+	private record Value(double number, String text) implements Row.Data {
+		@Override
+		public int asInt() {
+			return (int) number;
+		}
+
+		@Override
+		public long asLong() {
+			return (long) number;
+		}
+
+		@Override
+		public double asDouble() {
+			return number;
+		}
+
+		@Override
+		public Instant asInstant() {
+			return Instant.ofEpochMilli(asLong());
+		}
+
+		@Override
+		public String asString() {
+			return text;
+		}
+	}
+
+	private static class Tag {
+		final int id;
+		final String label;
+		final Column column;
+		final Dictionary dictionary;
+		int lastFeed;
+
+		Tag(int id, String label, int lastFeed, Column column, Dictionary dictionary) {
+			this.id = id;
+			this.label = label;
+			this.lastFeed = lastFeed;
+			this.column = column;
+			this.dictionary = dictionary;
+		}
+
+		void flush() throws IOException {
+			dictionary.flush();
+			column.flush();
+		}
+
+		void sync() throws IOException {
+			dictionary.sync();
+			column.sync();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package systems.intino.datamarts.subjectstore.io.columns;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+
+class Dictionary {
+	private final File file;
+	private final List<String> values;
+	private final Map<String, Integer> codes;
+	private final ByteArrayOutputStream pending;
+	private boolean loaded;
+	private long length;
+	private boolean synced;
+
+	Dictionary(File file, long length) {
+		this.file = file;
+		this.length = length;
+		this.synced = true;
+		this.values = new ArrayList<>();
+		this.codes = new HashMap<>();
+		this.pending = new ByteArrayOutputStream();
+	}
+
+	long length() {
+		return length;
+	}
+
+	int codeOf(String value) {
+		load();
+		Integer code = codes.get(value);
+		if (code != null) return code;
+		code = values.size();
+		values.add(value);
+		codes.put(value, code);
+		write(value);
+		return code;
+	}
+
+	String get(int code) {
+		if (code < 0) return null;
+		load();
+		return values.get(code);
+	}
+
+	void flush() throws IOException {
+		if (pending.size() == 0) return;
+		try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE)) {
+			channel.truncate(length);
+			channel.position(length);
+			pending.writeTo(Channels.newOutputStream(channel));
+		}
+		length += pending.size();
+		pending.reset();
+		synced = false;
+	}
+
+	void sync() throws IOException {
+		flush();
+		if (synced) return;
+		try (FileChannel channel = FileChannel.open(file.toPath(), WRITE)) {
+			channel.force(false);
+		}
+		synced = true;
+	}
+
+	private void write(String value) {
+		byte[] bytes = value.getBytes(UTF_8);
+		pending.write(bytes.length >>> 24);
+		pending.write(bytes.length >>> 16);
+		pending.write(bytes.length >>> 8);
+		pending.write(bytes.length);
+		pending.write(bytes, 0, bytes.length);
+	}
+
+	private void load() {
+		if (loaded) return;
+		loaded = true;
+		if (length == 0) return;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(FileChannel.open(file.toPath(), READ)), 1 << 16))) {
+			for (long position = 0; position < length; ) {
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				String value = new String(bytes, UTF_8);
+				codes.put(value, values.size());
+				values.add(value);
+				position += Integer.BYTES + bytes.length;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package systems.intino.datamarts.subjectstore.io.columns;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import systems.intino.datamarts.subjectstore.helpers.MappedFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+class Timestamps {
+	private final File file;
+	private final ByteArrayOutputStream pending;
+	private LongArrayList millis;
+	private long length;
+	private boolean synced;
+	private long last;
+
+	Timestamps(File file, long length, long last) {
+		this.file = file;
+		this.length = length;
+		this.synced = true;
+		this.last = last;
+		this.pending = new ByteArrayOutputStream();
+	}
+
+	long length() {
+		return length;
+	}
+
+	long last() {
+		return last;
+	}
+
+	void add(long value) {
+		if (millis != null) millis.add(value);
+		long delta = value - last;
+		long zigzag = (delta << 1) ^ (delta >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			pending.write((int) (zigzag & 0x7F) | 0x80);
+			zigzag >>>= 7;
+		}
+		pending.write((int) zigzag);
+		last = value;
+	}
+
+	long get(int feed) {
+		return millis().getLong(feed);
+	}
+
+	LongArrayList millis() {
+		if (millis == null) millis = decode();
+		return millis;
+	}
+
+	void flush() throws IOException {
+		if (pending.size() == 0) return;
+		try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE)) {
+			channel.truncate(length);
+			channel.position(length);
+			pending.writeTo(Channels.newOutputStream(channel));
+		}
+		length += pending.size();
+		pending.reset();
+		synced = false;
+	}
+
+	void sync() throws IOException {
+		flush();
+		if (synced) return;
+		try (FileChannel channel = FileChannel.open(file.toPath(), WRITE)) {
+			channel.force(false);
+		}
+		synced = true;
+	}
+
+	private LongArrayList decode() {
+		try {
+			flush();
+			LongArrayList result = new LongArrayList();
+			MappedFile mapped = length > 0 ? MappedFile.map(file) : null;
+			long value = 0;
+			for (long position = 0; position < length; ) {
+				long zigzag = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = mapped.get(position++);
+					zigzag |= (long) (b & 0x7F) << shift;
+					shift += 7;
+				} while ((b & 0x80) != 0);
+				value += (zigzag >>> 1) ^ -(zigzag & 1);
+				result.add(value);
+			}
+			return result;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package systems.intino.datamarts.subjectstore.io.database;
+
+import systems.intino.datamarts.subjectstore.io.database.SqlStatementProvider.SqlDialect;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SqlCache implements AutoCloseable {
+	private static final int IdleSubjects = 64;
+	final Map<String, Integer> ids;
+	final Map<String, PreparedStatement> statements;
+	final Lock lock;
+	private final Map<Integer, SubjectStatements> subjects;
+	SqlDialect dialect;
+
+	public SqlCache() {
+		this.ids = new ConcurrentHashMap<>();
+		this.statements = new HashMap<>();
+		this.lock = new ReentrantLock();
+		this.subjects = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	Map<String, PreparedStatement> acquire(int subject) {
+		synchronized (subjects) {
+			SubjectStatements entry = subjects.computeIfAbsent(subject, s -> new SubjectStatements());
+			entry.users++;
+			return entry.statements;
+		}
+	}
+
+	void release(int subject) throws SQLException {
+		synchronized (subjects) {
+			SubjectStatements entry = subjects.get(subject);
+			if (entry != null && entry.users > 0) entry.users--;
+			evictIdle();
+		}
+	}
+
+	void forget(int subject) throws SQLException {
+		synchronized (subjects) {
+			SubjectStatements entry = subjects.remove(subject);
+			if (entry != null) close(entry.statements);
+		}
+	}
+
+	private void evictIdle() throws SQLException {
+		int idle = (int) subjects.values().stream().filter(e -> e.users == 0).count();
+		Iterator<SubjectStatements> iterator = subjects.values().iterator();
+		while (idle > IdleSubjects && iterator.hasNext()) {
+			SubjectStatements entry = iterator.next();
+			if (entry.users > 0) continue;
+			close(entry.statements);
+			iterator.remove();
+			idle--;
+		}
+	}
+
+	private static void close(Map<String, PreparedStatement> statements) throws SQLException {
+		synchronized (statements) {
+			for (PreparedStatement statement : statements.values()) statement.close();
+			statements.clear();
+		}
+	}
+
+	@Override
+	public void close() throws SQLException {
+		close(statements);
+		synchronized (subjects) {
+			for (SubjectStatements entry : subjects.values()) close(entry.statements);
+			subjects.clear();
+		}
+		ids.clear();
+	}
+
+	private static class SubjectStatements {
+		final Map<String, PreparedStatement> statements = new HashMap<>();
+		int users;
+	}
+}
@@ -0,0 +1,106 @@
+package systems.intino.datamarts.subjectstore.io.database;
+
+import systems.intino.datamarts.subjectstore.io.HistoryRegistry.Row;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+class SqlColumns {
+	private final double[][] numbers;
+	private final String[][] texts;
+	private final BitSet nulls;
+	private final int columns;
+	private int size;
+
+	private SqlColumns(int columns) {
+		this.numbers = new double[columns][16];
+		this.texts = new String[columns][];
+		this.nulls = new BitSet();
+		this.columns = columns;
+	}
+
+	static Stream<Row> copyOf(ResultSet rs) throws SQLException {
+		try (rs) {
+			SqlColumns result = new SqlColumns(rs.getMetaData().getColumnCount());
+			while (rs.next()) result.add(rs);
+			return IntStream.range(0, result.size).mapToObj(result::row);
+		}
+	}
+
+	private void add(ResultSet rs) throws SQLException {
+		if (size == numbers[0].length) grow();
+		for (int column = 0; column < columns; column++) {
+			Object value = rs.getObject(column + 1);
+			if (value == null) nulls.set(size * columns + column);
+			else if (value instanceof Number number) numbers[column][size] = number.doubleValue();
+			else textsOf(column)[size] = value.toString();
+		}
+		size++;
+	}
+
+	private void grow() {
+		for (int column = 0; column < columns; column++) {
+			numbers[column] = Arrays.copyOf(numbers[column], size * 2);
+			if (texts[column] != null) texts[column] = Arrays.copyOf(texts[column], size * 2);
+		}
+	}
+
+	private String[] textsOf(int column) {
+		if (texts[column] == null) texts[column] = new String[numbers[column].length];
+		return texts[column];
+	}
+
+	private Row row(int row) {
+		return index -> new Row.Data() {
+			private final int column = index - 1;
+
+			@Override
+			public int asInt() {
+				return (int) asLong();
+			}
+
+			@Override
+			public long asLong() {
+				String text = text();
+				return text != null ? (long) parse(text) : (long) numbers[column][row];
+			}
+
+			@Override
+			public double asDouble() {
+				String text = text();
+				return text != null ? parse(text) : numbers[column][row];
+			}
+
+			@Override
+			public Instant asInstant() {
+				return Instant.ofEpochMilli(asLong());
+			}
+
+			@Override
+			public String asString() {
+				if (nulls.get(row * columns + column)) return null;
+				String text = text();
+				if (text != null) return text;
+				double value = numbers[column][row];
+				return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+			}
+
+			private String text() {
+				return texts[column] != null ? texts[column][row] : null;
+			}
+		};
+	}
+
+	private static double parse(String text) {
+		try {
+			return Double.parseDouble(text);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package systems.intino.datamarts.subjectstore.io.database;
+
+import systems.intino.datamarts.subjectstore.io.database.SqlStatementProvider.Layout;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+public class SqlConnectionLanes implements AutoCloseable {
+	private final Connection[] connections;
+	private final SqlCache[] caches;
+	private final Layout layout;
+
+	public SqlConnectionLanes(String jdbcUrl, Layout layout, int lanes) {
+		this.connections = new Connection[Math.max(1, lanes)];
+		this.caches = new SqlCache[connections.length];
+		this.layout = layout;
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = connection(jdbcUrl);
+			caches[i] = new SqlCache();
+		}
+	}
+
+	public int lanes() {
+		return connections.length;
+	}
+
+	public int laneOf(String subject) {
+		return Math.floorMod(subject.hashCode(), connections.length);
+	}
+
+	public SqlHistoryRegistry registry(String subject) {
+		int i = laneOf(subject);
+		try {
+			return new SqlHistoryRegistry(subject, new SqlStatementProvider(connections[i], layout, caches[i]));
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static Connection connection(String jdbcUrl) {
+		try {
+			Connection connection = DriverManager.getConnection(jdbcUrl);
+			connection.setAutoCommit(false);
+			return connection;
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			for (SqlCache cache : caches) cache.close();
+			for (Connection connection : connections) connection.close();
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package systems.intino.datamarts.subjectstore.io.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static java.sql.Types.BIGINT;
+import static java.sql.Types.VARCHAR;
+
+public interface SqlEntryWriter {
+	int BatchSize = 1024;
+
+	static SqlEntryWriter batched(SqlStatements statements) {
+		return new SqlEntryWriter() {
+			private int pending;
+
+			@Override
+			public void add(int tag, int feed, double value) throws SQLException {
+				PreparedStatement statement = statements.get("insert-entry");
+				statement.setInt(1, tag);
+				statement.setInt(2, feed);
+				statement.setDouble(3, value);
+				statement.setNull(4, VARCHAR);
+				add(statement);
+			}
+
+			@Override
+			public void add(int tag, int feed, long value, String label) throws SQLException {
+				PreparedStatement statement = statements.get("insert-entry");
+				statement.setInt(1, tag);
+				statement.setInt(2, feed);
+				statement.setLong(3, value);
+				statement.setString(4, label);
+				add(statement);
+			}
+
+			@Override
+			public void add(int tag, int feed, String value) throws SQLException {
+				PreparedStatement statement = statements.get("insert-entry");
+				statement.setInt(1, tag);
+				statement.setInt(2, feed);
+				statement.setNull(3, BIGINT);
+				statement.setString(4, value);
+				add(statement);
+			}
+
+			@Override
+			public void flush() throws SQLException {
+				if (pending == 0) return;
+				statements.get("insert-entry").executeBatch();
+				pending = 0;
+			}
+
+			private void add(PreparedStatement statement) throws SQLException {
+				statement.addBatch();
+				if (++pending >= BatchSize) flush();
+			}
+		};
+	}
+
+	void add(int tag, int feed, double value) throws SQLException;
+
+	void add(int tag, int feed, long value, String label) throws SQLException;
+
+	void add(int tag, int feed, String value) throws SQLException;
+
+	void flush() throws SQLException;
+}
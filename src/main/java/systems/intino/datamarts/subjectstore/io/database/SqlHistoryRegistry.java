@@ -3,28 +3,54 @@ package systems.intino.datamarts.subjectstore.io.database;
 
 import systems.intino.datamarts.subjectstore.SubjectHistory.RegistryException;
 import systems.intino.datamarts.subjectstore.io.HistoryRegistry;
+import systems.intino.datamarts.subjectstore.io.database.SqlStatementProvider.Layout;
 
 import java.sql.*;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Stream;
 
 import static java.sql.Types.*;
 
 public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
-
 	private final String identifier;
 	private final Connection connection;
-	private final Map<String, PreparedStatement> statements;
+	private final SqlStatementProvider provider;
+	private final SqlStatements statements;
+	private final SqlEntryWriter entries;
+	private final Map<Integer, Integer> lastFeeds;
+	private final Lock lock;
+	private final boolean shared;
+	private SqlRollups rollups;
 	private int feedCount;
 	private int current;
+	private long time;
+	private int pendingTags;
 
 	public SqlHistoryRegistry(String identifier, Connection connection) {
+		this(identifier, connection, Layout.TablePerSubject);
+	}
+
+	public SqlHistoryRegistry(String identifier, Connection connection, Layout layout) {
+		this(identifier, providerOf(connection, layout));
+	}
+
+	public SqlHistoryRegistry(String identifier, SqlStatementProvider provider) {
+		this.identifier = identifier;
+		this.connection = provider.connection();
+		this.lock = provider.lock();
+		this.shared = provider.shared();
+		this.lastFeeds = new LinkedHashMap<>();
+		this.provider = locked(() -> provider.of(identifier));
+		this.statements = provider.statements();
+		this.entries = locked(() -> provider.entries(statements));
+		locked(this::readHeader);
+	}
+
+	private static SqlStatementProvider providerOf(Connection connection, Layout layout) {
 		try {
-			this.identifier = identifier;
-			this.connection = connection;
-			this.statements = new SqlStatementProvider(connection).of(identifier).statements();
-			this.feedCount = readFeedCount();
+			return new SqlStatementProvider(connection, layout);
 		} catch (SQLException e) {
 			throw new RuntimeException(e);
 		}
@@ -37,95 +63,132 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 
 	@Override
 	public Stream<Row> tags() {
-		try {
-			return streamOf(selectTags());
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+		return rowsOf(this::selectTags);
 	}
 
 	@Override
 	public Stream<Row> instants() {
-		try {
-			return streamOf(selectInstants());
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+		return rowsOf(this::selectInstants);
 	}
 
 	@Override
 	public String ss(int feed) {
-		try {
-			try (ResultSet select = selectTextValue(1, feed)) {
-				return select.next() ? select.getString(1) : null;
-			}
+		lock.lock();
+		try (ResultSet select = selectTextValue(1, feed)) {
+			return select.next() ? select.getString(1) : null;
 		} catch (SQLException e) {
 			throw new RegistryException(e);
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public double getNumber(int tag, int feed)  {
-		try (ResultSet select = selectDoubleValue(tag, feed)) {
-			return select.next() ? select.getDouble(1) : 0;
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+		return locked(() -> {
+			try (ResultSet select = selectDoubleValue(tag, feed)) {
+				return select.next() ? select.getDouble(1) : 0;
+			}
+		});
 	}
 
 	@Override
 	public String getText(int tag, int feed)  {
-		try (ResultSet select = selectTextValue(tag, feed)) {
-			return select.next() ? select.getString(1) : null;
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+		return locked(() -> {
+			try (ResultSet select = selectTextValue(tag, feed)) {
+				return select.next() ? select.getString(1) : null;
+			}
+		});
 	}
 
 	@Override
 	public Stream<Row> current() {
-		try {
-			return streamOf(selectLastValues());
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
-
+		return rowsOf(this::selectLastValues);
 	}
 
 	@Override
 	public Stream<Row> getNumbers(int tag, int from, int to) {
-		try {
-			return streamOf(selectDoubleValues(tag, from, to));
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+		return rowsOf(() -> selectDoubleValues(tag, from, to));
 	}
 
 	@Override
 	public Stream<Row> getTexts(int tag, int from, int to) {
-		try {
-			return streamOf(selectStringValues(tag, from, to));
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+		return rowsOf(() -> selectStringValues(tag, from, to));
+	}
+
+	@Override
+	public boolean summarizes() {
+		return true;
+	}
+
+	@Override
+	public Stream<Row> summarize(int tag, int[] bounds, boolean edges) {
+		if (bounds.length < 2) return Stream.empty();
+		return locked(() -> {
+			flush();
+			List<double[]> rows = new ArrayList<>();
+			try (Statement statement = connection.createStatement();
+				 ResultSet rs = statement.executeQuery(provider.summary(tag, bounds, edges))) {
+				int columns = rs.getMetaData().getColumnCount();
+				while (rs.next()) rows.add(valuesOf(rs, columns));
+			}
+			return rows.stream().map(SqlHistoryRegistry::read);
+		});
+	}
+
+	@Override
+	public boolean rollsUp() {
+		return true;
+	}
+
+	@Override
+	public boolean hasRollups() {
+		return rollups != null;
+	}
+
+	@Override
+	public void enableRollups() {
+		if (rollups != null) return;
+		locked(() -> {
+			flush();
+			provider.initRollups();
+			statements.get("enable-rollups").executeUpdate();
+			rollups = new SqlRollups(statements);
+			try (ResultSet rs = statements.get("select-numeric-facts").executeQuery()) {
+				while (rs.next()) rollups.add(rs.getInt(1), rs.getLong(2), rs.getDouble(3));
+			}
+			rollups.flush();
+			connection.commit();
+			return null;
+		});
+	}
+
+	@Override
+	public Stream<Row> rollups(int tag, Resolution resolution, long from, long to) {
+		if (rollups == null) return HistoryRegistry.super.rollups(tag, resolution, from, to);
+		return locked(() -> {
+			flush();
+			PreparedStatement statement = statements.get("select-rollups");
+			statement.setInt(1, tag);
+			statement.setInt(2, resolution.ordinal());
+			statement.setLong(3, from);
+			statement.setLong(4, to);
+			List<double[]> rows = new ArrayList<>();
+			try (ResultSet rs = statement.executeQuery()) {
+				while (rs.next()) rows.add(valuesOf(rs, 9));
+			}
+			return rows.stream().map(SqlHistoryRegistry::read);
+		});
 	}
 
 	@Override
 	public void setTag(int id, String label) {
-		try {
-			insertTag(id, label);
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+		locked(() -> insertTag(id, label));
 	}
 
 	@Override
 	public void setTagLastFeed(int id, int feed) {
-		try {
-			updateTag(id, feed);
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+		lastFeeds.put(id, feed);
 	}
 
 	@Override
@@ -137,51 +200,87 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 	@Override
 	public void put(int tag, Object o) {
 		if (current < 0) return;
-		try {
+		locked(() -> {
 			switch (type(o)) {
 				case NUMERIC -> insertEntry(tag, current, ((Number) o).doubleValue());
 				case DATE -> insertEntry(tag, current, ((Instant) o));
 				case VARCHAR -> insertEntry(tag, current, o.toString());
 			}
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void commit() {
-		try {
+		locked(() -> {
+			flush();
 			updateSize(feedCount);
 			current = -1;
 			connection.commit();
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public void drop() {
-		try {
-			statements.get("drop").execute();
+		locked(() -> {
+			if (rollups != null) statements.get("delete-rollups").executeUpdate();
+			provider.drop();
 			connection.commit();
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
+			return null;
+		});
 	}
 
 	@Override
 	public Stream<Row> dump() {
+		return rowsOf(this::selectAll).skip(1);
+	}
+
+	private <T> T locked(SqlAction<T> action) {
+		lock.lock();
 		try {
-			return streamOf(selectAll()).skip(1);
+			return action.run();
 		} catch (SQLException e) {
 			throw new RuntimeException(e);
+		} finally {
+			lock.unlock();
 		}
 	}
 
-	private static final int FEEDS = -1;
+	private void locked(SqlRunnable action) {
+		locked(() -> {
+			action.run();
+			return null;
+		});
+	}
 
-	private int readFeedCount() throws SQLException {
-		return (int) getNumber(FEEDS, FEEDS);
+	private void flush() throws SQLException {
+		if (pendingTags > 0) statements.get("insert-tag").executeBatch();
+		pendingTags = 0;
+		entries.flush();
+		if (rollups != null) rollups.flush();
+		if (lastFeeds.isEmpty()) return;
+		PreparedStatement statement = statements.get("update-tag-feed");
+		for (Map.Entry<Integer, Integer> entry : lastFeeds.entrySet()) {
+			statement.setInt(1, entry.getValue());
+			statement.setInt(2, entry.getKey());
+			statement.addBatch();
+		}
+		lastFeeds.clear();
+		statement.executeBatch();
+	}
+
+	private ResultSet query(String statement) throws SQLException {
+		flush();
+		return statements.get(statement).executeQuery();
+	}
+
+	private void readHeader() throws SQLException {
+		try (ResultSet rs = statements.get("select-header").executeQuery()) {
+			if (!rs.next()) return;
+			feedCount = rs.getInt(1);
+			if ("rollups".equals(rs.getString(2))) rollups = new SqlRollups(statements);
+		}
 	}
 
 	private int type(Object o) {
@@ -191,18 +290,19 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 	}
 
 	private ResultSet selectAll() throws SQLException {
-		return statements.get("select-all").executeQuery();
+		return query("select-all");
 	}
 
 	private ResultSet selectTags() throws SQLException {
-		return statements.get("select-tags").executeQuery();
+		return query("select-tags");
 	}
 
 	private ResultSet selectInstants() throws SQLException {
-		return statements.get("select-instants").executeQuery();
+		return query("select-instants");
 	}
 
 	private ResultSet selectDoubleValue(int tag, int feed) throws SQLException {
+		flush();
 		PreparedStatement statement = statements.get("select-double-value");
 		statement.setInt(1, tag);
 		statement.setInt(2, feed);
@@ -210,6 +310,7 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 	}
 
 	private ResultSet selectTextValue(int tag, int feed) throws SQLException {
+		flush();
 		PreparedStatement statement = statements.get("select-string-value");
 		statement.setInt(1, tag);
 		statement.setInt(2, feed);
@@ -217,6 +318,7 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 	}
 
 	private ResultSet selectDoubleValues(int tag, int from, int to) throws SQLException {
+		flush();
 		PreparedStatement statement = statements.get("select-double-values");
 		statement.setInt(1, tag);
 		statement.setInt(2, from);
@@ -225,6 +327,7 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 	}
 
 	private ResultSet selectStringValues(int tag, int from, int to) throws SQLException {
+		flush();
 		PreparedStatement statement = statements.get("select-string-values");
 		statement.setInt(1, tag);
 		statement.setInt(2, from);
@@ -233,42 +336,29 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 	}
 
 	private ResultSet selectLastValues() throws SQLException {
-		PreparedStatement statement = statements.get("select-last-values");
-		return statement.executeQuery();
+		return query("select-last-values");
 	}
 
 	private void insertTag(int id, String tag) throws SQLException {
 		PreparedStatement statement = statements.get("insert-tag");
 		statement.setInt(1, id);
 		statement.setString(2, tag);
-		statement.execute();
+		statement.addBatch();
+		pendingTags++;
 	}
 
 	private void insertEntry(int tag, int feed, Instant value) throws SQLException {
-		PreparedStatement statement = statements.get("insert-entry");
-		statement.setInt(1, tag);
-		statement.setInt(2, feed);
-		statement.setLong(3, value.toEpochMilli());
-		statement.setString(4, labelOf(value));
-		statement.execute();
+		if (tag == 0) time = value.toEpochMilli();
+		entries.add(tag, feed, value.toEpochMilli(), labelOf(value));
 	}
 
 	private void insertEntry(int tag, int feed, double value) throws SQLException {
-		PreparedStatement statement = statements.get("insert-entry");
-		statement.setInt(1, tag);
-		statement.setInt(2, feed);
-		statement.setDouble(3, value);
-		statement.setNull(4, VARCHAR);
-		statement.execute();
+		if (rollups != null && tag > 1) rollups.add(tag, time, value);
+		entries.add(tag, feed, value);
 	}
 
 	private void insertEntry(int tag, int feed, String value) throws SQLException {
-		PreparedStatement statement = statements.get("insert-entry");
-		statement.setInt(1, tag);
-		statement.setInt(2, feed);
-		statement.setNull(3, BIGINT);
-		statement.setString(4, value);
-		statement.execute();
+		entries.add(tag, feed, value);
 	}
 
 	private void updateSize(int size) throws SQLException {
@@ -277,17 +367,15 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 		statement.execute();
 	}
 
-	private void updateTag(int tag, int feed) throws SQLException {
-		PreparedStatement statement = statements.get("update-tag-feed");
-		statement.setInt(1, feed);
-		statement.setInt(2, tag);
-		statement.execute();
-	}
-
 	private static String labelOf(Instant value) {
 		return value.toString().substring(0, 19).replace('T', ' ');
 	}
 
+	private Stream<Row> rowsOf(SqlAction<ResultSet> query) {
+		if (shared) return locked(() -> SqlColumns.copyOf(query.run()));
+		return streamOf(locked(query));
+	}
+
 	private Stream<Row> streamOf(ResultSet rs) {
 		return Stream.generate(() -> recordIn(rs))
 				.peek(row -> closeIfExhausted(row, rs))
@@ -313,6 +401,44 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 		}
 	}
 
+	private static double[] valuesOf(ResultSet rs, int columns) throws SQLException {
+		double[] values = new double[columns];
+		for (int i = 0; i < columns; i++) {
+			values[i] = rs.getDouble(i + 1);
+			if (rs.wasNull()) values[i] = Double.NaN;
+		}
+		return values;
+	}
+
+	private static Row read(double[] values) {
+		return index -> new Row.Data() {
+			@Override
+			public int asInt() {
+				return (int) values[index - 1];
+			}
+
+			@Override
+			public long asLong() {
+				return (long) values[index - 1];
+			}
+
+			@Override
+			public double asDouble() {
+				return values[index - 1];
+			}
+
+			@Override
+			public Instant asInstant() {
+				return Instant.ofEpochMilli(asLong());
+			}
+
+			@Override
+			public String asString() {
+				return String.valueOf(values[index - 1]);
+			}
+		};
+	}
+
 	private static Row read(ResultSet rs) {
 		return index -> new Row.Data() {
 			@Override
@@ -368,6 +494,14 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 		}
 	}
 
+	private interface SqlAction<T> {
+		T run() throws SQLException;
+	}
+
+	private interface SqlRunnable {
+		void run() throws SQLException;
+	}
+
 	@Override
 	public String toString() {
 		return identifier;
@@ -375,12 +509,10 @@ public class SqlHistoryRegistry implements HistoryRegistry, AutoCloseable {
 
 	@Override
 	public void close() {
-		statements.values().forEach(s -> {
-			try {
-				s.close();
-			} catch (SQLException e) {
-				throw new RuntimeException(e);
-			}
-		});
+		try {
+			statements.close();
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
 	}
 }
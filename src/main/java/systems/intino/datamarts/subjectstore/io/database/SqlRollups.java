@@ -0,0 +1,88 @@
+package systems.intino.datamarts.subjectstore.io.database;
+
+import systems.intino.datamarts.subjectstore.io.HistoryRegistry.Resolution;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SqlRollups {
+	private static final Resolution[] Resolutions = Resolution.values();
+	private final SqlStatements statements;
+	private final Map<Key, Bucket> pending;
+
+	public SqlRollups(SqlStatements statements) {
+		this.statements = statements;
+		this.pending = new LinkedHashMap<>();
+	}
+
+	public void add(int tag, long time, double value) {
+		if (Double.isNaN(value)) return;
+		for (Resolution resolution : Resolutions)
+			pending.computeIfAbsent(new Key(tag, resolution, resolution.bucketOf(time)), k -> new Bucket()).add(time, value);
+	}
+
+	public void flush() throws SQLException {
+		if (pending.isEmpty()) return;
+		int count = 0;
+		for (Map.Entry<Key, Bucket> entry : pending.entrySet()) {
+			PreparedStatement statement = statements.get("upsert-rollup");
+			bind(statement, entry.getKey(), entry.getValue());
+			statement.addBatch();
+			if (++count % SqlEntryWriter.BatchSize == 0) statement.executeBatch();
+		}
+		if (count % SqlEntryWriter.BatchSize != 0) statements.get("upsert-rollup").executeBatch();
+		pending.clear();
+	}
+
+	private static void bind(PreparedStatement statement, Key key, Bucket bucket) throws SQLException {
+		statement.setInt(1, key.tag);
+		statement.setInt(2, key.resolution.ordinal());
+		statement.setLong(3, key.start);
+		statement.setInt(4, bucket.count);
+		statement.setDouble(5, bucket.sum);
+		statement.setDouble(6, bucket.mean);
+		statement.setDouble(7, bucket.m2);
+		statement.setDouble(8, bucket.min);
+		statement.setDouble(9, bucket.max);
+		statement.setDouble(10, bucket.first);
+		statement.setLong(11, bucket.firstTime);
+		statement.setDouble(12, bucket.last);
+		statement.setLong(13, bucket.lastTime);
+	}
+
+	private record Key(int tag, Resolution resolution, long start) {
+	}
+
+	private static class Bucket {
+		int count;
+		double sum;
+		double mean;
+		double m2;
+		double min;
+		double max;
+		double first;
+		long firstTime;
+		double last;
+		long lastTime;
+
+		void add(long time, double value) {
+			if (count == 0 || time < firstTime) {
+				first = value;
+				firstTime = time;
+			}
+			if (count == 0 || time >= lastTime) {
+				last = value;
+				lastTime = time;
+			}
+			min = count == 0 ? value : Math.min(min, value);
+			max = count == 0 ? value : Math.max(max, value);
+			sum += value;
+			count++;
+			double delta = value - mean;
+			mean += delta / count;
+			m2 += delta * (value - mean);
+		}
+	}
+}
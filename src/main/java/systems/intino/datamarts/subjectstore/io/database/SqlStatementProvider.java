@@ -2,27 +2,59 @@ package systems.intino.datamarts.subjectstore.io.database;
 
 import systems.intino.datamarts.subjectstore.io.database.dialects.MySql;
 import systems.intino.datamarts.subjectstore.io.database.dialects.Postgresql;
+import systems.intino.datamarts.subjectstore.io.database.dialects.PostgresqlCopy;
 import systems.intino.datamarts.subjectstore.io.database.dialects.Sqlite;
 
 import java.sql.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static systems.intino.datamarts.subjectstore.io.database.SqlStatementProvider.StatementType.*;
 
 @SuppressWarnings("SqlSourceToSinkFlow")
 public class SqlStatementProvider {
+	private static final Map<Layout, Set<Connection>> Initialized = new EnumMap<>(Map.of(
+			Layout.TablePerSubject, connections(),
+			Layout.Shared, connections()
+	));
 	private final Connection connection;
+	private final Layout layout;
+	private final SqlCache cache;
 	private final SqlDialect dialect;
+	private String identifier;
 	private int id;
 
 	public SqlStatementProvider(Connection connection) throws SQLException {
+		this(connection, Layout.TablePerSubject);
+	}
+
+	public SqlStatementProvider(Connection connection, Layout layout) throws SQLException {
+		this(connection, layout, null);
+	}
+
+	public SqlStatementProvider(Connection connection, Layout layout, SqlCache cache) throws SQLException {
 		this.connection = connection;
-		this.dialect = dialectOf(dbOf(connection));
+		this.layout = layout;
+		this.cache = cache;
+		this.dialect = dialectOf(connection, cache);
+	}
+
+	public Connection connection() {
+		return connection;
+	}
+
+	public boolean shared() {
+		return cache != null;
+	}
+
+	public Lock lock() {
+		return cache != null ? cache.lock : new ReentrantLock();
 	}
 
 	public SqlStatementProvider of(String identifier) throws SQLException {
-		this.id = idOf(identifier);
+		this.identifier = identifier;
+		this.id = cache != null ? cache.ids.computeIfAbsent(identifier, this::idOf) : idOf(identifier);
 		return this;
 	}
 
@@ -64,40 +96,97 @@ public class SqlStatementProvider {
 	}
 
 	private void initTables() throws SQLException {
+		execute(layout == Layout.Shared ? InitSharedSubject : InitTables);
+	}
+
+	public void drop() throws SQLException {
+		execute(layout == Layout.Shared ? DropSharedSubject : DropTables);
+		if (cache == null) return;
+		cache.ids.remove(identifier);
+		if (layout == Layout.TablePerSubject) cache.forget(id);
+	}
+
+	private void execute(StatementType type) throws SQLException {
 		try (Statement statement = connection.createStatement()) {
-			String[] sentences = customize(dialect.get(InitTables)).split(";\n");
+			String[] sentences = customize(dialect.get(type)).split(";\n");
 			for (String sentence : sentences) {
+				if (sentence.isBlank()) continue;
 				statement.execute(sentence);
 			}
 		}
 	}
 
-	public Map<String, PreparedStatement> statements() throws SQLException {
-		Map<String, PreparedStatement> statements = new HashMap<>();
-		statements.put("insert-tag", create("INSERT INTO s[id]_tags (tag, label, feed) VALUES (?, ?, -1)"));
-		statements.put("insert-entry", create("INSERT INTO s[id]_map (tag, feed, num, txt) VALUES (?, ?, ?, ?)"));
-		statements.put("update-tag-feed", create("UPDATE s[id]_tags SET feed = ? WHERE tag = ?;"));
-		statements.put("update-feed", create("UPDATE s[id]_map SET num = ? WHERE tag = -1 AND feed = -1;"));
-		statements.put("select-all", create("SELECT * FROM s[id]_map ORDER BY feed, tag;"));
-		statements.put("select-tags", create("SELECT tag, label, feed FROM s[id]_tags"));
-		statements.put("select-instants", create("SELECT feed, num FROM s[id]_map WHERE tag = 0"));
-		statements.put("select-double-value", create("SELECT num FROM s[id]_map WHERE tag = ? AND feed = ?"));
-		statements.put("select-double-values", create("SELECT feed, num FROM s[id]_map WHERE tag = ? and feed BETWEEN ? AND ?"));
-		statements.put("select-string-value", create("SELECT txt FROM s[id]_map WHERE tag = ? AND feed = ?"));
-		statements.put("select-string-values", create("SELECT feed, txt FROM s[id]_map WHERE tag = ? and feed BETWEEN ? AND ?"));
-		statements.put("select-last-values", create("SELECT t.feed, t.tag, m.num, m.txt FROM s[id]_tags t JOIN s[id]_map m ON t.feed = m.feed AND t.tag = m.tag;"));
-		statements.put("drop-tables", create(dialect.get(DropTables)));
-		return statements;
+	public void initRollups() throws SQLException {
+		execute(layout == Layout.Shared ? InitSharedRollups : InitRollups);
+	}
+
+	public SqlStatements statements() {
+		Map<String, String> statements = new HashMap<>();
+		if (layout == Layout.Shared) {
+			statements.putAll(SharedStatements);
+			statements.put("upsert-rollup", upsertRollup("history_rollups", "subject, tag, resolution, bucket", RollupColumns + ", subject"));
+			return cache != null ?
+					new SqlStatements(connection, statements, cache.statements, id) :
+					new SqlStatements(connection, statements, new HashMap<>(), id);
+		}
+		TableStatements.forEach((name, sql) -> statements.put(name, customize(sql)));
+		statements.put("upsert-rollup", upsertRollup(customize("s[id]_rollups"), "tag, resolution, bucket", RollupColumns));
+		return cache != null ?
+				new SqlStatements(connection, statements, cache, id) :
+				new SqlStatements(connection, statements);
 	}
 
-	private PreparedStatement create(String sql) throws SQLException {
-		return connection.prepareStatement(customize(sql));
+	private String upsertRollup(String table, String key, String columns) {
+		String values = String.join(", ", Collections.nCopies(columns.split(",").length, "?"));
+		return dialect.get(UpsertRollup)
+				.replace("[rollups]", table)
+				.replace("[columns]", columns)
+				.replace("[values]", values)
+				.replace("[key]", key);
+	}
+
+	public SqlEntryWriter entries(SqlStatements statements) throws SQLException {
+		if (dialect instanceof Postgresql && PostgresqlCopy.supports(connection))
+			return layout == Layout.Shared ?
+					new PostgresqlCopy(connection, "history_map (subject, tag, feed, num, txt)", id + ",") :
+					new PostgresqlCopy(connection, customize("s[id]_map (tag, feed, num, txt)"), "");
+		return SqlEntryWriter.batched(statements);
+	}
+
+	public String summary(int tag, int[] bounds, boolean edges) {
+		String map = layout == Layout.Shared ? "history_map" : customize("s[id]_map");
+		String points = "SELECT " + bucketOf(bounds, 0, bounds.length - 1) + " AS bucket, feed, num FROM " + map +
+				" WHERE tag = " + tag + " AND feed >= " + bounds[0] + " AND feed < " + bounds[bounds.length - 1] + subjectOf("");
+		String groups = "SELECT bucket, COUNT(*) AS n, SUM(num) AS total, MIN(num) AS low, MAX(num) AS high" +
+				(edges ? ", MIN(feed) AS head, MAX(feed) AS tail" : "") +
+				" FROM (" + points + ") p GROUP BY bucket";
+		if (!edges) return groups + " ORDER BY bucket";
+		return "SELECT g.bucket, g.n, g.total, g.low, g.high, f.num, l.num FROM (" + groups + ") g" +
+				" JOIN " + map + " f ON f.tag = " + tag + " AND f.feed = g.head" + subjectOf("f.") +
+				" JOIN " + map + " l ON l.tag = " + tag + " AND l.feed = g.tail" + subjectOf("l.") +
+				" ORDER BY g.bucket";
+	}
+
+	private String bucketOf(int[] bounds, int from, int to) {
+		if (to - from <= 1) return String.valueOf(from);
+		int mid = (from + to) >>> 1;
+		return "CASE WHEN feed < " + bounds[mid] + " THEN " + bucketOf(bounds, from, mid) + " ELSE " + bucketOf(bounds, mid, to) + " END";
+	}
+
+	private String subjectOf(String alias) {
+		return layout == Layout.Shared ? " AND " + alias + "subject = " + id : "";
 	}
 
 	private String customize(String sql) {
 		return sql.replace("[id]", String.valueOf(id));
 	}
 
+	private static SqlDialect dialectOf(Connection connection, SqlCache cache) throws SQLException {
+		if (cache == null) return dialectOf(dbOf(connection));
+		if (cache.dialect == null) cache.dialect = dialectOf(dbOf(connection));
+		return cache.dialect;
+	}
+
 	private static SqlDialect dialectOf(String db) throws SQLException {
 		if (db.equalsIgnoreCase("sqlite")) return new Sqlite();
 		if (db.equalsIgnoreCase("mysql") || db.equalsIgnoreCase("mariadb")) return new MySql();
@@ -110,10 +199,17 @@ public class SqlStatementProvider {
 	}
 
 	private void checkSubjectsTable() throws SQLException {
+		if (Initialized.get(layout).contains(connection)) return;
 		try (Statement statement = connection.createStatement()) {
 			statement.execute(dialect.get(CreateSubjectsTable));
-			connection.commit();
 		}
+		if (layout == Layout.Shared) execute(InitSharedTables);
+		connection.commit();
+		Initialized.get(layout).add(connection);
+	}
+
+	private static Set<Connection> connections() {
+		return Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 	}
 
 	public interface SqlDialect {
@@ -121,8 +217,53 @@ public class SqlStatementProvider {
 	}
 
 	public enum StatementType {
-		CreateSubjectsTable, SelectSubject, CreateSubject, InitTables, DropTables
+		CreateSubjectsTable, SelectSubject, CreateSubject, InitTables, DropTables, InitSharedTables, InitSharedSubject, DropSharedSubject, InitRollups, InitSharedRollups, UpsertRollup
 	}
 
+	public enum Layout {
+		TablePerSubject, Shared
+	}
+
+	private static final String RollupColumns = "tag, resolution, bucket, n, total, mean, m2, low, high, head, head_ts, tail, tail_ts";
+
+	private static final Map<String, String> TableStatements = Map.ofEntries(
+			Map.entry("insert-tag", "INSERT INTO s[id]_tags (tag, label, feed) VALUES (?, ?, -1)"),
+			Map.entry("insert-entry", "INSERT INTO s[id]_map (tag, feed, num, txt) VALUES (?, ?, ?, ?)"),
+			Map.entry("update-tag-feed", "UPDATE s[id]_tags SET feed = ? WHERE tag = ?;"),
+			Map.entry("update-feed", "UPDATE s[id]_map SET num = ? WHERE tag = -1 AND feed = -1;"),
+			Map.entry("enable-rollups", "UPDATE s[id]_map SET txt = 'rollups' WHERE tag = -1 AND feed = -1"),
+			Map.entry("select-header", "SELECT num, txt FROM s[id]_map WHERE tag = -1 AND feed = -1"),
+			Map.entry("delete-rollups", "DELETE FROM s[id]_rollups"),
+			Map.entry("select-all", "SELECT feed, tag, num, txt FROM s[id]_map ORDER BY feed, tag;"),
+			Map.entry("select-tags", "SELECT tag, label, feed FROM s[id]_tags"),
+			Map.entry("select-instants", "SELECT feed, num FROM s[id]_map WHERE tag = 0"),
+			Map.entry("select-double-value", "SELECT num FROM s[id]_map WHERE tag = ? AND feed = ?"),
+			Map.entry("select-double-values", "SELECT feed, num FROM s[id]_map WHERE tag = ? and feed BETWEEN ? AND ?"),
+			Map.entry("select-string-value", "SELECT txt FROM s[id]_map WHERE tag = ? AND feed = ?"),
+			Map.entry("select-string-values", "SELECT feed, txt FROM s[id]_map WHERE tag = ? and feed BETWEEN ? AND ?"),
+			Map.entry("select-last-values", "SELECT t.feed, t.tag, m.num, m.txt FROM s[id]_tags t JOIN s[id]_map m ON t.feed = m.feed AND t.tag = m.tag;"),
+			Map.entry("select-numeric-facts", "SELECT m.tag, t.num, m.num FROM s[id]_map m JOIN s[id]_map t ON t.feed = m.feed AND t.tag = 0 WHERE m.tag > 1 AND m.num IS NOT NULL AND m.txt IS NULL"),
+			Map.entry("select-rollups", "SELECT bucket, n, total, mean, m2, low, high, head, tail FROM s[id]_rollups WHERE tag = ? AND resolution = ? AND bucket >= ? AND bucket < ? ORDER BY bucket")
+	);
+
+	private static final Map<String, String> SharedStatements = Map.ofEntries(
+			Map.entry("insert-tag", "INSERT INTO history_tags (tag, label, feed, subject) VALUES (?, ?, -1, ?)"),
+			Map.entry("insert-entry", "INSERT INTO history_map (tag, feed, num, txt, subject) VALUES (?, ?, ?, ?, ?)"),
+			Map.entry("update-tag-feed", "UPDATE history_tags SET feed = ? WHERE tag = ? AND subject = ?"),
+			Map.entry("update-feed", "UPDATE history_map SET num = ? WHERE tag = -1 AND feed = -1 AND subject = ?"),
+			Map.entry("enable-rollups", "UPDATE history_map SET txt = 'rollups' WHERE tag = -1 AND feed = -1 AND subject = ?"),
+			Map.entry("select-header", "SELECT num, txt FROM history_map WHERE tag = -1 AND feed = -1 AND subject = ?"),
+			Map.entry("delete-rollups", "DELETE FROM history_rollups WHERE subject = ?"),
+			Map.entry("select-all", "SELECT feed, tag, num, txt FROM history_map WHERE subject = ? ORDER BY feed, tag"),
+			Map.entry("select-tags", "SELECT tag, label, feed FROM history_tags WHERE subject = ?"),
+			Map.entry("select-instants", "SELECT feed, num FROM history_map WHERE tag = 0 AND subject = ?"),
+			Map.entry("select-double-value", "SELECT num FROM history_map WHERE tag = ? AND feed = ? AND subject = ?"),
+			Map.entry("select-double-values", "SELECT feed, num FROM history_map WHERE tag = ? AND feed BETWEEN ? AND ? AND subject = ?"),
+			Map.entry("select-string-value", "SELECT txt FROM history_map WHERE tag = ? AND feed = ? AND subject = ?"),
+			Map.entry("select-string-values", "SELECT feed, txt FROM history_map WHERE tag = ? AND feed BETWEEN ? AND ? AND subject = ?"),
+			Map.entry("select-last-values", "SELECT t.feed, t.tag, m.num, m.txt FROM history_tags t JOIN history_map m ON m.subject = t.subject AND m.feed = t.feed AND m.tag = t.tag WHERE t.subject = ?"),
+			Map.entry("select-numeric-facts", "SELECT m.tag, t.num, m.num FROM history_map m JOIN history_map t ON t.subject = m.subject AND t.feed = m.feed AND t.tag = 0 WHERE m.tag > 1 AND m.num IS NOT NULL AND m.txt IS NULL AND m.subject = ?"),
+			Map.entry("select-rollups", "SELECT bucket, n, total, mean, m2, low, high, head, tail FROM history_rollups WHERE tag = ? AND resolution = ? AND bucket >= ? AND bucket < ? AND subject = ? ORDER BY bucket")
+	);
 
 }
@@ -0,0 +1,72 @@
+package systems.intino.datamarts.subjectstore.io.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+@SuppressWarnings("SqlSourceToSinkFlow")
+public class SqlStatements implements AutoCloseable {
+	private final Connection connection;
+	private final Map<String, String> sql;
+	private final Map<String, PreparedStatement> statements;
+	private final int subject;
+	private final Release release;
+
+	public SqlStatements(Connection connection, Map<String, String> sql) {
+		this(connection, sql, new HashMap<>(), -1, null);
+	}
+
+	public SqlStatements(Connection connection, Map<String, String> sql, Map<String, PreparedStatement> statements, int subject) {
+		this(connection, sql, statements, subject, () -> {});
+	}
+
+	public SqlStatements(Connection connection, Map<String, String> sql, SqlCache cache, int subject) {
+		this(connection, sql, cache.acquire(subject), -1, () -> cache.release(subject));
+	}
+
+	private SqlStatements(Connection connection, Map<String, String> sql, Map<String, PreparedStatement> statements, int subject, Release release) {
+		this.connection = connection;
+		this.sql = sql;
+		this.statements = statements;
+		this.subject = subject;
+		this.release = release;
+	}
+
+	public PreparedStatement get(String name) throws SQLException {
+		PreparedStatement statement = statementOf(name);
+		if (subject >= 0) statement.setInt(parametersOf(sql.get(name)), subject);
+		return statement;
+	}
+
+	private static int parametersOf(String sentence) {
+		return (int) sentence.chars().filter(c -> c == '?').count();
+	}
+
+	private PreparedStatement statementOf(String name) throws SQLException {
+		synchronized (statements) {
+			PreparedStatement statement = statements.get(name);
+			if (statement != null) return statement;
+			String sentence = sql.get(name);
+			if (sentence == null) throw new SQLException("Unknown statement " + name);
+			statement = connection.prepareStatement(sentence);
+			statements.put(name, statement);
+			return statement;
+		}
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (release != null) {
+			release.run();
+			return;
+		}
+		for (PreparedStatement statement : statements.values()) statement.close();
+		statements.clear();
+	}
+
+	private interface Release {
+		void run() throws SQLException;
+	}
+}
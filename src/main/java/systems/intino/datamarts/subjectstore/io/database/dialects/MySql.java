@@ -11,6 +11,12 @@ public class MySql implements SqlStatementProvider.SqlDialect {
 			case CreateSubject -> MySql.CreateSubject;
 			case InitTables -> MySql.InitTables;
 			case DropTables -> MySql.DropTables;
+			case InitSharedTables -> MySql.InitSharedTables;
+			case InitSharedSubject -> MySql.InitSharedSubject;
+			case InitRollups -> MySql.InitRollups;
+			case InitSharedRollups -> MySql.InitSharedRollups;
+			case UpsertRollup -> MySql.UpsertRollup;
+			case DropSharedSubject -> MySql.DropSharedSubject;
 		};
 	}
 
@@ -59,7 +65,94 @@ public class MySql implements SqlStatementProvider.SqlDialect {
 	DROP INDEX IF EXISTS s[id]_idx_tag ON s[id]_map;
 	DROP INDEX IF EXISTS s[id]_idx_feed ON s[id]_map;
 	
+	DROP TABLE IF EXISTS s[id]_rollups;
 	DROP TABLE IF EXISTS s[id]_map;
 	DROP TABLE IF EXISTS s[id]_tags;
 	""";
+
+	private static final String InitSharedTables = """
+	CREATE TABLE IF NOT EXISTS history_tags (
+		subject INT NOT NULL,
+		tag INT NOT NULL,
+		label VARCHAR(255),
+		feed INT,
+		PRIMARY KEY (subject, tag)
+	);
+	
+	CREATE TABLE IF NOT EXISTS history_map (
+		subject INT NOT NULL,
+		feed INT NOT NULL,
+		tag INT NOT NULL,
+		num DOUBLE,
+		txt TEXT,
+		INDEX history_idx_tag (subject, tag, feed),
+		PRIMARY KEY (subject, feed, tag)
+	);
+	""";
+
+	private static final String InitSharedSubject = """
+	INSERT INTO history_tags (subject, tag, label, feed) VALUES ([id], 0, 'ts', -1);
+	INSERT INTO history_tags (subject, tag, label, feed) VALUES ([id], 1, 'ss', -1);
+	INSERT INTO history_map (subject, tag, feed, num, txt) VALUES ([id], -1, -1, 0, NULL);
+	""";
+
+	private static final String DropSharedSubject = """
+	DELETE FROM history_map WHERE subject = [id];
+	DELETE FROM history_tags WHERE subject = [id];
+	DELETE FROM subjects WHERE id = [id];
+	""";
+
+	private static final String InitRollups = """
+	CREATE TABLE IF NOT EXISTS s[id]_rollups (
+		tag INT NOT NULL,
+		resolution INT NOT NULL,
+		bucket BIGINT NOT NULL,
+		n INT,
+		total DOUBLE,
+		mean DOUBLE,
+		m2 DOUBLE,
+		low DOUBLE,
+		high DOUBLE,
+		head DOUBLE,
+		head_ts BIGINT,
+		tail DOUBLE,
+		tail_ts BIGINT,
+		PRIMARY KEY (tag, resolution, bucket)
+	);
+	""";
+
+	private static final String InitSharedRollups = """
+	CREATE TABLE IF NOT EXISTS history_rollups (
+		subject INT NOT NULL,
+		tag INT NOT NULL,
+		resolution INT NOT NULL,
+		bucket BIGINT NOT NULL,
+		n INT,
+		total DOUBLE,
+		mean DOUBLE,
+		m2 DOUBLE,
+		low DOUBLE,
+		high DOUBLE,
+		head DOUBLE,
+		head_ts BIGINT,
+		tail DOUBLE,
+		tail_ts BIGINT,
+		PRIMARY KEY (subject, tag, resolution, bucket)
+	);
+	""";
+
+	private static final String UpsertRollup = """
+	INSERT INTO [rollups] ([columns]) VALUES ([values])
+	ON DUPLICATE KEY UPDATE
+		m2 = m2 + VALUES(m2) + (VALUES(mean) - mean) * (VALUES(mean) - mean) * n * VALUES(n) / (n + VALUES(n)),
+		mean = mean + (VALUES(mean) - mean) * VALUES(n) / (n + VALUES(n)),
+		n = n + VALUES(n),
+		total = total + VALUES(total),
+		low = LEAST(low, VALUES(low)),
+		high = GREATEST(high, VALUES(high)),
+		head = IF(VALUES(head_ts) < head_ts, VALUES(head), head),
+		head_ts = LEAST(head_ts, VALUES(head_ts)),
+		tail = IF(VALUES(tail_ts) >= tail_ts, VALUES(tail), tail),
+		tail_ts = GREATEST(tail_ts, VALUES(tail_ts))
+	""";
 }
@@ -11,6 +11,12 @@ public class Postgresql implements SqlStatementProvider.SqlDialect {
 			case CreateSubject -> Postgresql.CreateSubject;
 			case InitTables -> Postgresql.InitTables;
 			case DropTables -> Postgresql.DropTables;
+			case InitSharedTables -> Postgresql.InitSharedTables;
+			case InitSharedSubject -> Postgresql.InitSharedSubject;
+			case InitRollups -> Postgresql.InitRollups;
+			case InitSharedRollups -> Postgresql.InitSharedRollups;
+			case UpsertRollup -> Postgresql.UpsertRollup;
+			case DropSharedSubject -> Postgresql.DropSharedSubject;
 		};
 	}
 
@@ -60,7 +66,95 @@ public class Postgresql implements SqlStatementProvider.SqlDialect {
     DROP INDEX IF EXISTS s[id]_idx_tag;
     DROP INDEX IF EXISTS s[id]_idx_feed;
     
+    DROP TABLE IF EXISTS s[id]_rollups;
     DROP TABLE IF EXISTS s[id]_map;
     DROP TABLE IF EXISTS s[id]_tags;
     """;
+
+	private static final String InitSharedTables = """
+    CREATE TABLE IF NOT EXISTS history_tags (
+        subject INT NOT NULL,
+        tag INT NOT NULL,
+        label VARCHAR(255),
+        feed INT,
+        PRIMARY KEY (subject, tag)
+    );
+    
+    CREATE TABLE IF NOT EXISTS history_map (
+        subject INT NOT NULL,
+        feed INT NOT NULL,
+        tag INT NOT NULL,
+        num DOUBLE PRECISION,
+        txt TEXT,
+        PRIMARY KEY (subject, feed, tag)
+    );
+    
+    CREATE INDEX IF NOT EXISTS history_idx_tag ON history_map(subject, tag, feed);
+    """;
+
+	private static final String InitSharedSubject = """
+    INSERT INTO history_tags (subject, tag, label, feed) VALUES ([id], 0, 'ts', -1);
+    INSERT INTO history_tags (subject, tag, label, feed) VALUES ([id], 1, 'ss', -1);
+    INSERT INTO history_map (subject, tag, feed, num, txt) VALUES ([id], -1, -1, 0, NULL);
+    """;
+
+	private static final String DropSharedSubject = """
+    DELETE FROM history_map WHERE subject = [id];
+    DELETE FROM history_tags WHERE subject = [id];
+    DELETE FROM subjects WHERE id = [id];
+    """;
+
+	private static final String InitRollups = """
+    CREATE TABLE IF NOT EXISTS s[id]_rollups (
+        tag INT NOT NULL,
+        resolution INT NOT NULL,
+        bucket BIGINT NOT NULL,
+        n INT,
+        total DOUBLE PRECISION,
+        mean DOUBLE PRECISION,
+        m2 DOUBLE PRECISION,
+        low DOUBLE PRECISION,
+        high DOUBLE PRECISION,
+        head DOUBLE PRECISION,
+        head_ts BIGINT,
+        tail DOUBLE PRECISION,
+        tail_ts BIGINT,
+        PRIMARY KEY (tag, resolution, bucket)
+    );
+    """;
+
+	private static final String InitSharedRollups = """
+    CREATE TABLE IF NOT EXISTS history_rollups (
+        subject INT NOT NULL,
+        tag INT NOT NULL,
+        resolution INT NOT NULL,
+        bucket BIGINT NOT NULL,
+        n INT,
+        total DOUBLE PRECISION,
+        mean DOUBLE PRECISION,
+        m2 DOUBLE PRECISION,
+        low DOUBLE PRECISION,
+        high DOUBLE PRECISION,
+        head DOUBLE PRECISION,
+        head_ts BIGINT,
+        tail DOUBLE PRECISION,
+        tail_ts BIGINT,
+        PRIMARY KEY (subject, tag, resolution, bucket)
+    );
+    """;
+
+	private static final String UpsertRollup = """
+    INSERT INTO [rollups] AS r ([columns]) VALUES ([values])
+    ON CONFLICT ([key]) DO UPDATE SET
+        n = r.n + excluded.n,
+        total = r.total + excluded.total,
+        mean = r.mean + (excluded.mean - r.mean) * excluded.n / (r.n + excluded.n),
+        m2 = r.m2 + excluded.m2 + (excluded.mean - r.mean) * (excluded.mean - r.mean) * r.n * excluded.n / (r.n + excluded.n),
+        low = LEAST(r.low, excluded.low),
+        high = GREATEST(r.high, excluded.high),
+        head = CASE WHEN excluded.head_ts < r.head_ts THEN excluded.head ELSE r.head END,
+        head_ts = LEAST(r.head_ts, excluded.head_ts),
+        tail = CASE WHEN excluded.tail_ts >= r.tail_ts THEN excluded.tail ELSE r.tail END,
+        tail_ts = GREATEST(r.tail_ts, excluded.tail_ts)
+    """;
 }
@@ -0,0 +1,68 @@
+package systems.intino.datamarts.subjectstore.io.database.dialects;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import systems.intino.datamarts.subjectstore.io.database.SqlEntryWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class PostgresqlCopy implements SqlEntryWriter {
+	private static final int MaxBuffer = 1 << 22;
+	private final CopyManager copyManager;
+	private final String sql;
+	private final String prefix;
+	private final StringBuilder buffer;
+
+	public PostgresqlCopy(Connection connection, String target, String prefix) throws SQLException {
+		this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+		this.sql = "COPY " + target + " FROM STDIN WITH (FORMAT csv)";
+		this.prefix = prefix;
+		this.buffer = new StringBuilder();
+	}
+
+	public static boolean supports(Connection connection) {
+		try {
+			return connection.isWrapperFor(PGConnection.class);
+		} catch (SQLException | LinkageError e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void add(int tag, int feed, double value) throws SQLException {
+		row(tag, feed, Double.toString(value), null);
+	}
+
+	@Override
+	public void add(int tag, int feed, long value, String label) throws SQLException {
+		row(tag, feed, Long.toString(value), label);
+	}
+
+	@Override
+	public void add(int tag, int feed, String value) throws SQLException {
+		row(tag, feed, null, value);
+	}
+
+	@Override
+	public void flush() throws SQLException {
+		if (buffer.isEmpty()) return;
+		try {
+			copyManager.copyIn(sql, new StringReader(buffer.toString()));
+		} catch (IOException e) {
+			throw new SQLException(e);
+		}
+		buffer.setLength(0);
+	}
+
+	private void row(int tag, int feed, String number, String text) throws SQLException {
+		buffer.append(prefix).append(tag).append(',').append(feed).append(',');
+		if (number != null) buffer.append(number);
+		buffer.append(',');
+		if (text != null) buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+		buffer.append('\n');
+		if (buffer.length() >= MaxBuffer) flush();
+	}
+}
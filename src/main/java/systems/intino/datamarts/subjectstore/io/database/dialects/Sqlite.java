@@ -11,6 +11,12 @@ public class Sqlite implements SqlStatementProvider.SqlDialect {
 			case CreateSubject -> Sqlite.CreateSubject;
 			case InitTables -> Sqlite.InitTables;
 			case DropTables -> Sqlite.DropTables;
+			case InitSharedTables -> Sqlite.InitSharedTables;
+			case InitSharedSubject -> Sqlite.InitSharedSubject;
+			case InitRollups -> Sqlite.InitRollups;
+			case InitSharedRollups -> Sqlite.InitSharedRollups;
+			case UpsertRollup -> Sqlite.UpsertRollup;
+			case DropSharedSubject -> Sqlite.DropSharedSubject;
 		};
 	}
 
@@ -57,7 +63,95 @@ public class Sqlite implements SqlStatementProvider.SqlDialect {
 	DROP INDEX IF EXISTS s[id]_idx_tag;
 	DROP INDEX IF EXISTS s[id]_idx_feed;
 	
+	DROP TABLE IF EXISTS s[id]_rollups;
 	DROP TABLE IF EXISTS s[id]_map;
 	DROP TABLE IF EXISTS s[id]_tags;
 	""";
+
+	private static final String InitSharedTables = """
+	CREATE TABLE IF NOT EXISTS history_tags (
+		subject INTEGER NOT NULL,
+		tag INTEGER NOT NULL,
+		label TEXT,
+		feed INTEGER,
+		PRIMARY KEY (subject, tag)
+	);
+	
+	CREATE TABLE IF NOT EXISTS history_map (
+		subject INTEGER NOT NULL,
+		feed INTEGER NOT NULL,
+		tag INTEGER NOT NULL,
+		num REAL,
+		txt TEXT,
+		PRIMARY KEY (subject, feed, tag)
+	);
+	
+	CREATE INDEX IF NOT EXISTS history_idx_tag ON history_map(subject, tag, feed);
+	""";
+
+	private static final String InitSharedSubject = """
+	INSERT INTO history_tags (subject, tag, label, feed) VALUES ([id], 0, 'ts', -1);
+	INSERT INTO history_tags (subject, tag, label, feed) VALUES ([id], 1, 'ss', -1);
+	INSERT INTO history_map (subject, tag, feed, num, txt) VALUES ([id], -1, -1, 0, NULL);
+	""";
+
+	private static final String DropSharedSubject = """
+	DELETE FROM history_map WHERE subject = [id];
+	DELETE FROM history_tags WHERE subject = [id];
+	DELETE FROM subjects WHERE id = [id];
+	""";
+
+	private static final String InitRollups = """
+	CREATE TABLE IF NOT EXISTS s[id]_rollups (
+		tag INTEGER NOT NULL,
+		resolution INTEGER NOT NULL,
+		bucket INTEGER NOT NULL,
+		n INTEGER,
+		total REAL,
+		mean REAL,
+		m2 REAL,
+		low REAL,
+		high REAL,
+		head REAL,
+		head_ts INTEGER,
+		tail REAL,
+		tail_ts INTEGER,
+		PRIMARY KEY (tag, resolution, bucket)
+	);
+	""";
+
+	private static final String InitSharedRollups = """
+	CREATE TABLE IF NOT EXISTS history_rollups (
+		subject INTEGER NOT NULL,
+		tag INTEGER NOT NULL,
+		resolution INTEGER NOT NULL,
+		bucket INTEGER NOT NULL,
+		n INTEGER,
+		total REAL,
+		mean REAL,
+		m2 REAL,
+		low REAL,
+		high REAL,
+		head REAL,
+		head_ts INTEGER,
+		tail REAL,
+		tail_ts INTEGER,
+		PRIMARY KEY (subject, tag, resolution, bucket)
+	);
+	""";
+
+	private static final String UpsertRollup = """
+	INSERT INTO [rollups] ([columns]) VALUES ([values])
+	ON CONFLICT ([key]) DO UPDATE SET
+		n = n + excluded.n,
+		total = total + excluded.total,
+		mean = mean + (excluded.mean - mean) * excluded.n / (n + excluded.n),
+		m2 = m2 + excluded.m2 + (excluded.mean - mean) * (excluded.mean - mean) * n * excluded.n / (n + excluded.n),
+		low = MIN(low, excluded.low),
+		high = MAX(high, excluded.high),
+		head = CASE WHEN excluded.head_ts < head_ts THEN excluded.head ELSE head END,
+		head_ts = MIN(head_ts, excluded.head_ts),
+		tail = CASE WHEN excluded.tail_ts >= tail_ts THEN excluded.tail ELSE tail END,
+		tail_ts = MAX(tail_ts, excluded.tail_ts)
+	""";
 }
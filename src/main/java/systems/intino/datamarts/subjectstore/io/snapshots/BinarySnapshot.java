@@ -0,0 +1,216 @@
+package systems.intino.datamarts.subjectstore.io.snapshots;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+import systems.intino.datamarts.subjectstore.pools.ReadOnlyBitmapPool;
+import systems.intino.datamarts.subjectstore.pools.ReadOnlyLinkPool;
+import systems.intino.datamarts.subjectstore.pools.ReadOnlyStringPool;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class BinarySnapshot implements Closeable {
+	public static final byte[] Magic = {'S', 'S', 'B', '3'};
+	private final InputStream is;
+
+	public BinarySnapshot(InputStream is) {
+		this.is = is;
+	}
+
+	public static boolean isSnapshot(File file) {
+		if (!file.exists()) return false;
+		try (InputStream is = new FileInputStream(file)) {
+			return Arrays.equals(is.readNBytes(Magic.length), Magic);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static void write(OutputStream os, ReadOnlyStringPool subjects, ReadOnlyStringPool terms, ReadOnlyLinkPool links, ReadOnlyBitmapPool tags, ReadOnlyBitmapPool types, ReadOnlyBitmapPool children) throws IOException {
+		Dictionary subjectDictionary = new Dictionary(subjects);
+		Dictionary termDictionary = new Dictionary(terms);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+		out.write(Magic);
+		subjectDictionary.write(out);
+		termDictionary.write(out);
+		writeLinks(out, subjectDictionary, termDictionary, links::termBitmapOf);
+		writeLinks(out, termDictionary, subjectDictionary, links::subjectBitmapOf);
+		writeBitmaps(out, tags, termDictionary);
+		writeBitmaps(out, types, subjectDictionary);
+		writeBitmaps(out, children, subjectDictionary);
+		out.flush();
+	}
+
+	public void load(Loader loader) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(is, 1 << 16));
+		if (!Arrays.equals(in.readNBytes(Magic.length), Magic)) throw new IOException("Not a binary snapshot");
+		loader.subjects(readDictionary(in));
+		loader.terms(readDictionary(in));
+		byte[] chunk = new byte[1 << 16];
+		readLinks(in, chunk, loader::links);
+		skipLinks(in);
+		readBitmaps(in, chunk, loader::tags);
+		readBitmaps(in, chunk, loader::types);
+		readBitmaps(in, chunk, loader::children);
+	}
+
+	@Override
+	public void close() throws IOException {
+		is.close();
+	}
+
+	private static String[] readDictionary(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		long[] offsets = readOffsets(in, count + 1);
+		String[] strings = new String[count];
+		byte[] bytes = new byte[256];
+		for (int i = 0; i < count; i++) {
+			int length = Math.toIntExact(offsets[i + 1] - offsets[i]);
+			if (bytes.length < length) bytes = new byte[Math.max(length, bytes.length * 2)];
+			in.readFully(bytes, 0, length);
+			strings[i] = new String(bytes, 0, length, UTF_8);
+		}
+		return strings;
+	}
+
+	private static void readLinks(DataInputStream in, byte[] chunk, RowConsumer consumer) throws IOException {
+		int rows = in.readInt();
+		long[] offsets = readOffsets(in, rows + 1);
+		for (int row = 0; row < rows; row++)
+			consumer.accept(row, readInts(in, Math.toIntExact(offsets[row + 1] - offsets[row]), chunk));
+	}
+
+	private static void skipLinks(DataInputStream in) throws IOException {
+		int rows = in.readInt();
+		long[] offsets = readOffsets(in, rows + 1);
+		in.skipNBytes(offsets[rows] * Integer.BYTES);
+	}
+
+	private static void readBitmaps(DataInputStream in, byte[] chunk, BitmapConsumer consumer) throws IOException {
+		String[] keys = readDictionary(in);
+		readLinks(in, chunk, (key, ids) -> consumer.accept(keys[key], ids));
+	}
+
+	private static long[] readOffsets(DataInputStream in, int count) throws IOException {
+		long[] values = new long[count];
+		for (int i = 0; i < count; i++) values[i] = in.readLong();
+		return values;
+	}
+
+	private static int[] readInts(DataInputStream in, int count, byte[] chunk) throws IOException {
+		int[] values = new int[count];
+		ByteBuffer buffer = ByteBuffer.wrap(chunk);
+		for (int i = 0; i < count; ) {
+			int n = Math.min(count - i, chunk.length / Integer.BYTES);
+			in.readFully(chunk, 0, n * Integer.BYTES);
+			buffer.clear();
+			for (int j = 0; j < n; j++) values[i++] = buffer.getInt();
+		}
+		return values;
+	}
+
+	private static void writeLinks(DataOutputStream out, Dictionary rows, Dictionary columns, IntFunction<Bitmap> bitmaps) throws IOException {
+		int[][] links = new int[rows.size()][];
+		for (int row = 0; row < links.length; row++) links[row] = columnsOf(bitmaps.apply(rows.ids[row]), columns);
+		out.writeInt(links.length);
+		long offset = 0;
+		out.writeLong(offset);
+		for (int[] link : links) out.writeLong(offset += link.length);
+		for (int[] link : links)
+			for (int column : link) out.writeInt(column);
+	}
+
+	private static void writeBitmaps(DataOutputStream out, ReadOnlyBitmapPool pool, Dictionary ids) throws IOException {
+		Map<String, Bitmap> bitmaps = new HashMap<>();
+		pool.forEach(bitmaps::put);
+		Dictionary keys = new Dictionary(bitmaps.keySet().toArray(String[]::new));
+		keys.write(out);
+		writeLinks(out, keys, ids, key -> bitmaps.get(keys.strings[key]));
+	}
+
+	private static int[] columnsOf(Bitmap bitmap, Dictionary columns) {
+		IntArrayList result = new IntArrayList(bitmap.cardinality());
+		bitmap.forEach(id -> {
+			int position = columns.positions[id];
+			if (position >= 0) result.add(position);
+		});
+		int[] values = result.toIntArray();
+		Arrays.sort(values);
+		return values;
+	}
+
+	public interface Loader {
+		void subjects(String[] identifiers);
+
+		void terms(String[] terms);
+
+		void links(int subject, int[] terms);
+
+		default void tags(String tag, int[] terms) {
+		}
+
+		default void types(String type, int[] subjects) {
+		}
+
+		default void children(String parent, int[] subjects) {
+		}
+	}
+
+	private interface RowConsumer {
+		void accept(int row, int[] columns) throws IOException;
+	}
+
+	private interface BitmapConsumer {
+		void accept(String key, int[] ids) throws IOException;
+	}
+
+	private static class Dictionary {
+		private final String[] strings;
+		private final byte[][] values;
+		private final int[] ids;
+		private final int[] positions;
+
+		Dictionary(ReadOnlyStringPool pool) {
+			this(stringsOf(pool));
+		}
+
+		Dictionary(String[] strings) {
+			this.strings = strings;
+			this.ids = IntStream.range(0, strings.length).filter(id -> strings[id] != null).toArray();
+			IntArrays.parallelQuickSort(ids, (a, b) -> strings[a].compareTo(strings[b]));
+			this.positions = new int[strings.length];
+			Arrays.fill(positions, -1);
+			this.values = new byte[ids.length][];
+			for (int i = 0; i < ids.length; i++) {
+				positions[ids[i]] = i;
+				values[i] = strings[ids[i]].getBytes(UTF_8);
+			}
+		}
+
+		private static String[] stringsOf(ReadOnlyStringPool pool) {
+			String[] strings = new String[pool.size()];
+			for (int id = 0; id < strings.length; id++) strings[id] = pool.get(id);
+			return strings;
+		}
+
+		int size() {
+			return ids.length;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeInt(values.length);
+			long offset = 0;
+			out.writeLong(offset);
+			for (byte[] value : values) out.writeLong(offset += value.length);
+			for (byte[] value : values) out.write(value);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package systems.intino.datamarts.subjectstore.io.snapshots;
+
+import systems.intino.datamarts.subjectstore.helpers.MappedDictionary;
+import systems.intino.datamarts.subjectstore.helpers.MappedFile;
+import systems.intino.datamarts.subjectstore.helpers.MappedPostings;
+import systems.intino.datamarts.subjectstore.pools.BitmapPool;
+import systems.intino.datamarts.subjectstore.pools.LinkPool;
+import systems.intino.datamarts.subjectstore.pools.StringPool;
+import systems.intino.datamarts.subjectstore.pools.bitmaps.MappedBitmapPool;
+import systems.intino.datamarts.subjectstore.pools.links.MappedLinkPool;
+import systems.intino.datamarts.subjectstore.pools.strings.MappedStringPool;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class MappedSnapshot {
+	private final MappedDictionary subjects;
+	private final MappedDictionary terms;
+	private final MappedPostings termsBySubject;
+	private final MappedPostings subjectsByTerm;
+	private final MappedDictionary tagKeys;
+	private final MappedPostings tags;
+	private final MappedDictionary typeKeys;
+	private final MappedPostings types;
+	private final MappedDictionary parentKeys;
+	private final MappedPostings children;
+
+	private MappedSnapshot(MappedFile file) {
+		this.subjects = new MappedDictionary(file, BinarySnapshot.Magic.length);
+		this.terms = new MappedDictionary(file, subjects.end());
+		this.termsBySubject = new MappedPostings(file, terms.end());
+		this.subjectsByTerm = new MappedPostings(file, termsBySubject.end());
+		this.tagKeys = new MappedDictionary(file, subjectsByTerm.end());
+		this.tags = new MappedPostings(file, tagKeys.end());
+		this.typeKeys = new MappedDictionary(file, tags.end());
+		this.types = new MappedPostings(file, typeKeys.end());
+		this.parentKeys = new MappedDictionary(file, types.end());
+		this.children = new MappedPostings(file, parentKeys.end());
+	}
+
+	public static boolean supports(File file) {
+		if (!file.exists()) return false;
+		try (InputStream is = new FileInputStream(file)) {
+			return Arrays.equals(is.readNBytes(BinarySnapshot.Magic.length), BinarySnapshot.Magic);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static MappedSnapshot open(File file) throws IOException {
+		if (!supports(file)) throw new IOException(file + " is not a mappable snapshot");
+		return new MappedSnapshot(MappedFile.map(file));
+	}
+
+	public StringPool subjects() {
+		return new MappedStringPool(subjects);
+	}
+
+	public StringPool terms() {
+		return new MappedStringPool(terms);
+	}
+
+	public LinkPool links() {
+		return new MappedLinkPool(termsBySubject, subjectsByTerm);
+	}
+
+	public BitmapPool tags() {
+		return new MappedBitmapPool(tagKeys, tags);
+	}
+
+	public BitmapPool types() {
+		return new MappedBitmapPool(typeKeys, types);
+	}
+
+	public BitmapPool children() {
+		return new MappedBitmapPool(parentKeys, children);
+	}
+}
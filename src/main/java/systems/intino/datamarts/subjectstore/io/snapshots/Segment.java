@@ -0,0 +1,86 @@
+package systems.intino.datamarts.subjectstore.io.snapshots;
+
+import java.io.*;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class Segment implements Closeable {
+	public static final byte[] Magic = {'S', 'S', 'S', '1'};
+	private final InputStream is;
+
+	public Segment(InputStream is) {
+		this.is = is;
+	}
+
+	public static void write(OutputStream os, Collection<String> drops, Map<String, List<String>> subjects) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+		out.write(Magic);
+		out.writeInt(drops.size());
+		for (String identifier : drops) writeString(out, identifier);
+		out.writeInt(subjects.size());
+		for (Map.Entry<String, List<String>> entry : subjects.entrySet()) {
+			writeString(out, entry.getKey());
+			out.writeInt(entry.getValue().size());
+			for (String term : entry.getValue()) writeString(out, term);
+		}
+		out.flush();
+	}
+
+	public static void merge(List<Segment> segments, OutputStream os) throws IOException {
+		Set<String> drops = new LinkedHashSet<>();
+		NavigableMap<String, List<String>> subjects = new TreeMap<>();
+		for (Segment segment : segments)
+			segment.load(new Loader() {
+				@Override
+				public void drop(String identifier) {
+					subjects.remove(identifier);
+					subjects.subMap(identifier + '/', true, identifier + '0', false).clear();
+					drops.add(identifier);
+				}
+
+				@Override
+				public void subject(String identifier, List<String> terms) {
+					subjects.put(identifier, terms);
+				}
+			});
+		write(os, drops, subjects);
+	}
+
+	public void load(Loader loader) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(is, 1 << 16));
+		if (!Arrays.equals(in.readNBytes(Magic.length), Magic)) throw new IOException("Not a segment");
+		int drops = in.readInt();
+		for (int i = 0; i < drops; i++) loader.drop(readString(in));
+		int subjects = in.readInt();
+		for (int i = 0; i < subjects; i++) {
+			String identifier = readString(in);
+			String[] terms = new String[in.readInt()];
+			for (int j = 0; j < terms.length; j++) terms[j] = readString(in);
+			loader.subject(identifier, List.of(terms));
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		is.close();
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	public interface Loader {
+		void drop(String identifier);
+
+		void subject(String identifier, List<String> terms);
+	}
+}
@@ -0,0 +1,239 @@
+package systems.intino.datamarts.subjectstore.io.triples;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import systems.intino.datamarts.subjectstore.model.Triple;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+public class ParallelDump {
+	private static final int MinChunk = 1 << 20;
+	private static final int MaxChunk = 1 << 24;
+	private final File file;
+	private final int chunks;
+
+	public ParallelDump(File file) {
+		this(file, Runtime.getRuntime().availableProcessors());
+	}
+
+	public ParallelDump(File file, int chunks) {
+		this.file = file;
+		this.chunks = Math.max(1, chunks);
+	}
+
+	public void load(Loader loader) throws IOException {
+		long[] bounds = boundsOf(file.length());
+		BlockingQueue<Future<Chunk>> pending = new ArrayBlockingQueue<>(chunks);
+		Dictionary subjects = new Dictionary(loader::subject);
+		Dictionary terms = new Dictionary(loader::term);
+		ExecutorService executor = Executors.newFixedThreadPool(chunks);
+		try {
+			int submitted = 0;
+			while (submitted < bounds.length - 1 || !pending.isEmpty()) {
+				Future<Chunk> head = pending.poll();
+				for (; submitted < bounds.length - 1 && pending.remainingCapacity() > 0; submitted++) {
+					int i = submitted;
+					pending.add(executor.submit(() -> parse(bounds[i], bounds[i + 1])));
+				}
+				if (head != null) merge(chunkOf(head), subjects, terms, loader);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void merge(Chunk chunk, Dictionary subjects, Dictionary terms, Loader loader) {
+		int[] subjectIds = subjects.merge(chunk.subjects);
+		int[] termIds = terms.merge(chunk.terms);
+		for (int i = 0; i < chunk.links.size(); i += 2)
+			loader.link(subjectIds[chunk.links.getInt(i)], termIds[chunk.links.getInt(i + 1)]);
+	}
+
+	private static Chunk chunkOf(Future<Chunk> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) throw cause;
+			if (e.getCause() instanceof Error cause) throw cause;
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private long[] boundsOf(long length) {
+		long pieces = Math.max(chunks, (length + MaxChunk - 1) / MaxChunk);
+		int count = (int) Math.max(1, Math.min(pieces, length / MinChunk));
+		long[] bounds = new long[count + 1];
+		for (int i = 0; i <= count; i++) bounds[i] = length * i / count;
+		return bounds;
+	}
+
+	private Chunk parse(long start, long end) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			Chunk chunk = new Chunk();
+			new LineReader(channel, start, end).forEach(line -> {
+				if (line.isBlank()) return;
+				Triple triple = Triple.of(line);
+				chunk.add(triple.subject(), triple.term());
+			});
+			return chunk;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public interface Loader {
+		void subject(String identifier);
+
+		void term(String term);
+
+		void link(int subject, int term);
+	}
+
+	private static class Chunk {
+		private final Object2IntOpenHashMap<String> subjectIds = new Object2IntOpenHashMap<>();
+		private final Object2IntOpenHashMap<String> termIds = new Object2IntOpenHashMap<>();
+		private final List<String> subjects = new ArrayList<>();
+		private final List<String> terms = new ArrayList<>();
+		private final IntArrayList links = new IntArrayList();
+		private String lastSubject;
+		private int lastSubjectId;
+
+		Chunk() {
+			subjectIds.defaultReturnValue(-1);
+			termIds.defaultReturnValue(-1);
+		}
+
+		void add(String subject, String term) {
+			if (!subject.equals(lastSubject)) {
+				lastSubject = subject;
+				lastSubjectId = idOf(subject, subjectIds, subjects);
+			}
+			links.add(lastSubjectId);
+			links.add(idOf(term, termIds, terms));
+		}
+
+		private static int idOf(String value, Object2IntOpenHashMap<String> ids, List<String> values) {
+			int id = ids.getInt(value);
+			if (id >= 0) return id;
+			ids.put(value, values.size());
+			values.add(value);
+			return values.size() - 1;
+		}
+	}
+
+	private static class Dictionary {
+		private final Object2IntOpenHashMap<String> ids = new Object2IntOpenHashMap<>();
+		private final StringConsumer consumer;
+
+		Dictionary(StringConsumer consumer) {
+			this.consumer = consumer;
+			this.ids.defaultReturnValue(-1);
+		}
+
+		int[] merge(List<String> values) {
+			int[] result = new int[values.size()];
+			for (int i = 0; i < result.length; i++) {
+				String value = values.get(i);
+				int id = ids.getInt(value);
+				if (id < 0) {
+					id = ids.size();
+					ids.put(value, id);
+					consumer.accept(value);
+				}
+				result[i] = id;
+			}
+			return result;
+		}
+	}
+
+	private interface StringConsumer {
+		void accept(String value);
+	}
+
+	private static class LineReader {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final long end;
+		private long position;
+		private byte[] line;
+		private int length;
+
+		LineReader(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocate(1 << 16);
+			this.end = end;
+			this.position = start;
+			this.line = new byte[256];
+			this.buffer.limit(0);
+		}
+
+		void forEach(LineConsumer consumer) throws IOException {
+			if (position > 0 && !startsLine()) skipLine();
+			long lineStart = position;
+			while (lineStart < end) {
+				int b = next();
+				if (b < 0 || b == '\n') {
+					if (b >= 0 || length > 0) consumer.accept(stripCarriageReturn());
+					length = 0;
+					lineStart = position;
+					if (b < 0) return;
+				}
+				else append((byte) b);
+			}
+		}
+
+		private boolean startsLine() throws IOException {
+			ByteBuffer previous = ByteBuffer.allocate(1);
+			channel.read(previous, position - 1);
+			return previous.get(0) == '\n';
+		}
+
+		private void skipLine() throws IOException {
+			int b;
+			do b = next(); while (b >= 0 && b != '\n');
+		}
+
+		private int next() throws IOException {
+			if (!buffer.hasRemaining()) {
+				buffer.clear();
+				int read = channel.read(buffer, position);
+				buffer.flip();
+				if (read <= 0) return -1;
+			}
+			position++;
+			return buffer.get() & 0xFF;
+		}
+
+		private void append(byte b) {
+			if (length == line.length) line = Arrays.copyOf(line, length * 2);
+			line[length++] = b;
+		}
+
+		private String stripCarriageReturn() {
+			int n = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+			return new String(line, 0, n, UTF_8);
+		}
+	}
+
+	private interface LineConsumer {
+		void accept(String line);
+	}
+}
@@ -1,22 +1,38 @@
 package systems.intino.datamarts.subjectstore.model;
 
 import systems.intino.datamarts.subjectstore.helpers.EscapeSymbol;
+import systems.intino.datamarts.subjectstore.model.journals.BinaryJournal;
 import systems.intino.datamarts.subjectstore.model.journals.FileJournal;
+import systems.intino.datamarts.subjectstore.model.journals.GroupCommitJournal;
 import systems.intino.datamarts.subjectstore.model.journals.StringJournal;
 import systems.intino.datamarts.subjectstore.model.journals.StringJournalBuilder;
 
 import java.io.File;
+import java.util.Iterator;
 import java.util.List;
 
-public interface Journal {
+public interface Journal extends Iterable<Journal.Transaction> {
 	boolean isEmpty();
 
 	List<Transaction> transactions();
 
+	@Override
+	default Iterator<Transaction> iterator() {
+		return transactions().iterator();
+	}
+
 	static Journal from(File file) {
 		return new FileJournal(file);
 	}
 
+	static Journal read(File file) {
+		return BinaryJournal.isBinary(file) ? new BinaryJournal(file) : new FileJournal(file);
+	}
+
+	static Journal from(File file, GroupCommitJournal.Policy policy) {
+		return new GroupCommitJournal(file, policy);
+	}
+
 	static Journal from(String value) {
 		return new StringJournal(value);
 	}
@@ -27,6 +43,21 @@ public interface Journal {
 
 	void add(Transaction transaction);
 
+	default void add(List<Transaction> transactions) {
+		if (transactions.isEmpty()) return;
+		if (transactions.size() != 1) add(Transaction.batch(transactions.size()));
+		transactions.forEach(this::add);
+	}
+
+	default void await() {
+	}
+
+	default void sync() {
+	}
+
+	default void clear() {
+	}
+
 	interface Builder {
 		Journal to(List<Term> terms);
 	}
@@ -47,6 +78,10 @@ public interface Journal {
 					.replace('\t', EscapeSymbol.HT);
 		}
 
+		public static Transaction batch(int size) {
+			return new Transaction(Type.batch, "-", String.valueOf(size));
+		}
+
 		public static Transaction of(String line) {
 			if(line.isBlank()) throw new BadTransactionException("Transaction line cannot be empty or blank");
 			String[] split = line.split(" ", 3);
@@ -56,7 +91,7 @@ public interface Journal {
 
 
 		public enum Type {
-			put, set, del, drop, rename;
+			put, set, del, drop, rename, batch;
 
 			@Override
 			public String toString() {
@@ -197,7 +197,7 @@ public record Subject(String identifier, Context context) {
 
 			@Override
 			public Stream<Subject> stream() {
-				return subjects().sorted(sorting::sort);
+				return sorting.sort(subjects());
 			}
 
 			@Override
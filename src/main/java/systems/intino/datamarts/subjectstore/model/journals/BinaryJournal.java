@@ -0,0 +1,397 @@
+package systems.intino.datamarts.subjectstore.model.journals;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import systems.intino.datamarts.subjectstore.model.Journal;
+
+import java.io.*;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+
+public class BinaryJournal implements Journal, AutoCloseable {
+	private static final byte[] Magic = {'S', 'J', 'B', '1'};
+	private static final int MaxRecord = 1 << 24;
+	private static final int MaxStrings = 1 << 20;
+	private static final int Literal = 0;
+	private static final int Definition = 1;
+	private static final int Reference = 2;
+	private static final Transaction.Type[] Types = Transaction.Type.values();
+	private static final Cleaner Readers = Cleaner.create();
+	private final Path path;
+	private final Object2IntOpenHashMap<String> strings;
+	private final Record record;
+	private FileChannel channel;
+
+	public BinaryJournal(File file) {
+		this.path = file.toPath();
+		this.strings = new Object2IntOpenHashMap<>();
+		this.strings.defaultReturnValue(-1);
+		this.record = new Record();
+	}
+
+	public static boolean isBinary(File file) {
+		if (!file.exists()) return false;
+		try (InputStream is = new FileInputStream(file)) {
+			return Arrays.equals(is.readNBytes(Magic.length), Magic);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static BinaryJournal convert(Journal source, File target) {
+		BinaryJournal journal = new BinaryJournal(target);
+		for (Transaction transaction : source) journal.add(transaction);
+		journal.close();
+		return journal;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return !Files.exists(path);
+	}
+
+	@Override
+	public List<Transaction> transactions() {
+		List<Transaction> transactions = new ArrayList<>();
+		for (Transaction transaction : this) transactions.add(transaction);
+		return transactions;
+	}
+
+	@Override
+	public Iterator<Transaction> iterator() {
+		return isEmpty() ? Collections.emptyIterator() : new Reader(path);
+	}
+
+	@Override
+	public void add(Transaction transaction) {
+		add(List.of(transaction));
+	}
+
+	@Override
+	public synchronized void add(List<Transaction> transactions) {
+		if (transactions.isEmpty()) return;
+		FileChannel channel = channel();
+		ByteBuffer bytes = record.encode(transactions);
+		long start = position(channel);
+		try {
+			while (bytes.hasRemaining()) channel.write(bytes);
+		} catch (IOException e) {
+			record.rollback();
+			discardFrom(channel, start, e);
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static long position(FileChannel channel) {
+		try {
+			return channel.position();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void discardFrom(FileChannel channel, long position, IOException cause) {
+		try {
+			channel.truncate(position).position(position);
+		} catch (IOException e) {
+			cause.addSuppressed(e);
+			close();
+		}
+	}
+
+	@Override
+	public synchronized void sync() {
+		if (channel == null) return;
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		close();
+		strings.clear();
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (channel == null) return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			channel = null;
+		}
+	}
+
+	private FileChannel channel() {
+		if (channel != null) return channel;
+		try {
+			channel = FileChannel.open(path, CREATE, READ, WRITE);
+			if (channel.size() < Magic.length) channel.truncate(0).write(ByteBuffer.wrap(Magic));
+			else resume();
+			channel.position(channel.size());
+			return channel;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void resume() throws IOException {
+		if (!isBinary(path.toFile())) throw new IllegalStateException(path + " is not a binary journal");
+		strings.clear();
+		try (Reader reader = new Reader(path)) {
+			while (reader.hasNext()) reader.next();
+			List<String> dictionary = reader.strings;
+			for (int i = 0; i < dictionary.size(); i++) strings.put(dictionary.get(i), i);
+			if (reader.end < channel.size()) channel.truncate(reader.end);
+		}
+	}
+
+	private class Record {
+		private final CRC32 crc = new CRC32();
+		private final List<String> defined = new ArrayList<>();
+		private byte[] bytes = new byte[256];
+		private int size;
+
+		ByteBuffer encode(List<Transaction> transactions) {
+			size = 0;
+			defined.clear();
+			if (transactions.size() > 1) write(Transaction.batch(transactions.size()));
+			transactions.forEach(this::write);
+			if (size > MaxRecord) {
+				rollback();
+				throw new IllegalArgumentException("Journal record of " + size + " bytes exceeds " + MaxRecord);
+			}
+			crc.reset();
+			crc.update(bytes, 0, size);
+			int length = size;
+			byte[] payload = Arrays.copyOf(bytes, length);
+			size = 0;
+			writeVarint(length);
+			writeBytes(payload, length);
+			writeInt((int) crc.getValue());
+			return ByteBuffer.wrap(bytes, 0, size);
+		}
+
+		void rollback() {
+			defined.forEach(strings::removeInt);
+			defined.clear();
+		}
+
+		private void write(Transaction transaction) {
+			writeByte(transaction.type().ordinal());
+			writeString(transaction.subject());
+			writeString(transaction.parameter());
+		}
+
+		private void writeString(String value) {
+			int id = strings.getInt(value);
+			if (id >= 0) {
+				writeVarint(id << 2 | Reference);
+				return;
+			}
+			byte[] utf8 = value.getBytes(UTF_8);
+			boolean defines = strings.size() < MaxStrings;
+			if (defines) {
+				strings.put(value, strings.size());
+				defined.add(value);
+			}
+			writeVarint(utf8.length << 2 | (defines ? Definition : Literal));
+			writeBytes(utf8, utf8.length);
+		}
+
+		private void writeVarint(int value) {
+			while ((value & ~0x7F) != 0) {
+				writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+
+		private void writeInt(int value) {
+			for (int shift = 24; shift >= 0; shift -= 8) writeByte(value >>> shift);
+		}
+
+		private void writeBytes(byte[] values, int length) {
+			ensure(length);
+			System.arraycopy(values, 0, bytes, size, length);
+			size += length;
+		}
+
+		private void writeByte(int value) {
+			ensure(1);
+			bytes[size++] = (byte) value;
+		}
+
+		private void ensure(int length) {
+			if (size + length > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+		}
+	}
+
+	private static class Reader implements Iterator<Transaction>, Closeable {
+		private final InputStream is;
+		private final Cleaner.Cleanable cleanable;
+		private final CRC32 crc;
+		private final List<String> strings;
+		private byte[] payload;
+		private int position;
+		private int headerBytes;
+		private long end;
+		private final Deque<Transaction> pending;
+		private Transaction next;
+		private boolean done;
+
+		Reader(Path path) {
+			try {
+				InputStream is = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+				this.is = is;
+				this.cleanable = Readers.register(this, () -> closeQuietly(is));
+				this.crc = new CRC32();
+				this.strings = new ArrayList<>();
+				this.payload = new byte[256];
+				this.pending = new ArrayDeque<>();
+				this.done = !Arrays.equals(is.readNBytes(Magic.length), Magic);
+				this.end = Magic.length;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next != null) return true;
+			if (!pending.isEmpty()) next = pending.poll();
+			if (next != null) return true;
+			if (done) return false;
+			next = read();
+			if (next == null) close();
+			return next != null;
+		}
+
+		@Override
+		public Transaction next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			Transaction transaction = next;
+			next = null;
+			return transaction;
+		}
+
+		private Transaction read() {
+			try {
+				int length = readLength();
+				if (length <= 0 || length > MaxRecord) return null;
+				if (payload.length < length) payload = new byte[Math.max(length, payload.length * 2)];
+				if (is.readNBytes(payload, 0, length) < length) return null;
+				byte[] checksum = is.readNBytes(4);
+				if (checksum.length < 4) return null;
+				crc.reset();
+				crc.update(payload, 0, length);
+				if ((int) crc.getValue() != ByteBuffer.wrap(checksum).getInt()) return null;
+				Transaction transaction = decode(length);
+				if (transaction == null) return null;
+				end += headerBytes + length + 4;
+				return transaction;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		private int readLength() throws IOException {
+			int value = 0;
+			for (headerBytes = 1; headerBytes <= 5; headerBytes++) {
+				int b = is.read();
+				if (b < 0) return -1;
+				value |= (b & 0x7F) << (7 * (headerBytes - 1));
+				if ((b & 0x80) == 0) return value;
+			}
+			return -1;
+		}
+
+		private Transaction decode(int length) {
+			position = 0;
+			int mark = strings.size();
+			Transaction transaction = readTransaction(length);
+			if (transaction != null && transaction.type() == Transaction.Type.batch && position < length)
+				for (int i = sizeOf(transaction); i != 0 && transaction != null; i--) {
+					Transaction operation = readTransaction(length);
+					if (operation != null) pending.add(operation);
+					else transaction = null;
+				}
+			if (transaction == null || position != length) {
+				while (strings.size() > mark) strings.removeLast();
+				pending.clear();
+				return null;
+			}
+			return transaction;
+		}
+
+		private static int sizeOf(Transaction batch) {
+			try {
+				return Math.max(Integer.parseInt(batch.parameter()), -1);
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+
+		private Transaction readTransaction(int length) {
+			if (position >= length) return null;
+			int type = payload[position++];
+			if (type < 0 || type >= Types.length) return null;
+			String subject = readString(length);
+			String parameter = subject != null ? readString(length) : null;
+			return parameter != null ? new Transaction(Types[type], subject, parameter) : null;
+		}
+
+		private String readString(int length) {
+			int value = readVarint(length);
+			if (value < 0) return null;
+			int tag = value & 3;
+			int n = value >>> 2;
+			if (tag == Reference) return n < strings.size() ? strings.get(n) : null;
+			if (tag > Reference || position + n > length) return null;
+			String string = new String(payload, position, n, UTF_8);
+			position += n;
+			if (tag == Definition) strings.add(string);
+			return string;
+		}
+
+		private int readVarint(int length) {
+			int value = 0;
+			for (int i = 0; i < 5 && position < length; i++) {
+				int b = payload[position++];
+				value |= (b & 0x7F) << (7 * i);
+				if ((b & 0x80) == 0) return value;
+			}
+			return -1;
+		}
+
+		@Override
+		public void close() {
+			done = true;
+			cleanable.clean();
+		}
+
+		private static void closeQuietly(InputStream is) {
+			try {
+				is.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+}
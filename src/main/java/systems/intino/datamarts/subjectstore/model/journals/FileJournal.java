@@ -8,6 +8,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.APPEND;
 import static java.nio.file.StandardOpenOption.CREATE;
 
@@ -27,16 +28,36 @@ public class FileJournal implements Journal {
 
 	private List<String> linesIn() {
 		try {
-			return Files.readAllLines(path);
+			byte[] bytes = Files.readAllBytes(path);
+			return new String(bytes, 0, completeLinesIn(bytes), UTF_8).lines().toList();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	private static int completeLinesIn(byte[] bytes) {
+		int length = bytes.length;
+		while (length > 0 && bytes[length - 1] != '\n') length--;
+		return length;
+	}
+
+
+	public synchronized void add(Transaction transaction) {
+		write(transaction.toString() + "\n");
+	}
+
+	@Override
+	public synchronized void add(List<Transaction> transactions) {
+		if (transactions.isEmpty()) return;
+		StringBuilder sb = new StringBuilder();
+		if (transactions.size() != 1) sb.append(Transaction.batch(transactions.size())).append('\n');
+		transactions.forEach(t -> sb.append(t).append('\n'));
+		write(sb.toString());
+	}
 
-	public void add(Transaction transaction) {
+	private void write(String lines) {
 		try {
-			Files.write(path, (transaction.toString() + "\n").getBytes(), CREATE, APPEND);
+			Files.write(path, lines.getBytes(), CREATE, APPEND);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -46,4 +67,13 @@ public class FileJournal implements Journal {
 		return !path.toFile().exists();
 	}
 
+	@Override
+	public void clear() {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 }
@@ -0,0 +1,253 @@
+package systems.intino.datamarts.subjectstore.model.journals;
+
+import systems.intino.datamarts.subjectstore.model.Journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+public class GroupCommitJournal implements Journal, AutoCloseable {
+	private static final ScheduledExecutorService Flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "journal-flusher");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Path path;
+	private final Policy policy;
+	private final Object lock;
+	private ByteArrayOutputStream buffer;
+	private Timer timer;
+	private FileChannel channel;
+	private long appended;
+	private long durable;
+	private boolean flushing;
+
+	public GroupCommitJournal(File file) {
+		this(file, Policy.defaults());
+	}
+
+	public GroupCommitJournal(File file, Policy policy) {
+		this.path = file.toPath();
+		this.policy = policy;
+		this.lock = new Object();
+		this.buffer = new ByteArrayOutputStream();
+	}
+
+	public Policy policy() {
+		return policy;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		synchronized (lock) {
+			return appended == durable && !Files.exists(path);
+		}
+	}
+
+	@Override
+	public List<Transaction> transactions() {
+		sync();
+		return new FileJournal(path.toFile()).transactions();
+	}
+
+	@Override
+	public void add(Transaction transaction) {
+		add(List.of(transaction));
+	}
+
+	@Override
+	public void add(List<Transaction> transactions) {
+		if (transactions.isEmpty()) return;
+		long sequence;
+		synchronized (lock) {
+			if (transactions.size() != 1) append(Transaction.batch(transactions.size()));
+			transactions.forEach(this::append);
+			if (timer == null && policy.millis() > 0) timer = Timer.start(this);
+			sequence = appended;
+			if (sequence - durable < policy.transactions()) return;
+		}
+		flush(sequence);
+	}
+
+	private void append(Transaction transaction) {
+		buffer.writeBytes((transaction + "\n").getBytes(UTF_8));
+		appended++;
+	}
+
+	@Override
+	public void await() {
+		if (policy.awaitDurability()) sync();
+	}
+
+	@Override
+	public void sync() {
+		long sequence;
+		synchronized (lock) {
+			sequence = appended;
+		}
+		flush(sequence);
+	}
+
+	@Override
+	public void clear() {
+		synchronized (lock) {
+			waitFlushing();
+			buffer = new ByteArrayOutputStream();
+			durable = appended;
+			closeChannel();
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized (lock) {
+			if (timer != null) timer.cancel();
+			timer = null;
+		}
+		sync();
+		synchronized (lock) {
+			waitFlushing();
+			closeChannel();
+		}
+	}
+
+	private void flush(long sequence) {
+		while (true) {
+			byte[] bytes;
+			long upTo;
+			synchronized (lock) {
+				waitFlushing();
+				if (durable >= sequence) return;
+				flushing = true;
+				bytes = buffer.toByteArray();
+				buffer = new ByteArrayOutputStream();
+				upTo = appended;
+			}
+			boolean written = false;
+			try {
+				write(bytes);
+				written = true;
+			} finally {
+				synchronized (lock) {
+					if (written) durable = upTo;
+					else restore(bytes);
+					flushing = false;
+					lock.notifyAll();
+				}
+			}
+		}
+	}
+
+	private void write(byte[] bytes) {
+		try {
+			FileChannel channel = channel();
+			ByteBuffer data = ByteBuffer.wrap(bytes);
+			while (data.hasRemaining()) channel.write(data);
+			channel.force(false);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void restore(byte[] bytes) {
+		ByteArrayOutputStream pending = new ByteArrayOutputStream(bytes.length + buffer.size());
+		pending.writeBytes(bytes);
+		pending.writeBytes(buffer.toByteArray());
+		buffer = pending;
+	}
+
+	private FileChannel channel() throws IOException {
+		synchronized (lock) {
+			if (channel == null) channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+			return channel;
+		}
+	}
+
+	private void closeChannel() {
+		if (channel == null) return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			channel = null;
+		}
+	}
+
+	private void waitFlushing() {
+		try {
+			while (flushing) lock.wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static class Timer implements Runnable {
+		private final WeakReference<GroupCommitJournal> journal;
+		private volatile ScheduledFuture<?> future;
+
+		private Timer(GroupCommitJournal journal) {
+			this.journal = new WeakReference<>(journal);
+		}
+
+		static Timer start(GroupCommitJournal journal) {
+			Timer timer = new Timer(journal);
+			long millis = journal.policy.millis();
+			timer.future = Flusher.scheduleWithFixedDelay(timer, millis, millis, MILLISECONDS);
+			return timer;
+		}
+
+		@Override
+		public void run() {
+			GroupCommitJournal journal = this.journal.get();
+			if (journal != null) journal.sync();
+			else cancel();
+		}
+
+		void cancel() {
+			ScheduledFuture<?> future = this.future;
+			if (future != null) future.cancel(false);
+		}
+	}
+
+	public record Policy(int transactions, long millis, boolean awaitDurability) {
+		public Policy {
+			if (transactions < 1) throw new IllegalArgumentException("Group commit needs at least 1 transaction per flush");
+		}
+
+		public static Policy defaults() {
+			return new Policy(1024, 50, false);
+		}
+
+		public Policy everyTransactions(int transactions) {
+			return new Policy(transactions, millis, awaitDurability);
+		}
+
+		public Policy everyMillis(long millis) {
+			return new Policy(transactions, millis, awaitDurability);
+		}
+
+		public Policy awaitingDurability() {
+			return new Policy(transactions, millis, true);
+		}
+	}
+}
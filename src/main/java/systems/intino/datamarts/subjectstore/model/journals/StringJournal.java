@@ -38,10 +38,17 @@ public class StringJournal implements Journal {
 	}
 
 	@Override
-	public void add(Transaction transaction) {
+	public synchronized void add(Transaction transaction) {
 		transactions.add(transaction);
 	}
 
+	@Override
+	public synchronized void add(List<Transaction> transactions) {
+		if (transactions.isEmpty()) return;
+		if (transactions.size() != 1) this.transactions.add(Transaction.batch(transactions.size()));
+		this.transactions.addAll(transactions);
+	}
+
 	@Override
 	public String toString() {
 		return transactions.stream().map(Transaction::toString).collect(Collectors.joining("\n"));
@@ -0,0 +1,19 @@
+package systems.intino.datamarts.subjectstore.pools;
+
+import systems.intino.datamarts.subjectstore.pools.bitmaps.HeapBitmapPool;
+
+public interface BitmapPool extends ReadOnlyBitmapPool {
+
+	static BitmapPool onHeap() {
+		return new HeapBitmapPool();
+	}
+
+	void add(String key, int id);
+
+	default void add(String key, int[] ids) {
+		for (int id : ids) add(key, id);
+	}
+
+	void remove(String key, int id);
+
+}
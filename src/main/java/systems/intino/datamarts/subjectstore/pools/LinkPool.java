@@ -1,50 +1,29 @@
 package systems.intino.datamarts.subjectstore.pools;
 
-import systems.intino.datamarts.subjectstore.helpers.Triskel;
+import systems.intino.datamarts.subjectstore.pools.links.BitmapLinkPool;
+import systems.intino.datamarts.subjectstore.pools.links.TriskelLinkPool;
 
-import java.util.Iterator;
 import java.util.List;
 
-public class LinkPool {
-	private final Triskel triskel;
+public interface LinkPool extends ReadOnlyLinkPool {
 
-	public LinkPool() {
-		this.triskel = new Triskel();
+	static LinkPool bitmaps() {
+		return new BitmapLinkPool();
 	}
 
-	public boolean exists(int subject, int term) {
-		return subject >= 0 && term >= 0 && triskel.get(subject, term);
+	static LinkPool triskel() {
+		return new TriskelLinkPool();
 	}
 
-	public LinkPool add(int subject, int term) {
-		triskel.set(subject, term);
-		return this;
-	}
-
-	public List<Integer> remove(int subject) {
-		List<Integer> ids = termsOf(subject);
-		ids.forEach(term -> triskel.unset(subject, term));
-		return ids;
-	}
-
-	public List<Integer> termsOf(int subject) {
-		return triskel.horizontalItemsIn(subject);
-	}
+	LinkPool add(int subject, int term);
 
-	public void remove(int subject, int term) {
-		if (!triskel.get(subject, term)) return;
-		triskel.unset(subject, term);
+	default LinkPool add(int subject, int[] terms) {
+		for (int term : terms) add(subject, term);
+		return this;
 	}
 
-	public boolean termIsUsed(int term) {
-		return triskel.isColActive(term);
-	}
+	List<Integer> remove(int subject);
 
-	public List<Integer> subjectsWith(int term) {
-		return triskel.verticalItemsIn(term);
-	}
+	void remove(int subject, int term);
 
-	public Iterator<int[]> iterator() {
-		return triskel.links().iterator();
-	}
 }
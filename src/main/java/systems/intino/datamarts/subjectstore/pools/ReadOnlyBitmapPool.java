@@ -0,0 +1,13 @@
+package systems.intino.datamarts.subjectstore.pools;
+
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+
+import java.util.function.BiConsumer;
+
+public interface ReadOnlyBitmapPool {
+
+	Bitmap get(String key);
+
+	void forEach(BiConsumer<String, Bitmap> consumer);
+
+}
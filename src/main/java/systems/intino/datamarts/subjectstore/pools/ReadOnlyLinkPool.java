@@ -0,0 +1,28 @@
+package systems.intino.datamarts.subjectstore.pools;
+
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+
+import java.util.Iterator;
+import java.util.List;
+
+public interface ReadOnlyLinkPool {
+
+	boolean exists(int subject, int term);
+
+	List<Integer> termsOf(int subject);
+
+	List<Integer> subjectsWith(int term);
+
+	boolean termIsUsed(int term);
+
+	Iterator<int[]> iterator();
+
+	default Bitmap subjectBitmapOf(int term) {
+		return Bitmap.of(subjectsWith(term));
+	}
+
+	default Bitmap termBitmapOf(int subject) {
+		return Bitmap.of(termsOf(subject));
+	}
+
+}
@@ -0,0 +1,39 @@
+package systems.intino.datamarts.subjectstore.pools;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public interface ReadOnlyStringPool {
+
+	int size();
+
+	String get(int id);
+
+	int id(String value);
+
+	default boolean contains(String value) {
+		return id(value) >= 0;
+	}
+
+	default boolean contains(int id) {
+		return id >= 0 && id < size() && get(id) != null;
+	}
+
+	default List<Integer> ids(Predicate<String> predicate) {
+		return IntStream.range(0, size())
+				.filter(i -> get(i) != null)
+				.filter(id -> predicate.test(get(id)))
+				.boxed()
+				.toList();
+	}
+
+	default Stream<String> stream() {
+		return IntStream.range(0, size())
+				.mapToObj(this::get)
+				.filter(Objects::nonNull);
+	}
+
+}
@@ -1,89 +1,36 @@
 package systems.intino.datamarts.subjectstore.pools;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import systems.intino.datamarts.subjectstore.pools.strings.HeapStringPool;
+import systems.intino.datamarts.subjectstore.pools.strings.OffHeapStringPool;
 
-import java.util.*;
-import java.util.function.Predicate;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
+public interface StringPool extends ReadOnlyStringPool {
 
-public class StringPool {
-	private final List<String> values;
-	private final Cache<String, Integer> cache;
-
-	public StringPool() {
-		this.values = new ArrayList<>();
-		this.cache = Caffeine.newBuilder()
-				.maximumSize(10_000)
-				.build();
-	}
-
-	public int size() {
-		return values.size();
-	}
-
-	public boolean contains(String value) {
-		return id(value) >= 0;
+	static StringPool onHeap() {
+		return new HeapStringPool();
 	}
 
-	public boolean contains(int id) {
-		return id >= 0 && id < values.size() && get(id) != null;
+	static StringPool offHeap() {
+		return new OffHeapStringPool();
 	}
 
-	public String get(int id) {
-		return values.get(id);
-	}
-
-	public List<Integer> ids(Predicate<String> predicate) {
-		return IntStream.range(0, values.size())
-				.filter(i -> get(i) != null)
-				.filter(id->predicate.test(get(id)))
-				.boxed()
-				.toList();
-	}
-
-
-	public int id(String value) {
-		return cache.get(value, this::indexOf);
-	}
+	int add(String value);
 
-	private int indexOf(String value) {
-		int index = values.indexOf(value);
-		return (index >= 0) ? index : -1;
-	}
+	int create(String value);
 
-	public int add(String value) {
-		int id = id(value);
-		if (id >= 0) return id;
-		cache.put(value, create(value));
-		return values.size() - 1;
+	default void create(String[] values) {
+		for (String value : values) create(value);
 	}
 
-	public int create(String value) {
-		values.add(value);
-		return values.size() - 1;
-	}
+	void fix(int id, String value);
 
-	public void remove(String value) {
+	default void remove(String value) {
 		int id = id(value);
 		if (id < 0) return;
 		fix(id, null);
 	}
 
-	public void remove(int id) {
+	default void remove(int id) {
 		fix(id, null);
 	}
 
-	public void fix(int id, String value) {
-		cache.invalidate(values.get(id));
-		values.set(id, value);
-	}
-
-	public Stream<String> stream() {
-		return values.stream().filter(Objects::nonNull);
-	}
-
-
-
 }
@@ -0,0 +1,46 @@
+package systems.intino.datamarts.subjectstore.pools.bitmaps;
+
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+import systems.intino.datamarts.subjectstore.pools.BitmapPool;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+public class HeapBitmapPool implements BitmapPool {
+	private final Map<String, Bitmap> bitmaps;
+
+	public HeapBitmapPool() {
+		this.bitmaps = new HashMap<>();
+	}
+
+	@Override
+	public Bitmap get(String key) {
+		return bitmaps.getOrDefault(key, new Bitmap());
+	}
+
+	@Override
+	public void add(String key, int id) {
+		bitmaps.computeIfAbsent(key, k -> new Bitmap()).add(id);
+	}
+
+	@Override
+	public void add(String key, int[] ids) {
+		if (ids.length == 0) return;
+		bitmaps.merge(key, Bitmap.of(ids), Bitmap::or);
+	}
+
+	@Override
+	public void remove(String key, int id) {
+		Bitmap bitmap = bitmaps.get(key);
+		if (bitmap == null) return;
+		bitmap.remove(id);
+		if (bitmap.isEmpty()) bitmaps.remove(key);
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, Bitmap> consumer) {
+		bitmaps.forEach(consumer);
+	}
+
+}
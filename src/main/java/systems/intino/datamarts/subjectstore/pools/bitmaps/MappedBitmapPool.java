@@ -0,0 +1,54 @@
+package systems.intino.datamarts.subjectstore.pools.bitmaps;
+
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+import systems.intino.datamarts.subjectstore.helpers.MappedDictionary;
+import systems.intino.datamarts.subjectstore.helpers.MappedPostings;
+import systems.intino.datamarts.subjectstore.pools.BitmapPool;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+public class MappedBitmapPool implements BitmapPool {
+	private final MappedDictionary keys;
+	private final MappedPostings postings;
+	private final Map<String, Bitmap> delta;
+
+	public MappedBitmapPool(MappedDictionary keys, MappedPostings postings) {
+		this.keys = keys;
+		this.postings = postings;
+		this.delta = new HashMap<>();
+	}
+
+	@Override
+	public Bitmap get(String key) {
+		Bitmap bitmap = delta.get(key);
+		return bitmap != null ? bitmap : base(key);
+	}
+
+	@Override
+	public void add(String key, int id) {
+		delta.computeIfAbsent(key, this::base).add(id);
+	}
+
+	@Override
+	public void remove(String key, int id) {
+		delta.computeIfAbsent(key, this::base).remove(id);
+	}
+
+	private Bitmap base(String key) {
+		return postings.bitmap(keys.find(key));
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, Bitmap> consumer) {
+		for (int i = 0; i < keys.size(); i++) {
+			String key = keys.get(i);
+			if (!delta.containsKey(key)) consumer.accept(key, postings.bitmap(i));
+		}
+		delta.forEach((key, bitmap) -> {
+			if (!bitmap.isEmpty()) consumer.accept(key, bitmap);
+		});
+	}
+
+}
@@ -0,0 +1,126 @@
+package systems.intino.datamarts.subjectstore.pools.bitmaps;
+
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+import systems.intino.datamarts.subjectstore.helpers.Versions;
+import systems.intino.datamarts.subjectstore.pools.BitmapPool;
+import systems.intino.datamarts.subjectstore.pools.ReadOnlyBitmapPool;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+public class VersionedBitmapPool implements BitmapPool {
+	private final BitmapPool pool;
+	private final Versions<Version> versions;
+	private final ReadWriteLock lock;
+
+	public VersionedBitmapPool(BitmapPool pool) {
+		this.pool = pool;
+		this.versions = new Versions<>();
+		this.lock = new ReentrantReadWriteLock();
+	}
+
+	public Version snapshot() {
+		return write(() -> versions.add(new Version()));
+	}
+
+	@Override
+	public Bitmap get(String key) {
+		return read(() -> pool.get(key).copy());
+	}
+
+	@Override
+	public void add(String key, int id) {
+		write(() -> {
+			versions.forEach(v -> v.keep(key));
+			pool.add(key, id);
+			return null;
+		});
+	}
+
+	@Override
+	public void add(String key, int[] ids) {
+		write(() -> {
+			versions.forEach(v -> v.keep(key));
+			pool.add(key, ids);
+			return null;
+		});
+	}
+
+	@Override
+	public void remove(String key, int id) {
+		write(() -> {
+			versions.forEach(v -> v.keep(key));
+			pool.remove(key, id);
+			return null;
+		});
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, Bitmap> consumer) {
+		read(() -> {
+			pool.forEach(consumer);
+			return null;
+		});
+	}
+
+	private <T> T read(Supplier<T> reader) {
+		lock.readLock().lock();
+		try {
+			return reader.get();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private <T> T write(Supplier<T> writer) {
+		lock.writeLock().lock();
+		try {
+			return writer.get();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public class Version implements ReadOnlyBitmapPool {
+		private final Map<String, Bitmap> bitmaps;
+
+		private Version() {
+			this.bitmaps = new HashMap<>();
+		}
+
+		public void release() {
+			versions.remove(this);
+		}
+
+		@Override
+		public Bitmap get(String key) {
+			return read(() -> {
+				Bitmap bitmap = bitmaps.get(key);
+				return bitmap != null ? bitmap : pool.get(key).copy();
+			});
+		}
+
+		@Override
+		public void forEach(BiConsumer<String, Bitmap> consumer) {
+			Map<String, Bitmap> result = new HashMap<>();
+			read(() -> {
+				pool.forEach((key, bitmap) -> {
+					if (!bitmaps.containsKey(key)) result.put(key, bitmap.copy());
+				});
+				bitmaps.forEach((key, bitmap) -> {
+					if (!bitmap.isEmpty()) result.put(key, bitmap);
+				});
+				return null;
+			});
+			result.forEach(consumer);
+		}
+
+		private void keep(String key) {
+			if (!bitmaps.containsKey(key)) bitmaps.put(key, pool.get(key).copy());
+		}
+	}
+}
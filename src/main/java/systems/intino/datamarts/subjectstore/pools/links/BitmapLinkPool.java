@@ -0,0 +1,116 @@
+package systems.intino.datamarts.subjectstore.pools.links;
+
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+import systems.intino.datamarts.subjectstore.pools.LinkPool;
+
+import java.util.*;
+
+public class BitmapLinkPool implements LinkPool {
+	private static final Bitmap Empty = new Bitmap();
+	private final List<Bitmap> termsBySubject;
+	private final List<Bitmap> subjectsByTerm;
+
+	public BitmapLinkPool() {
+		this.termsBySubject = new ArrayList<>();
+		this.subjectsByTerm = new ArrayList<>();
+	}
+
+	@Override
+	public boolean exists(int subject, int term) {
+		return subject >= 0 && term >= 0 && bitmapOf(termsBySubject, subject).contains(term);
+	}
+
+	@Override
+	public BitmapLinkPool add(int subject, int term) {
+		create(termsBySubject, subject).add(term);
+		create(subjectsByTerm, term).add(subject);
+		return this;
+	}
+
+	@Override
+	public BitmapLinkPool add(int subject, int[] terms) {
+		if (terms.length == 0) return this;
+		Bitmap bitmap = create(termsBySubject, subject);
+		for (int term : terms) {
+			bitmap.add(term);
+			create(subjectsByTerm, term).add(subject);
+		}
+		return this;
+	}
+
+	@Override
+	public List<Integer> remove(int subject) {
+		Bitmap terms = bitmapOf(termsBySubject, subject);
+		if (terms.isEmpty()) return new ArrayList<>();
+		terms.forEach(term -> bitmapOf(subjectsByTerm, term).remove(subject));
+		termsBySubject.set(subject, null);
+		return terms.toList();
+	}
+
+	@Override
+	public void remove(int subject, int term) {
+		if (subject < 0 || term < 0) return;
+		bitmapOf(termsBySubject, subject).remove(term);
+		bitmapOf(subjectsByTerm, term).remove(subject);
+	}
+
+	@Override
+	public List<Integer> termsOf(int subject) {
+		return bitmapOf(termsBySubject, subject).toList();
+	}
+
+	@Override
+	public List<Integer> subjectsWith(int term) {
+		return bitmapOf(subjectsByTerm, term).toList();
+	}
+
+	@Override
+	public boolean termIsUsed(int term) {
+		return !bitmapOf(subjectsByTerm, term).isEmpty();
+	}
+
+	@Override
+	public Bitmap subjectBitmapOf(int term) {
+		return bitmapOf(subjectsByTerm, term).copy();
+	}
+
+	@Override
+	public Bitmap termBitmapOf(int subject) {
+		return bitmapOf(termsBySubject, subject).copy();
+	}
+
+	@Override
+	public Iterator<int[]> iterator() {
+		return new Iterator<>() {
+			int subject = -1;
+			PrimitiveIterator.OfInt terms = Empty.iterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!terms.hasNext() && ++subject < termsBySubject.size())
+					terms = bitmapOf(termsBySubject, subject).iterator();
+				return terms.hasNext();
+			}
+
+			@Override
+			public int[] next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return new int[] {subject, terms.nextInt()};
+			}
+		};
+	}
+
+	private static Bitmap bitmapOf(List<Bitmap> bitmaps, int id) {
+		if (id < 0 || id >= bitmaps.size()) return Empty;
+		Bitmap bitmap = bitmaps.get(id);
+		return bitmap != null ? bitmap : Empty;
+	}
+
+	private static Bitmap create(List<Bitmap> bitmaps, int id) {
+		while (bitmaps.size() <= id) bitmaps.add(null);
+		Bitmap bitmap = bitmaps.get(id);
+		if (bitmap == null) bitmaps.set(id, bitmap = new Bitmap());
+		return bitmap;
+	}
+
+}
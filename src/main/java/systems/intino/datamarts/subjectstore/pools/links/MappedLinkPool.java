@@ -0,0 +1,110 @@
+package systems.intino.datamarts.subjectstore.pools.links;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+import systems.intino.datamarts.subjectstore.helpers.MappedPostings;
+import systems.intino.datamarts.subjectstore.pools.LinkPool;
+
+import java.util.*;
+
+public class MappedLinkPool implements LinkPool {
+	private final MappedPostings termsBySubject;
+	private final MappedPostings subjectsByTerm;
+	private final Int2ObjectMap<Bitmap> subjectDelta;
+	private final Int2ObjectMap<Bitmap> termDelta;
+	private int subjects;
+
+	public MappedLinkPool(MappedPostings termsBySubject, MappedPostings subjectsByTerm) {
+		this.termsBySubject = termsBySubject;
+		this.subjectsByTerm = subjectsByTerm;
+		this.subjectDelta = new Int2ObjectOpenHashMap<>();
+		this.termDelta = new Int2ObjectOpenHashMap<>();
+		this.subjects = termsBySubject.size();
+	}
+
+	@Override
+	public boolean exists(int subject, int term) {
+		Bitmap terms = subjectDelta.get(subject);
+		return terms != null ? terms.contains(term) : termsBySubject.contains(subject, term);
+	}
+
+	@Override
+	public MappedLinkPool add(int subject, int term) {
+		writable(subjectDelta, termsBySubject, subject).add(term);
+		writable(termDelta, subjectsByTerm, term).add(subject);
+		subjects = Math.max(subjects, subject + 1);
+		return this;
+	}
+
+	@Override
+	public List<Integer> remove(int subject) {
+		Bitmap terms = termBitmapOf(subject);
+		terms.forEach(term -> writable(termDelta, subjectsByTerm, term).remove(subject));
+		subjectDelta.put(subject, new Bitmap());
+		return terms.toList();
+	}
+
+	@Override
+	public void remove(int subject, int term) {
+		if (subject < 0 || term < 0) return;
+		writable(subjectDelta, termsBySubject, subject).remove(term);
+		writable(termDelta, subjectsByTerm, term).remove(subject);
+	}
+
+	@Override
+	public List<Integer> termsOf(int subject) {
+		return termBitmapOf(subject).toList();
+	}
+
+	@Override
+	public List<Integer> subjectsWith(int term) {
+		return subjectBitmapOf(term).toList();
+	}
+
+	@Override
+	public boolean termIsUsed(int term) {
+		Bitmap subjects = termDelta.get(term);
+		return subjects != null ? !subjects.isEmpty() : subjectsByTerm.length(term) > 0;
+	}
+
+	@Override
+	public Bitmap subjectBitmapOf(int term) {
+		Bitmap subjects = termDelta.get(term);
+		return subjects != null ? subjects.copy() : subjectsByTerm.bitmap(term);
+	}
+
+	@Override
+	public Bitmap termBitmapOf(int subject) {
+		Bitmap terms = subjectDelta.get(subject);
+		return terms != null ? terms.copy() : termsBySubject.bitmap(subject);
+	}
+
+	@Override
+	public Iterator<int[]> iterator() {
+		return new Iterator<>() {
+			int subject = -1;
+			PrimitiveIterator.OfInt terms = new Bitmap().iterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!terms.hasNext() && ++subject < subjects)
+					terms = termBitmapOf(subject).iterator();
+				return terms.hasNext();
+			}
+
+			@Override
+			public int[] next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return new int[] {subject, terms.nextInt()};
+			}
+		};
+	}
+
+	private static Bitmap writable(Int2ObjectMap<Bitmap> delta, MappedPostings base, int id) {
+		Bitmap bitmap = delta.get(id);
+		if (bitmap == null) delta.put(id, bitmap = base.bitmap(id));
+		return bitmap;
+	}
+
+}
@@ -0,0 +1,59 @@
+package systems.intino.datamarts.subjectstore.pools.links;
+
+import systems.intino.datamarts.subjectstore.helpers.Triskel;
+import systems.intino.datamarts.subjectstore.pools.LinkPool;
+
+import java.util.Iterator;
+import java.util.List;
+
+public class TriskelLinkPool implements LinkPool {
+	private final Triskel triskel;
+
+	public TriskelLinkPool() {
+		this.triskel = new Triskel();
+	}
+
+	@Override
+	public boolean exists(int subject, int term) {
+		return subject >= 0 && term >= 0 && triskel.get(subject, term);
+	}
+
+	@Override
+	public TriskelLinkPool add(int subject, int term) {
+		triskel.set(subject, term);
+		return this;
+	}
+
+	@Override
+	public List<Integer> remove(int subject) {
+		List<Integer> ids = termsOf(subject);
+		ids.forEach(term -> triskel.unset(subject, term));
+		return ids;
+	}
+
+	@Override
+	public List<Integer> termsOf(int subject) {
+		return triskel.horizontalItemsIn(subject);
+	}
+
+	@Override
+	public void remove(int subject, int term) {
+		if (!triskel.get(subject, term)) return;
+		triskel.unset(subject, term);
+	}
+
+	@Override
+	public boolean termIsUsed(int term) {
+		return triskel.isColActive(term);
+	}
+
+	@Override
+	public List<Integer> subjectsWith(int term) {
+		return triskel.verticalItemsIn(term);
+	}
+
+	@Override
+	public Iterator<int[]> iterator() {
+		return triskel.links().iterator();
+	}
+}
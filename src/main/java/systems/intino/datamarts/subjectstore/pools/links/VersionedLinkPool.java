@@ -0,0 +1,217 @@
+package systems.intino.datamarts.subjectstore.pools.links;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+import systems.intino.datamarts.subjectstore.helpers.Versions;
+import systems.intino.datamarts.subjectstore.pools.LinkPool;
+import systems.intino.datamarts.subjectstore.pools.ReadOnlyLinkPool;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+public class VersionedLinkPool implements LinkPool {
+	private final LinkPool pool;
+	private final Versions<Version> versions;
+	private final ReadWriteLock lock;
+
+	public VersionedLinkPool(LinkPool pool) {
+		this.pool = pool;
+		this.versions = new Versions<>();
+		this.lock = new ReentrantReadWriteLock();
+	}
+
+	public Version snapshot(int subjects) {
+		return write(() -> versions.add(new Version(subjects)));
+	}
+
+	@Override
+	public boolean exists(int subject, int term) {
+		return read(() -> pool.exists(subject, term));
+	}
+
+	@Override
+	public VersionedLinkPool add(int subject, int term) {
+		return write(() -> {
+			versions.forEach(v -> v.keepSubject(subject).keepTerm(term));
+			pool.add(subject, term);
+			return this;
+		});
+	}
+
+	@Override
+	public VersionedLinkPool add(int subject, int[] terms) {
+		return write(() -> {
+			versions.forEach(v -> {
+				v.keepSubject(subject);
+				for (int term : terms) v.keepTerm(term);
+			});
+			pool.add(subject, terms);
+			return this;
+		});
+	}
+
+	@Override
+	public List<Integer> remove(int subject) {
+		return write(() -> {
+			versions.forEach(v -> {
+				v.keepSubject(subject);
+				pool.termBitmapOf(subject).forEach(v::keepTerm);
+			});
+			return pool.remove(subject);
+		});
+	}
+
+	@Override
+	public void remove(int subject, int term) {
+		if (subject < 0 || term < 0) return;
+		write(() -> {
+			versions.forEach(v -> v.keepSubject(subject).keepTerm(term));
+			pool.remove(subject, term);
+			return null;
+		});
+	}
+
+	@Override
+	public List<Integer> termsOf(int subject) {
+		return read(() -> pool.termsOf(subject));
+	}
+
+	@Override
+	public List<Integer> subjectsWith(int term) {
+		return read(() -> pool.subjectsWith(term));
+	}
+
+	@Override
+	public boolean termIsUsed(int term) {
+		return read(() -> pool.termIsUsed(term));
+	}
+
+	@Override
+	public Bitmap subjectBitmapOf(int term) {
+		return read(() -> pool.subjectBitmapOf(term));
+	}
+
+	@Override
+	public Bitmap termBitmapOf(int subject) {
+		return read(() -> pool.termBitmapOf(subject));
+	}
+
+	@Override
+	public Iterator<int[]> iterator() {
+		return read(pool::iterator);
+	}
+
+	private <T> T read(Supplier<T> reader) {
+		lock.readLock().lock();
+		try {
+			return reader.get();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private <T> T write(Supplier<T> writer) {
+		lock.writeLock().lock();
+		try {
+			return writer.get();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public class Version implements ReadOnlyLinkPool {
+		private final int subjects;
+		private final Int2ObjectMap<Bitmap> termsBySubject;
+		private final Int2ObjectMap<Bitmap> subjectsByTerm;
+
+		private Version(int subjects) {
+			this.subjects = subjects;
+			this.termsBySubject = new Int2ObjectOpenHashMap<>();
+			this.subjectsByTerm = new Int2ObjectOpenHashMap<>();
+		}
+
+		public void release() {
+			versions.remove(this);
+		}
+
+		@Override
+		public boolean exists(int subject, int term) {
+			return read(() -> {
+				Bitmap terms = termsBySubject.get(subject);
+				return terms != null ? terms.contains(term) : pool.exists(subject, term);
+			});
+		}
+
+		@Override
+		public List<Integer> termsOf(int subject) {
+			return termBitmapOf(subject).toList();
+		}
+
+		@Override
+		public List<Integer> subjectsWith(int term) {
+			return subjectBitmapOf(term).toList();
+		}
+
+		@Override
+		public boolean termIsUsed(int term) {
+			return read(() -> {
+				Bitmap subjects = subjectsByTerm.get(term);
+				return subjects != null ? !subjects.isEmpty() : pool.termIsUsed(term);
+			});
+		}
+
+		@Override
+		public Bitmap subjectBitmapOf(int term) {
+			return read(() -> {
+				Bitmap subjects = subjectsByTerm.get(term);
+				return subjects != null ? subjects.copy() : pool.subjectBitmapOf(term);
+			});
+		}
+
+		@Override
+		public Bitmap termBitmapOf(int subject) {
+			return read(() -> {
+				Bitmap terms = termsBySubject.get(subject);
+				return terms != null ? terms.copy() : pool.termBitmapOf(subject);
+			});
+		}
+
+		@Override
+		public Iterator<int[]> iterator() {
+			return new Iterator<>() {
+				int subject = -1;
+				PrimitiveIterator.OfInt terms = IntStream.empty().iterator();
+
+				@Override
+				public boolean hasNext() {
+					while (!terms.hasNext() && ++subject < subjects)
+						terms = termBitmapOf(subject).iterator();
+					return terms.hasNext();
+				}
+
+				@Override
+				public int[] next() {
+					if (!hasNext()) throw new NoSuchElementException();
+					return new int[] {subject, terms.nextInt()};
+				}
+			};
+		}
+
+		private Version keepSubject(int subject) {
+			if (!termsBySubject.containsKey(subject)) termsBySubject.put(subject, pool.termBitmapOf(subject));
+			return this;
+		}
+
+		private Version keepTerm(int term) {
+			if (!subjectsByTerm.containsKey(term)) subjectsByTerm.put(term, pool.subjectBitmapOf(term));
+			return this;
+		}
+	}
+}
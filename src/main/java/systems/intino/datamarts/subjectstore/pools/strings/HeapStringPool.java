@@ -0,0 +1,69 @@
+package systems.intino.datamarts.subjectstore.pools.strings;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import systems.intino.datamarts.subjectstore.pools.StringPool;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+public class HeapStringPool implements StringPool {
+	private final List<String> values;
+	private final Object2IntMap<String> index;
+
+	public HeapStringPool() {
+		this.values = new ArrayList<>();
+		this.index = new Object2IntOpenHashMap<>();
+		this.index.defaultReturnValue(-1);
+	}
+
+	@Override
+	public int size() {
+		return values.size();
+	}
+
+	@Override
+	public String get(int id) {
+		return values.get(id);
+	}
+
+	@Override
+	public int id(String value) {
+		return value != null ? index.getInt(value) : -1;
+	}
+
+	@Override
+	public int add(String value) {
+		int id = id(value);
+		return id >= 0 ? id : create(value);
+	}
+
+	@Override
+	public int create(String value) {
+		values.add(value);
+		int id = values.size() - 1;
+		index.putIfAbsent(value, id);
+		return id;
+	}
+
+	@Override
+	public void create(String[] values) {
+		int base = this.values.size();
+		this.values.addAll(Arrays.asList(values));
+		for (int i = 0; i < values.length; i++) index.putIfAbsent(values[i], base + i);
+	}
+
+	@Override
+	public void fix(int id, String value) {
+		String old = values.get(id);
+		if (old != null && index.getInt(old) == id) index.removeInt(old);
+		values.set(id, value);
+		if (value != null) index.put(value, id);
+	}
+
+	@Override
+	public Stream<String> stream() {
+		return values.stream().filter(Objects::nonNull);
+	}
+
+}
@@ -0,0 +1,70 @@
+package systems.intino.datamarts.subjectstore.pools.strings;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import systems.intino.datamarts.subjectstore.helpers.MappedDictionary;
+import systems.intino.datamarts.subjectstore.pools.StringPool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MappedStringPool implements StringPool {
+	private final MappedDictionary base;
+	private final List<String> values;
+	private final Int2ObjectMap<String> fixes;
+	private final Object2IntMap<String> index;
+
+	public MappedStringPool(MappedDictionary base) {
+		this.base = base;
+		this.values = new ArrayList<>();
+		this.fixes = new Int2ObjectOpenHashMap<>();
+		this.index = new Object2IntOpenHashMap<>();
+		this.index.defaultReturnValue(-1);
+	}
+
+	@Override
+	public int size() {
+		return base.size() + values.size();
+	}
+
+	@Override
+	public String get(int id) {
+		if (id >= base.size()) return values.get(id - base.size());
+		return fixes.containsKey(id) ? fixes.get(id) : base.get(id);
+	}
+
+	@Override
+	public int id(String value) {
+		if (value == null) return -1;
+		int id = index.getInt(value);
+		if (id >= 0) return id;
+		id = base.find(value);
+		return id >= 0 && !fixes.containsKey(id) ? id : -1;
+	}
+
+	@Override
+	public int add(String value) {
+		int id = id(value);
+		return id >= 0 ? id : create(value);
+	}
+
+	@Override
+	public int create(String value) {
+		values.add(value);
+		int id = size() - 1;
+		if (id(value) < 0) index.put(value, id);
+		return id;
+	}
+
+	@Override
+	public void fix(int id, String value) {
+		String old = get(id);
+		if (old != null && index.getInt(old) == id) index.removeInt(old);
+		if (id < base.size()) fixes.put(id, value);
+		else values.set(id - base.size(), value);
+		if (value != null) index.put(value, id);
+	}
+
+}
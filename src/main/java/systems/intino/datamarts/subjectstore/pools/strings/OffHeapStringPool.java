@@ -0,0 +1,240 @@
+package systems.intino.datamarts.subjectstore.pools.strings;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import systems.intino.datamarts.subjectstore.pools.StringPool;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class OffHeapStringPool implements StringPool {
+	private static final int BlockSize = 16;
+	private static final int ChunkBits = 20;
+	private static final int ChunkSize = 1 << ChunkBits;
+	private static final int MinFixes = 1024;
+	private static final int Empty = 0;
+	private static final int Deleted = -1;
+
+	private final Int2ObjectMap<String> fixes;
+	private final BitSet removed;
+	private Store store;
+	private int[] hashes;
+	private int[] slots;
+	private int used;
+	private int size;
+
+	public OffHeapStringPool() {
+		this.fixes = new Int2ObjectOpenHashMap<>();
+		this.removed = new BitSet();
+		this.store = new Store();
+		this.hashes = new int[1024];
+		this.slots = new int[2048];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public long bytes() {
+		return store.position;
+	}
+
+	@Override
+	public String get(int id) {
+		if (id < 0 || id >= size) throw new IndexOutOfBoundsException("Index " + id + " out of bounds for length " + size);
+		if (fixes.containsKey(id)) return fixes.get(id);
+		if (removed.get(id)) return null;
+		return new String(store.bytesOf(id), UTF_8);
+	}
+
+	@Override
+	public int id(String value) {
+		if (value == null) return -1;
+		int slot = slotOf(value, value.getBytes(UTF_8));
+		return slot >= 0 ? slots[slot] - 1 : -1;
+	}
+
+	@Override
+	public int add(String value) {
+		int id = id(value);
+		return id >= 0 ? id : create(value);
+	}
+
+	@Override
+	public int create(String value) {
+		byte[] bytes = value.getBytes(UTF_8);
+		boolean exists = slotOf(value, bytes) >= 0;
+		int id = size++;
+		store.append(id, bytes);
+		if (id >= hashes.length) hashes = Arrays.copyOf(hashes, hashes.length * 2);
+		hashes[id] = value.hashCode();
+		if (!exists) insert(id);
+		return id;
+	}
+
+	@Override
+	public void fix(int id, String value) {
+		String old = get(id);
+		if (old != null) unlink(id, old);
+		fixes.put(id, value);
+		if (value != null) {
+			int slot = slotOf(value, value.getBytes(UTF_8));
+			if (slot >= 0) slots[slot] = Deleted;
+			hashes[id] = value.hashCode();
+			insert(id);
+		}
+		if (fixes.size() > Math.max(MinFixes, size >> 3)) compact();
+	}
+
+	private void compact() {
+		Store compacted = new Store();
+		long[] cursor = {0};
+		byte[] current = new byte[0];
+		for (int id = 0; id < size; id++) {
+			current = store.next(cursor, current);
+			if (fixes.containsKey(id)) {
+				String value = fixes.get(id);
+				removed.set(id, value == null);
+				compacted.append(id, value != null ? value.getBytes(UTF_8) : new byte[0]);
+			}
+			else compacted.append(id, removed.get(id) ? new byte[0] : current);
+		}
+		store.release();
+		store = compacted;
+		fixes.clear();
+	}
+
+	private int slotOf(String value, byte[] bytes) {
+		int hash = value.hashCode();
+		int mask = slots.length - 1;
+		for (int i = HashCommon.mix(hash) & mask; slots[i] != Empty; i = (i + 1) & mask) {
+			if (slots[i] == Deleted) continue;
+			int id = slots[i] - 1;
+			if (hashes[id] == hash && matches(id, value, bytes)) return i;
+		}
+		return -1;
+	}
+
+	private boolean matches(int id, String value, byte[] bytes) {
+		return fixes.containsKey(id) ? value.equals(fixes.get(id)) : Arrays.equals(store.bytesOf(id), bytes);
+	}
+
+	private void insert(int id) {
+		if ((used + 1) * 4L > slots.length * 3L) rehash();
+		int mask = slots.length - 1;
+		int i = HashCommon.mix(hashes[id]) & mask;
+		while (slots[i] > 0) i = (i + 1) & mask;
+		if (slots[i] == Empty) used++;
+		slots[i] = id + 1;
+	}
+
+	private void unlink(int id, String value) {
+		int mask = slots.length - 1;
+		for (int i = HashCommon.mix(value.hashCode()) & mask; slots[i] != Empty; i = (i + 1) & mask)
+			if (slots[i] == id + 1) {
+				slots[i] = Deleted;
+				return;
+			}
+	}
+
+	private void rehash() {
+		int[] old = slots;
+		int live = (int) Arrays.stream(old).filter(s -> s > 0).count();
+		this.slots = new int[live * 4 > old.length ? old.length * 2 : old.length];
+		this.used = 0;
+		for (int slot : old)
+			if (slot > 0) insert(slot - 1);
+	}
+
+	private static int commonPrefix(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		int i = 0;
+		while (i < length && a[i] == b[i]) i++;
+		return i;
+	}
+
+	private static class Store {
+		private final List<ByteBuffer> chunks = new ArrayList<>();
+		private long[] blocks = new long[64];
+		private long position;
+		private byte[] last = new byte[0];
+
+		void append(int id, byte[] bytes) {
+			if (id % BlockSize == 0) {
+				if (id / BlockSize >= blocks.length) blocks = Arrays.copyOf(blocks, blocks.length * 2);
+				blocks[id / BlockSize] = position;
+			}
+			int prefix = id % BlockSize == 0 ? 0 : commonPrefix(last, bytes);
+			writeVarint(prefix);
+			writeVarint(bytes.length - prefix);
+			for (int i = prefix; i < bytes.length; i++) write(bytes[i]);
+			last = bytes;
+		}
+
+		byte[] bytesOf(int id) {
+			long[] cursor = {blocks[id / BlockSize]};
+			byte[] current = new byte[0];
+			for (int i = id - id % BlockSize; i <= id; i++) current = next(cursor, current);
+			return current;
+		}
+
+		byte[] next(long[] cursor, byte[] current) {
+			int prefix = readVarint(cursor);
+			int suffix = readVarint(cursor);
+			byte[] next = Arrays.copyOf(current, prefix + suffix);
+			read(cursor, next, prefix, suffix);
+			return next;
+		}
+
+		void release() {
+			chunks.clear();
+			blocks = new long[0];
+		}
+
+		private void writeVarint(int value) {
+			while ((value & ~0x7F) != 0) {
+				write((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			write((byte) value);
+		}
+
+		private void write(byte value) {
+			int chunk = (int) (position >>> ChunkBits);
+			if (chunk == chunks.size()) chunks.add(ByteBuffer.allocateDirect(ChunkSize));
+			chunks.get(chunk).put((int) (position & (ChunkSize - 1)), value);
+			position++;
+		}
+
+		private int readVarint(long[] cursor) {
+			int value = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = read(cursor[0]++);
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) return value;
+			}
+		}
+
+		private void read(long[] cursor, byte[] target, int offset, int length) {
+			while (length > 0) {
+				int index = (int) (cursor[0] & (ChunkSize - 1));
+				int count = Math.min(length, ChunkSize - index);
+				chunks.get((int) (cursor[0] >>> ChunkBits)).get(index, target, offset, count);
+				cursor[0] += count;
+				offset += count;
+				length -= count;
+			}
+		}
+
+		private byte read(long position) {
+			return chunks.get((int) (position >>> ChunkBits)).get((int) (position & (ChunkSize - 1)));
+		}
+	}
+}
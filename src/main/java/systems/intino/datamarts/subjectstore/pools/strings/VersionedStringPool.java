@@ -0,0 +1,145 @@
+package systems.intino.datamarts.subjectstore.pools.strings;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import systems.intino.datamarts.subjectstore.helpers.Versions;
+import systems.intino.datamarts.subjectstore.pools.ReadOnlyStringPool;
+import systems.intino.datamarts.subjectstore.pools.StringPool;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+public class VersionedStringPool implements StringPool {
+	private final StringPool pool;
+	private final Versions<Version> versions;
+	private final ReadWriteLock lock;
+
+	public VersionedStringPool(StringPool pool) {
+		this.pool = pool;
+		this.versions = new Versions<>();
+		this.lock = new ReentrantReadWriteLock();
+	}
+
+	public Version snapshot() {
+		return write(() -> versions.add(new Version()));
+	}
+
+	@Override
+	public int size() {
+		return read(pool::size);
+	}
+
+	@Override
+	public String get(int id) {
+		return read(() -> pool.get(id));
+	}
+
+	@Override
+	public int id(String value) {
+		return read(() -> pool.id(value));
+	}
+
+	@Override
+	public int add(String value) {
+		int id = id(value);
+		return id >= 0 ? id : write(() -> {
+			int current = pool.id(value);
+			return current >= 0 ? current : doCreate(value);
+		});
+	}
+
+	@Override
+	public int create(String value) {
+		return write(() -> doCreate(value));
+	}
+
+	@Override
+	public void create(String[] values) {
+		write(() -> {
+			versions.forEach(v -> {
+				for (String value : values) v.keep(value);
+			});
+			pool.create(values);
+			return null;
+		});
+	}
+
+	@Override
+	public void fix(int id, String value) {
+		write(() -> {
+			String old = pool.get(id);
+			versions.forEach(v -> v.keep(id, old).keep(old).keep(value));
+			pool.fix(id, value);
+			return null;
+		});
+	}
+
+	private int doCreate(String value) {
+		versions.forEach(v -> v.keep(value));
+		return pool.create(value);
+	}
+
+	private <T> T read(Supplier<T> reader) {
+		lock.readLock().lock();
+		try {
+			return reader.get();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private <T> T write(Supplier<T> writer) {
+		lock.writeLock().lock();
+		try {
+			return writer.get();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public class Version implements ReadOnlyStringPool {
+		private final int size;
+		private final Int2ObjectMap<String> values;
+		private final Object2IntMap<String> ids;
+
+		private Version() {
+			this.size = pool.size();
+			this.values = new Int2ObjectOpenHashMap<>();
+			this.ids = new Object2IntOpenHashMap<>();
+		}
+
+		public void release() {
+			versions.remove(this);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public String get(int id) {
+			if (id < 0 || id >= size) throw new IndexOutOfBoundsException("Index " + id + " out of bounds for length " + size);
+			return read(() -> values.containsKey(id) ? values.get(id) : pool.get(id));
+		}
+
+		@Override
+		public int id(String value) {
+			if (value == null) return -1;
+			return read(() -> ids.containsKey(value) ? ids.getInt(value) : pool.id(value));
+		}
+
+		private Version keep(int id, String value) {
+			if (id < size && !values.containsKey(id)) values.put(id, value);
+			return this;
+		}
+
+		private Version keep(String value) {
+			if (value != null && !ids.containsKey(value)) ids.put(value, pool.id(value));
+			return this;
+		}
+	}
+}
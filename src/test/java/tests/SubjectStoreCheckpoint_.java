@@ -0,0 +1,192 @@
+package tests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.SubjectStore;
+import systems.intino.datamarts.subjectstore.model.Subject;
+import systems.intino.datamarts.subjectstore.model.Triple;
+import systems.intino.datamarts.subjectstore.model.journals.GroupCommitJournal.Policy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings({"ResultOfMethodCallIgnored", "NewClassNamingConvention"})
+public class SubjectStoreCheckpoint_ {
+	private File directory;
+	private File index;
+	private File journal;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("checkpoint").toFile();
+		index = new File(directory, "index.triples");
+		journal = new File(directory, "index.triples.journal");
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) Arrays.stream(files).forEach(File::delete);
+		directory.delete();
+	}
+
+	@Test
+	public void should_write_changes_to_a_segment_and_truncate_the_journal() throws Exception {
+		SubjectStore store = new SubjectStore(index);
+		populate(store);
+		store.seal();
+		store.open("b1", "building").update().set("city", "paris").put("floor", 3);
+		store.checkpoint();
+		assertThat(journal.exists()).isFalse();
+		assertThat(segments()).containsExactly("index.triples.segment.2");
+		store.open("b2", "building").update().set("city", "oslo");
+		store.close();
+
+		SubjectStore reopened = new SubjectStore(index);
+		assertThat(reopened.open("b1", "building").get("city")).isEqualTo("paris");
+		assertThat(reopened.open("b1", "building").terms().stream().filter(t -> t.is("floor")).count()).isEqualTo(2);
+		assertThat(reopened.open("b2", "building").get("city")).isEqualTo("oslo");
+		assertThat(reopened.query().isType("building").size()).isEqualTo(10);
+		reopened.close();
+	}
+
+	@Test
+	public void should_replay_drops_and_renames_of_subtrees_from_segments() throws Exception {
+		SubjectStore store = new SubjectStore(index);
+		populate(store);
+		store.seal();
+		store.open("b1", "building").drop();
+		store.open("b2", "building").rename("tower");
+		store.create("b1", "building").update().put("rebuilt", "true");
+		store.checkpoint();
+		List<Triple> expected = triplesOf(store);
+		store.close();
+
+		SubjectStore reopened = new SubjectStore(index);
+		assertThat(triplesOf(reopened)).containsExactlyInAnyOrderElementsOf(expected);
+		assertThat(reopened.has("b1.building/f0.floor")).isFalse();
+		assertThat(reopened.has("tower.building/f0.floor")).isTrue();
+		assertThat(reopened.has("b2.building")).isFalse();
+		reopened.close();
+	}
+
+	@Test
+	public void should_merge_segments_and_fold_them_into_the_index_on_seal() throws Exception {
+		SubjectStore store = new SubjectStore(index);
+		populate(store);
+		for (int i = 0; i < 12; i++) {
+			store.open("b" + i % 9, "building").update().set("visits", i);
+			if (i == 5) store.open("b9", "building").drop();
+			store.checkpoint();
+		}
+		assertThat(segments().size()).isLessThanOrEqualTo(8);
+		List<Triple> expected = triplesOf(store);
+		store.close();
+
+		SubjectStore reopened = new SubjectStore(index);
+		assertThat(triplesOf(reopened)).containsExactlyInAnyOrderElementsOf(expected);
+		reopened.seal();
+		assertThat(segments()).isEmpty();
+		assertThat(journal.exists()).isFalse();
+		reopened.close();
+		assertThat(triplesOf(new SubjectStore(index))).containsExactlyInAnyOrderElementsOf(expected);
+	}
+
+	@Test
+	public void should_merge_segments_into_a_new_generation() throws Exception {
+		SubjectStore store = new SubjectStore(index);
+		populate(store);
+		for (int i = 0; i < 9; i++) {
+			store.open("b" + i, "building").update().set("visits", i);
+			store.checkpoint();
+		}
+		assertThat(segments()).containsExactly("index.triples.segment.10");
+		store.open("b0", "building").update().set("visits", 99);
+		store.checkpoint();
+		assertThat(segments()).containsExactly("index.triples.segment.10", "index.triples.segment.11");
+		store.close();
+
+		SubjectStore reopened = new SubjectStore(index);
+		assertThat(reopened.open("b0", "building").get("visits")).isEqualTo("99");
+		assertThat(reopened.open("b8", "building").get("visits")).isEqualTo("8");
+		reopened.close();
+	}
+
+	@Test
+	public void should_replay_a_rotated_journal_left_by_an_interrupted_checkpoint() throws Exception {
+		SubjectStore store = new SubjectStore(index);
+		populate(store);
+		store.seal();
+		store.open("b3", "building").update().set("city", "rome");
+		store.close();
+		journal.renameTo(new File(directory, "index.triples.journal.5"));
+
+		SubjectStore reopened = new SubjectStore(index);
+		assertThat(reopened.open("b3", "building").get("city")).isEqualTo("rome");
+		assertThat(new File(directory, "index.triples.journal.5").exists()).isFalse();
+		reopened.checkpoint();
+		assertThat(segments()).containsExactly("index.triples.segment.6");
+		reopened.close();
+	}
+
+	@Test
+	public void should_apply_segments_over_a_mapped_index() throws Exception {
+		SubjectStore store = new SubjectStore(index);
+		populate(store);
+		store.seal();
+		store.open("b4", "building").update().set("city", "lima");
+		store.open("b5", "building").drop();
+		store.checkpoint();
+		List<Triple> expected = triplesOf(store);
+		store.close();
+
+		SubjectStore mapped = SubjectStore.mapped(index);
+		assertThat(triplesOf(mapped)).containsExactlyInAnyOrderElementsOf(expected);
+		mapped.close();
+	}
+
+	@Test
+	public void should_checkpoint_in_background_while_writes_continue() throws Exception {
+		SubjectStore store = new SubjectStore(index, Policy.defaults());
+		populate(store);
+		List<Future<?>> checkpoints = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			store.open("b" + i % 10, "building").update().set("counter", i);
+			if (i % 20 == 0) checkpoints.add(store.checkpointInBackground());
+		}
+		for (Future<?> checkpoint : checkpoints) checkpoint.get();
+		List<Triple> expected = triplesOf(store);
+		store.close();
+
+		SubjectStore reopened = new SubjectStore(index);
+		assertThat(triplesOf(reopened)).containsExactlyInAnyOrderElementsOf(expected);
+		reopened.close();
+	}
+
+	private static void populate(SubjectStore store) {
+		for (int i = 0; i < 10; i++) {
+			Subject building = store.create("b" + i, "building");
+			building.update().set("city", "city" + i).put("floor", i);
+			for (int f = 0; f < 3; f++) building.create("f" + f, "floor").update().put("rooms", f * 10);
+		}
+	}
+
+	private static List<Triple> triplesOf(SubjectStore store) {
+		List<Triple> result = new ArrayList<>();
+		store.triples().forEach(result::add);
+		return result;
+	}
+
+	private List<String> segments() {
+		String[] names = directory.list((dir, name) -> name.contains(".segment."));
+		return names == null ? List.of() : Arrays.stream(names).sorted().toList();
+	}
+}
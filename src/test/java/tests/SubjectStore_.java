@@ -6,8 +6,12 @@ import org.junit.Test;
 import systems.intino.datamarts.subjectstore.SubjectHistory;
 import systems.intino.datamarts.subjectstore.SubjectStore;
 import systems.intino.datamarts.subjectstore.model.Subject;
+import systems.intino.datamarts.subjectstore.model.Journal.Transaction;
+import systems.intino.datamarts.subjectstore.model.journals.GroupCommitJournal;
+import systems.intino.datamarts.subjectstore.model.journals.GroupCommitJournal.Policy;
 
 import java.io.*;
+import java.lang.ref.WeakReference;
 import java.sql.Connection;
 import java.sql.DriverManager;
 
@@ -102,6 +106,80 @@ public class SubjectStore_ {
 		}
 	}
 
+	@Test
+	public void should_serve_a_sealed_store_from_a_memory_mapped_snapshot() throws Exception {
+		File index = new File("mapped.triples");
+		File journal = new File(index.getAbsolutePath() + ".journal");
+		try {
+			SubjectStore store = new SubjectStore(index);
+			createSubjects(store);
+			store.seal();
+			SubjectStore mapped = SubjectStore.mapped(index);
+			test1(mapped);
+			test2(mapped);
+			mapped.open("taj_mahal", "building").drop();
+			assertThat(journal.exists()).isTrue();
+			test3(mapped);
+			test3(SubjectStore.mapped(index));
+			mapped.seal();
+			assertThat(journal.exists()).isFalse();
+			test3(mapped);
+			test3(SubjectStore.mapped(index));
+			test3(new SubjectStore(index));
+		}
+		finally {
+			index.delete();
+			journal.delete();
+		}
+	}
+
+	@Test
+	public void should_recover_subjects_written_through_a_group_commit_journal() throws Exception {
+		File index = new File("group-commit.triples");
+		File journal = new File(index.getAbsolutePath() + ".journal");
+		try {
+			SubjectStore store = new SubjectStore(index, Policy.defaults().everyTransactions(1000).everyMillis(0));
+			createSubjects(store);
+			assertThat(journal.exists()).isFalse();
+			store.sync();
+			assertThat(journal.exists()).isTrue();
+			test1(store);
+			store.close();
+
+			SubjectStore recovered = new SubjectStore(index, Policy.defaults().awaitingDurability());
+			test1(recovered);
+			recovered.open("taj_mahal", "building").drop();
+			recovered.close();
+			assertThat(new SubjectStore(index).has("taj_mahal", "building")).isFalse();
+		}
+		finally {
+			index.delete();
+			journal.delete();
+		}
+	}
+
+	@Test
+	public void should_flush_an_unclosed_group_commit_journal_until_it_is_collected() throws Exception {
+		File file = File.createTempFile("group-commit", ".journal");
+		file.delete();
+		try {
+			GroupCommitJournal journal = new GroupCommitJournal(file, Policy.defaults().everyMillis(10));
+			journal.add(new Transaction(Transaction.Type.put, "a.building", "name=A"));
+			for (int i = 0; i < 100 && !file.exists(); i++) Thread.sleep(10);
+			assertThat(file.exists()).isTrue();
+			WeakReference<GroupCommitJournal> reference = new WeakReference<>(journal);
+			journal = null;
+			for (int i = 0; i < 100 && reference.get() != null; i++) {
+				System.gc();
+				Thread.sleep(10);
+			}
+			assertThat(reference.get()).isNull();
+		}
+		finally {
+			file.delete();
+		}
+	}
+
 	private static void test1(SubjectStore store) {
 		Subject building = store.open("burj_khalifa", "building");
 
@@ -0,0 +1,172 @@
+package tests.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.SubjectHistory;
+import systems.intino.datamarts.subjectstore.SubjectHistoryVault;
+import systems.intino.datamarts.subjectstore.SubjectStore;
+import tests.Jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Instant;
+import java.time.Period;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("NewClassNamingConvention")
+public class ColumnHistoryRegistry_ {
+	private static final Instant day = Instant.parse("2025-03-25T00:00:00Z");
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("histories").toFile();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Test
+	public void should_answer_queries_as_the_sql_registry() throws Exception {
+		try (Connection connection = DriverManager.getConnection(Jdbc.sqlite())) {
+			connection.setAutoCommit(false);
+			SubjectHistory sql = new SubjectHistory("00001.sensor", connection);
+			SubjectHistory columns = new SubjectHistory("00001.sensor", directory);
+			for (SubjectHistory history : List.of(sql, columns)) feed(history);
+
+			SubjectHistory reopened = new SubjectHistory("00001.sensor", directory);
+			for (SubjectHistory history : List.of(columns, reopened)) {
+				assertThat(history.size()).isEqualTo(sql.size());
+				assertThat(history.tags()).containsExactlyInAnyOrderElementsOf(sql.tags());
+				assertThat(history.instants()).isEqualTo(sql.instants());
+				assertThat(history.ss(17)).isEqualTo(sql.ss(17));
+				assertThat(history.current().number("Level")).isEqualTo(sql.current().number("Level"));
+				assertThat(history.current().text("State")).isEqualTo(sql.current().text("State"));
+				Instant from = day.plus(20, DAYS), to = day.plus(80, DAYS);
+				assertThat(history.query().number("Level").get(from, to).points()).isEqualTo(sql.query().number("Level").get(from, to).points());
+				assertThat(history.query().text("State").get(from, to).points()).isEqualTo(sql.query().text("State").get(from, to).points());
+				assertThat(history.query().number("Level").reduce("mean", day, day.plus(120, DAYS), Period.ofDays(7)))
+						.containsExactly(sql.query().number("Level").reduce("mean", day, day.plus(120, DAYS), Period.ofDays(7)));
+				assertThat(dumpOf(history)).isEqualTo(dumpOf(sql));
+			}
+		}
+	}
+
+	@Test
+	public void should_discard_uncommitted_column_tails_on_reopen() throws Exception {
+		SubjectHistory history = new SubjectHistory("00002.sensor", directory);
+		for (int i = 0; i < 10; i++) history.on(day.plus(i, DAYS), "feed-" + i).put("Level", i).terminate();
+		File subject = new File(directory, "00002.sensor");
+		Files.write(new File(subject, "2.col").toPath(), new byte[] {1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+		Files.write(new File(subject, "ts").toPath(), new byte[] {7}, StandardOpenOption.APPEND);
+
+		SubjectHistory reopened = new SubjectHistory("00002.sensor", directory);
+		assertThat(reopened.size()).isEqualTo(10);
+		assertThat(reopened.query().number("Level").all().values()).containsExactly(0., 1., 2., 3., 4., 5., 6., 7., 8., 9.);
+		reopened.on(day.plus(10, DAYS), "feed-10").put("Level", 10).terminate();
+
+		SubjectHistory again = new SubjectHistory("00002.sensor", directory);
+		assertThat(again.last()).isEqualTo(day.plus(10, DAYS));
+		assertThat(again.query().number("Level").get(day.plus(8, DAYS), day.plus(10, DAYS)).values()).containsExactly(8., 9., 10.);
+		again.drop();
+		assertThat(new SubjectHistory("00002.sensor", directory).size()).isEqualTo(0);
+	}
+
+	@Test
+	public void should_read_columns_across_mapped_segments_while_they_grow() throws Exception {
+		SubjectHistory history = new SubjectHistory("00003.sensor", directory);
+		for (int round = 0; round < 3; round++) {
+			SubjectHistory.Batch batch = history.batch();
+			for (int i = round * 30_000; i < (round + 1) * 30_000; i++)
+				batch.on(day.plusSeconds(i), "feed-" + i).put("Level", i).terminate();
+			batch.terminate();
+			int size = (round + 1) * 30_000;
+			assertThat(history.size()).isEqualTo(size);
+			assertThat(history.current().number("Level")).isEqualTo(size - 1.);
+			assertThat(history.query().number("Level").get(day.plusSeconds(65_530), day.plusSeconds(65_540)).values())
+					.containsExactly(size > 65_540 ? IntStream.rangeClosed(65_530, 65_540).asDoubleStream().toArray() : new double[0]);
+		}
+		SubjectHistory reopened = new SubjectHistory("00003.sensor", directory);
+		double[] values = reopened.query().number("Level").all().values();
+		assertThat(values).hasSize(90_000);
+		assertThat(values[65_536]).isEqualTo(65_536.);
+	}
+
+	@Test
+	public void should_open_histories_from_a_directory_in_stores_and_vaults() throws Exception {
+		SubjectStore store = new SubjectStore(new File(directory, "index.triples")).historyDirectory(new File(directory, "histories"));
+		store.historyOf("b1.building").on(day, "feed").put("Level", 3).put("State", "ON").terminate();
+		assertThat(store.historyOf("b1.building").current().text("State")).isEqualTo("ON");
+		store.close();
+
+		try (SubjectHistoryVault vault = new SubjectHistoryVault(new File(directory, "histories"), 4)) {
+			List<String> subjects = IntStream.range(0, 50).mapToObj(i -> i + ".sensor").toList();
+			for (int i = 0; i < subjects.size(); i++) vault.open(subjects.get(i)).on(day, "feed").put("Level", i).terminate();
+			try (Stream<Double> levels = vault.parallel(subjects, h -> h.current().number("Level").doubleValue())) {
+				assertThat(levels.toList()).containsExactlyInAnyOrderElementsOf(IntStream.range(0, 50).mapToObj(i -> (double) i).toList());
+			}
+			assertThat(vault.open("b1.building").current().number("Level")).isEqualTo(3.);
+		}
+	}
+
+	@Test
+	public void should_reject_rollups_on_column_histories_and_keep_reducing_from_the_columns() throws Exception {
+		SubjectStore store = new SubjectStore(new File(directory, "index.triples")).historyDirectory(new File(directory, "histories"));
+		SubjectHistory history = store.historyOf("b1.building");
+		for (int i = 0; i < 48; i++) history.on(day.plusSeconds(i * 3600L), "feed-" + i).put("Level", i).terminate();
+		assertThat(history.supportsRollups()).isFalse();
+		assertThatThrownBy(history::enableRollups)
+				.isInstanceOf(SubjectHistory.RollupsNotSupportedException.class)
+				.hasMessageContaining("b1.building");
+		assertThat(history.hasRollups()).isFalse();
+		assertThat(history.query().number("Level").reduce("sum", day, day.plus(2, DAYS), Period.ofDays(1))).containsExactly(276., 852.);
+		store.close();
+
+		try (SubjectHistoryVault vault = new SubjectHistoryVault(new File(directory, "histories"), 1)) {
+			assertThatThrownBy(() -> vault.open("b1.building").enableRollups()).isInstanceOf(SubjectHistory.RollupsNotSupportedException.class);
+		}
+		try (Connection connection = DriverManager.getConnection(Jdbc.sqlite())) {
+			connection.setAutoCommit(false);
+			assertThat(new SubjectHistory("00001.sensor", connection).supportsRollups()).isTrue();
+		}
+	}
+
+	private static void feed(SubjectHistory history) {
+		Random random = new Random(3);
+		SubjectHistory.Batch batch = history.batch();
+		for (int i = 0; i < 300; i++) {
+			SubjectHistory.Transaction transaction = batch.on(day.plusSeconds(random.nextInt(100 * 86400)), "feed-" + i)
+					.put("Level", random.nextInt(1000) / 10.);
+			if (i % 3 == 0) transaction.put("State", "S" + random.nextInt(5));
+			transaction.terminate();
+		}
+		batch.terminate();
+		for (int i = 300; i < 320; i++)
+			history.on(day.plusSeconds(random.nextInt(100 * 86400)), "feed-" + i).put("Level", i).put("State", "late").terminate();
+	}
+
+	private static String dumpOf(SubjectHistory history) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		history.dump(os);
+		return os.toString();
+	}
+}
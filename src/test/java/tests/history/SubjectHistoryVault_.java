@@ -0,0 +1,161 @@
+package tests.history;
+
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.SubjectHistory;
+import systems.intino.datamarts.subjectstore.SubjectHistoryVault;
+import systems.intino.datamarts.subjectstore.io.database.SqlStatementProvider.Layout;
+import tests.Jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("NewClassNamingConvention")
+public class SubjectHistoryVault_ {
+	private static final Instant day = Instant.parse("2025-03-25T00:00:00Z");
+
+	@Test
+	public void should_reopen_histories_from_pooled_connections() throws Exception {
+		for (Layout layout : Layout.values())
+			try (SubjectHistoryVault vault = new SubjectHistoryVault(Jdbc.sqlite(), layout, 2)) {
+				for (int i = 0; i < 20; i++) feed(vault.open(i + ".sensor"), i);
+				for (int i = 0; i < 20; i++) {
+					SubjectHistory history = vault.open(i + ".sensor");
+					assertThat(history.size()).isEqualTo(3);
+					assertThat(history.current().number("Level")).isEqualTo(i * 10 + 2.);
+					assertThat(history.query().number("Level").get(day, day.plus(1, DAYS)).values()).containsExactly(i * 10., i * 10 + 1.);
+				}
+			}
+	}
+
+	@Test
+	public void should_reuse_and_evict_cached_statements_of_table_per_subject_histories() throws Exception {
+		try (SubjectHistoryVault vault = new SubjectHistoryVault(Jdbc.sqlite(), Layout.TablePerSubject, 1)) {
+			SubjectHistory pinned = vault.open("pinned.sensor");
+			pinned.on(day, "feed").put("Level", 1).terminate();
+			for (int i = 0; i < 150; i++)
+				try (SubjectHistory history = vault.open(i + ".sensor")) {
+					feed(history, i);
+				}
+			pinned.on(day.plus(1, DAYS), "feed").put("Level", 2).terminate();
+			assertThat(pinned.query().number("Level").get(day, day.plus(2, DAYS)).values()).containsExactly(1., 2.);
+			for (int i = 0; i < 150; i++)
+				try (SubjectHistory history = vault.open(i + ".sensor")) {
+					assertThat(history.current().number("Level")).isEqualTo(i * 10 + 2.);
+				}
+			pinned.close();
+		}
+	}
+
+	@Test
+	public void should_forget_cached_subject_ids_when_a_history_is_dropped() throws Exception {
+		try (SubjectHistoryVault vault = new SubjectHistoryVault(Jdbc.sqlite(), Layout.Shared)) {
+			feed(vault.open("1.sensor"), 1);
+			feed(vault.open("2.sensor"), 2);
+			vault.open("1.sensor").drop();
+			assertThat(vault.open("1.sensor").size()).isEqualTo(0);
+			feed(vault.open("1.sensor"), 5);
+			assertThat(vault.open("1.sensor").current().number("Level")).isEqualTo(52.);
+			assertThat(vault.open("2.sensor").current().number("Level")).isEqualTo(22.);
+		}
+	}
+
+	@Test
+	public void should_read_many_subjects_in_parallel_lanes() throws Exception {
+		try (SubjectHistoryVault vault = new SubjectHistoryVault(Jdbc.sqlite(), Layout.Shared, 4)) {
+			List<String> subjects = IntStream.range(0, 200).mapToObj(i -> i + ".sensor").toList();
+			for (int i = 0; i < subjects.size(); i++) feed(vault.open(subjects.get(i)), i);
+			try (Stream<Double> levels = vault.parallel(subjects, h -> h.current().number("Level").doubleValue())) {
+				assertThat(levels.toList()).containsExactlyInAnyOrderElementsOf(IntStream.range(0, 200).mapToObj(i -> i * 10 + 2.).toList());
+			}
+			List<SubjectHistory> histories = vault.openAll(subjects);
+			assertThat(histories).extracting(SubjectHistory::subject).containsExactlyElementsOf(subjects);
+			assertThat(histories).allMatch(h -> h.size() == 3);
+		}
+	}
+
+	@Test
+	public void should_propagate_failures_of_parallel_reads() throws Exception {
+		try (SubjectHistoryVault vault = new SubjectHistoryVault(Jdbc.sqlite(), Layout.Shared, 2)) {
+			feed(vault.open("1.sensor"), 1);
+			assertThatThrownBy(() -> {
+				try (Stream<Object> results = vault.parallel(List.of("1.sensor", "2.sensor"), h -> {
+					if (h.size() == 0) throw new IllegalStateException("empty " + h.subject());
+					return h.size();
+				})) {
+					results.toList();
+				}
+			}).isInstanceOf(IllegalStateException.class).hasMessage("empty 2.sensor");
+		}
+	}
+
+	@Test
+	public void should_propagate_errors_of_parallel_reads() throws Exception {
+		try (SubjectHistoryVault vault = new SubjectHistoryVault(Jdbc.sqlite(), Layout.Shared, 2)) {
+			assertThatThrownBy(() -> {
+				try (Stream<Object> results = vault.parallel(List.of("1.sensor", "2.sensor"), h -> {
+					throw new AssertionError("broken " + h.subject());
+				})) {
+					results.toList();
+				}
+			}).isInstanceOf(AssertionError.class);
+		}
+	}
+
+	@Test
+	public void should_share_lanes_between_parallel_reads_and_opened_histories() throws Exception {
+		try (SubjectHistoryVault vault = new SubjectHistoryVault(Jdbc.sqlite(), Layout.Shared, 1)) {
+			List<String> subjects = IntStream.range(0, 100).mapToObj(i -> i + ".sensor").toList();
+			for (int i = 0; i < subjects.size(); i++) feed(vault.open(subjects.get(i)), i);
+			Thread writer = Thread.ofVirtual().start(() -> {
+				for (int i = 0; i < 50; i++) feed(vault.open("other.sensor"), i);
+			});
+			for (int i = 0; i < 5; i++)
+				try (Stream<Double> levels = vault.parallel(subjects, h -> h.current().number("Level").doubleValue())) {
+					assertThat(levels.toList()).containsExactlyInAnyOrderElementsOf(IntStream.range(0, 100).mapToObj(j -> j * 10 + 2.).toList());
+				}
+			writer.join();
+			assertThat(vault.open("other.sensor").size()).isEqualTo(150);
+		}
+	}
+
+	@Test
+	public void should_read_the_same_rows_through_shared_lanes_as_through_a_private_connection() throws Exception {
+		String url = Jdbc.sqlite();
+		try (SubjectHistoryVault vault = new SubjectHistoryVault(url, Layout.TablePerSubject, 2)) {
+			SubjectHistory shared = vault.open("1.sensor");
+			for (int i = 0; i < 50; i++)
+				shared.on(day.plus(i, DAYS), "feed-" + i).put("Level", i + 0.5).put("Count", i).put("State", i % 2 == 0 ? "ON" : "OFF").terminate();
+			try (Connection connection = DriverManager.getConnection(url)) {
+				connection.setAutoCommit(false);
+				SubjectHistory own = new SubjectHistory("1.sensor", connection);
+				assertThat(dumpOf(shared)).isEqualTo(dumpOf(own));
+				assertThat(shared.instants()).isEqualTo(own.instants());
+				assertThat(shared.query().text("State").all().values()).isEqualTo(own.query().text("State").all().values());
+				assertThat(shared.query().number("Count").all().values()).isEqualTo(own.query().number("Count").all().values());
+				assertThat(shared.query().number("Level").all().values()).contains(49.5);
+				assertThat(shared.current().text("State")).isEqualTo("OFF");
+			}
+		}
+	}
+
+	private static String dumpOf(SubjectHistory history) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		history.dump(os);
+		return os.toString();
+	}
+
+	private static void feed(SubjectHistory history, int subject) {
+		for (int i = 0; i < 3; i++)
+			history.on(day.plus(i, DAYS), "feed-" + i).put("Level", subject * 10 + i).terminate();
+	}
+}
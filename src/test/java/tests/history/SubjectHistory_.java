@@ -4,20 +4,39 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import systems.intino.datamarts.subjectstore.TimeSpan;
+import systems.intino.datamarts.subjectstore.io.HistoryRegistry.Resolution;
+import systems.intino.datamarts.subjectstore.io.database.SqlHistoryRegistry;
+import systems.intino.datamarts.subjectstore.io.database.SqlStatementProvider.Layout;
 import systems.intino.datamarts.subjectstore.model.signals.CategoricalSignal;
 import systems.intino.datamarts.subjectstore.model.signals.NumericalSignal;
 import tests.Jdbc;
 import systems.intino.datamarts.subjectstore.SubjectHistory;
 import systems.intino.datamarts.subjectstore.model.Signal;
+import systems.intino.datamarts.subjectstore.model.reducers.NumberReducer;
 
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.Period;
+import java.time.temporal.TemporalAmount;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.time.temporal.ChronoUnit.DAYS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.Assume.assumeNoException;
 import static systems.intino.datamarts.subjectstore.TimeReferences.today;
 
 @SuppressWarnings("NewClassNamingConvention")
@@ -58,6 +77,207 @@ public class SubjectHistory_ {
 		assertThat(history.size()).isEqualTo(0);
 	}
 
+	@Test
+	public void should_resolve_ranges_when_feeds_arrive_out_of_order() {
+		SubjectHistory history = new SubjectHistory("00001.sensor", connection);
+		int[] days = {5, 1, 9, 3, 7, 3};
+		for (int i = 0; i < days.length; i++)
+			history.on(day.plus(days[i], DAYS), "feed-" + i).put("Level", days[i] * 10 + i).terminate();
+		assertThat(history.first()).isEqualTo(day.plus(1, DAYS));
+		assertThat(history.last()).isEqualTo(day.plus(9, DAYS));
+		assertThat(history.instants()).isSorted().hasSize(6);
+		assertThat(history.exists(day.plus(2, DAYS), day.plus(3, DAYS))).isFalse();
+		assertThat(history.exists(day.plus(2, DAYS), day.plus(4, DAYS))).isTrue();
+		assertThat(history.query().number("Level").get(day.plus(3, DAYS), day.plus(5, DAYS)).values()).containsExactly(33., 35., 50.);
+		assertThat(history.query().number("Level").get(day.plus(6, DAYS), day.plus(8, DAYS)).values()).containsExactly(74.);
+		assertThat(history.query().number("Level").get(day.plus(10, DAYS), day.plus(20, DAYS)).isEmpty()).isTrue();
+		assertThat(history.current().number("Level")).isEqualTo(92.);
+	}
+
+	@Test
+	public void should_ingest_a_batch_of_feeds_in_a_few_round_trips() {
+		AtomicInteger executions = new AtomicInteger();
+		SubjectHistory history = new SubjectHistory("00002.sensor", counting(connection, executions));
+		executions.set(0);
+		SubjectHistory.Batch batch = history.batch();
+		for (int i = 0; i < 2000; i++)
+			batch.on(day.plusSeconds(i * 60L), "feed-" + i).put("Level", i).put("State", categories.substring(i % 10, i % 10 + 1)).terminate();
+		batch.terminate();
+		assertThat(executions.get()).isLessThan(20);
+
+		SubjectHistory reloaded = new SubjectHistory("00002.sensor", connection);
+		assertThat(reloaded.size()).isEqualTo(2000);
+		assertThat(reloaded.last()).isEqualTo(day.plusSeconds(1999 * 60L));
+		assertThat(reloaded.current().number("Level")).isEqualTo(1999.);
+		assertThat(reloaded.current().text("State")).isEqualTo("E");
+		assertThat(reloaded.query().number("Level").get(day, day.plusSeconds(600)).values()).containsExactly(0., 1., 2., 3., 4., 5., 6., 7., 8., 9., 10.);
+	}
+
+	@Test
+	public void should_keep_subjects_apart_in_a_shared_layout() throws Exception {
+		SubjectHistory first = new SubjectHistory("00003.sensor", connection, Layout.Shared);
+		SubjectHistory second = new SubjectHistory("00004.sensor", connection, Layout.Shared);
+		for (int i = 0; i < 10; i++) {
+			first.on(day.plus(i, DAYS), "feed-" + i).put("Level", i).terminate();
+			second.on(day.plus(i, DAYS), "feed-" + i).put("Level", i * 10).put("State", "ON").terminate();
+		}
+		assertThat(tableCount()).isEqualTo(3);
+
+		SubjectHistory reopened = new SubjectHistory("00003.sensor", connection, Layout.Shared);
+		assertThat(reopened.size()).isEqualTo(10);
+		assertThat(reopened.exists("State")).isFalse();
+		assertThat(reopened.current().number("Level")).isEqualTo(9.);
+		assertThat(reopened.query().number("Level").get(day, day.plus(2, DAYS)).values()).containsExactly(0., 1., 2.);
+		reopened.drop();
+
+		SubjectHistory other = new SubjectHistory("00004.sensor", connection, Layout.Shared);
+		assertThat(other.size()).isEqualTo(10);
+		assertThat(other.current().number("Level")).isEqualTo(90.);
+		assertThat(other.current().text("State")).isEqualTo("ON");
+		assertThat(new SubjectHistory("00003.sensor", connection, Layout.Shared).size()).isEqualTo(0);
+	}
+
+	@Test
+	public void should_copy_batches_into_postgresql_as_into_sqlite() throws Exception {
+		try (Connection postgresql = postgresql()) {
+			for (Layout layout : Layout.values()) {
+				String name = "00010.sensor." + layout;
+				SubjectHistory expected = new SubjectHistory(name, connection, layout);
+				SubjectHistory actual = new SubjectHistory(name, postgresql, layout);
+				for (SubjectHistory history : List.of(expected, actual)) {
+					SubjectHistory.Batch batch = history.batch();
+					for (int i = 0; i < 3000; i++)
+						batch.on(day.plusSeconds(i * 60L), "feed-" + i).put("Level", i + 0.5).put("State", i % 7 == 0 ? "say \"hi\", then\nleave" : categories.substring(i % 10, i % 10 + 1)).terminate();
+					batch.terminate();
+				}
+				SubjectHistory reloaded = new SubjectHistory(name, postgresql, layout);
+				assertThat(reloaded.size()).isEqualTo(3000);
+				assertThat(reloaded.current().number("Level")).isEqualTo(2999.5);
+				assertThat(reloaded.query().text("State").all().values()).isEqualTo(expected.query().text("State").all().values());
+				assertThat(reloaded.query().number("Level").all().values()).isEqualTo(expected.query().number("Level").all().values());
+				reloaded.drop();
+			}
+		}
+	}
+
+	@Test
+	public void should_reduce_segments_in_the_database_as_in_memory() {
+		for (Layout layout : Layout.values()) {
+			SubjectHistory history = new SubjectHistory("00005.sensor." + layout, connection, layout);
+			Random random = new Random(7);
+			int[] seconds = random.ints(3000, 0, 400 * 86400).map(s -> s / 60 * 60).sorted().toArray();
+			SubjectHistory.Batch batch = history.batch();
+			for (int i = 0; i < seconds.length; i++) {
+				if (seconds[i] >= 30 * 86400 && (i == 0 || seconds[i - 1] < 30 * 86400))
+					batch.on(day.plus(30, DAYS), "edge").put("Level", 7.5).terminate();
+				batch.on(day.plusSeconds(seconds[i]), "feed-" + i).put("Level", random.nextInt(1000) / 10.).terminate();
+			}
+			batch.terminate();
+			Instant to = day.plus(365, DAYS);
+			for (TemporalAmount period : List.of(Period.ofMonths(1), Period.ofDays(7), Duration.ofHours(30), Period.ofYears(1)))
+				for (String function : List.of("count", "sum", "mean", "min", "max", "first", "last", "sd")) {
+					double[] expected = Arrays.stream(history.query().number("Level").get(day, to).segments(period)).map(NumberReducer.of(function)).mapToDouble(v -> v).toArray();
+					double[] actual = history.query().number("Level").reduce(function, day, to, period);
+					assertThat(actual).as(layout + " " + function + " " + period).hasSameSizeAs(expected);
+					for (int i = 0; i < expected.length; i++)
+						assertThat(actual[i]).as(layout + " " + function + " " + period + " #" + i).isCloseTo(expected[i], within(1e-6));
+				}
+		}
+	}
+
+	@Test
+	public void should_reduce_segments_from_rollups_as_in_memory() {
+		for (Layout layout : Layout.values()) {
+			String name = "00006.sensor." + layout;
+			SubjectHistory history = new SubjectHistory(name, connection, layout);
+			Random random = new Random(11);
+			int[] seconds = random.ints(3000, 0, 400 * 86400).map(s -> s / 60 * 60).toArray();
+			SubjectHistory.Batch batch = history.batch();
+			for (int i = 0; i < 1500; i++)
+				batch.on(day.plusSeconds(seconds[i]), "feed-" + i).put("Level", random.nextInt(1000) / 10.).terminate();
+			batch.terminate();
+			history.enableRollups();
+			for (int i = 1500; i < seconds.length; i++)
+				history.on(day.plusSeconds(seconds[i]), "feed-" + i).put("Level", random.nextInt(1000) / 10.).terminate();
+			history.on(day.plus(40, DAYS), "edge").put("Level", 7.5).terminate();
+			history.on(day.plus(40, DAYS), "edge").put("Level", 9.5).terminate();
+
+			SubjectHistory reopened = new SubjectHistory(name, connection, layout);
+			assertThat(reopened.hasRollups()).isTrue();
+			Instant month = Instant.parse("2025-04-01T00:00:00Z");
+			for (Instant from : List.of(day, month))
+				for (Instant to : List.of(from.plus(365, DAYS), day.plus(40, DAYS)))
+					for (TemporalAmount period : List.of(Period.ofMonths(1), Period.ofDays(7), Duration.ofHours(6), Duration.ofMinutes(90)))
+						for (String function : List.of("count", "sum", "mean", "min", "max", "first", "last", "sd")) {
+							double[] expected = Arrays.stream(reopened.query().number("Level").get(from, to).segments(period)).map(NumberReducer.of(function)).mapToDouble(v -> v).toArray();
+							double[] actual = reopened.query().number("Level").reduce(function, from, to, period);
+							String description = layout + " " + function + " " + period + " from " + from + " to " + to;
+							assertThat(actual).as(description).hasSameSizeAs(expected);
+							for (int i = 0; i < expected.length; i++)
+								assertThat(actual[i]).as(description + " #" + i).isCloseTo(expected[i], within(1e-6));
+						}
+			try (SqlHistoryRegistry registry = new SqlHistoryRegistry(name, connection, layout)) {
+				assertThat(registry.rollups(2, Resolution.Month, month.toEpochMilli(), month.plus(365, DAYS).toEpochMilli())).hasSize(12);
+			}
+		}
+	}
+
+	@Test
+	public void should_keep_rolled_up_mean_and_sd_accurate_for_large_offsets() {
+		for (Layout layout : Layout.values()) {
+			SubjectHistory history = new SubjectHistory("00007.sensor." + layout, connection, layout);
+			history.enableRollups();
+			Random random = new Random(5);
+			SubjectHistory.Batch batch = history.batch();
+			for (int i = 0; i < 2000; i++)
+				batch.on(day.plusSeconds(i * 600L), "feed-" + i).put("Level", 1e9 + random.nextInt(1000) / 10.).terminate();
+			batch.terminate();
+			Instant to = day.plus(14, DAYS);
+			for (String function : List.of("mean", "sd")) {
+				double[] expected = Arrays.stream(history.query().number("Level").get(day, to).segments(Period.ofDays(1))).map(NumberReducer.of(function)).mapToDouble(v -> v).toArray();
+				double[] actual = history.query().number("Level").reduce(function, day, to, Period.ofDays(1));
+				for (int i = 0; i < expected.length; i++)
+					assertThat(actual[i]).as(layout + " " + function + " #" + i).isCloseTo(expected[i], within(1e-4));
+			}
+		}
+	}
+
+	private int tableCount() throws Exception {
+		try (ResultSet rs = connection.createStatement().executeQuery("SELECT count(*) FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%'")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	private static Connection postgresql() throws Exception {
+		try {
+			Connection connection = DriverManager.getConnection(Jdbc.postgresql());
+			connection.setAutoCommit(false);
+			return connection;
+		} catch (SQLException e) {
+			assumeNoException("PostgreSQL is not available", e);
+			return null;
+		}
+	}
+
+	private static Connection counting(Connection connection, AtomicInteger executions) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+			Object result = invoke(connection, method, args);
+			if (!(result instanceof PreparedStatement statement)) return result;
+			return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class}, (p, m, a) -> {
+				if (m.getName().startsWith("execute")) executions.incrementAndGet();
+				return invoke(statement, m, a);
+			});
+		});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
 	@Test
 	public void should_return_most_recent_get_as_current() {
 		SubjectHistory history = new SubjectHistory("12345.patient", connection);
@@ -0,0 +1,139 @@
+package tests.index;
+
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.SubjectStore;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.Journal.Transaction;
+import systems.intino.datamarts.subjectstore.model.journals.BinaryJournal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static systems.intino.datamarts.subjectstore.model.Journal.Transaction.Type.*;
+
+@SuppressWarnings({"ResultOfMethodCallIgnored", "NewClassNamingConvention"})
+public class BinaryJournal_ {
+
+	@Test
+	public void should_replay_transactions_in_order() throws IOException {
+		File file = File.createTempFile("journal", ".bin");
+		file.delete();
+		try (BinaryJournal journal = new BinaryJournal(file)) {
+			List<Transaction> transactions = transactions(500);
+			transactions.forEach(journal::add);
+			assertThat(BinaryJournal.isBinary(file)).isTrue();
+			assertThat(journal.transactions()).containsExactlyElementsOf(transactions);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void should_stop_at_a_torn_tail_and_resume_appending_after_the_last_valid_record() throws IOException {
+		File file = File.createTempFile("journal", ".bin");
+		file.delete();
+		try {
+			List<Transaction> transactions = transactions(100);
+			try (BinaryJournal journal = new BinaryJournal(file)) {
+				transactions.forEach(journal::add);
+			}
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.setLength(raf.length() - 3);
+			}
+			try (BinaryJournal journal = new BinaryJournal(file)) {
+				assertThat(journal.transactions()).containsExactlyElementsOf(transactions.subList(0, 99));
+				journal.add(new Transaction(put, "x.sensor", "status=on"));
+				assertThat(journal.transactions()).hasSize(100).last().isEqualTo(new Transaction(put, "x.sensor", "status=on"));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void should_stop_at_a_corrupted_record() throws IOException {
+		File file = File.createTempFile("journal", ".bin");
+		file.delete();
+		try (BinaryJournal journal = new BinaryJournal(file)) {
+			transactions(10).forEach(journal::add);
+			journal.close();
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.seek(raf.length() - 6);
+				raf.write(raf.read() ^ 0x55);
+			}
+			assertThat(journal.transactions()).containsExactlyElementsOf(transactions(9));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void should_write_a_batch_as_one_record_and_drop_it_whole_when_torn() throws IOException {
+		File file = File.createTempFile("journal", ".bin");
+		file.delete();
+		try {
+			List<Transaction> batch = transactions(5);
+			try (BinaryJournal journal = new BinaryJournal(file)) {
+				journal.add(new Transaction(put, "a.sensor", "status=on"));
+				journal.add(batch);
+				List<Transaction> expected = new ArrayList<>(List.of(new Transaction(put, "a.sensor", "status=on"), Transaction.batch(5)));
+				expected.addAll(batch);
+				assertThat(journal.transactions()).containsExactlyElementsOf(expected);
+			}
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.setLength(raf.length() - 10);
+			}
+			try (BinaryJournal journal = new BinaryJournal(file)) {
+				assertThat(journal.transactions()).containsExactly(new Transaction(put, "a.sensor", "status=on"));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void should_convert_a_text_journal_and_recover_a_store_from_it() throws Exception {
+		File index = File.createTempFile("index", ".triples");
+		File journal = new File(index.getAbsolutePath() + ".journal");
+		index.delete();
+		try {
+			SubjectStore store = new SubjectStore(index);
+			store.create("alhambra", "building").update().put("city", "Granada").put("country", "Spain");
+			store.create("alhambra.building/lions.court").update().put("fountain", "yes");
+			File binary = new File(journal.getAbsolutePath() + ".bin");
+			BinaryJournal.convert(Journal.from(journal), binary);
+			assertThat(new BinaryJournal(binary).transactions()).containsExactlyElementsOf(Journal.from(journal).transactions());
+			journal.delete();
+			binary.renameTo(journal);
+
+			SubjectStore recovered = new SubjectStore(index, BinaryJournal::new);
+			assertThat(recovered.open("alhambra.building").get("country")).isEqualTo("Spain");
+			assertThat(recovered.has("alhambra.building/lions.court")).isTrue();
+			recovered.open("alhambra.building").update().set("city", "Granada (Andalusia)");
+			recovered.close();
+			assertThat(BinaryJournal.isBinary(journal)).isTrue();
+			assertThat(new SubjectStore(index, BinaryJournal::new).open("alhambra.building").get("city")).isEqualTo("Granada (Andalusia)");
+		} finally {
+			index.delete();
+			journal.delete();
+		}
+	}
+
+	private static List<Transaction> transactions(int size) {
+		List<Transaction> transactions = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			String subject = "s" + i % 7 + ".sensor";
+			transactions.add(switch (i % 4) {
+				case 0 -> new Transaction(put, subject, "model=m" + i % 3);
+				case 1 -> new Transaction(set, subject, "temperature=" + i);
+				case 2 -> new Transaction(del, subject, "model=m" + i % 3);
+				default -> new Transaction(rename, subject, "señal " + i);
+			});
+		}
+		return transactions;
+	}
+}
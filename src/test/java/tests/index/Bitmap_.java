@@ -0,0 +1,128 @@
+package tests.index;
+
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("NewClassNamingConvention")
+public class Bitmap_ {
+
+	@Test
+	public void should_behave_as_a_sorted_set_across_sparse_and_dense_containers() {
+		Random random = new Random(7);
+		Bitmap bitmap = new Bitmap();
+		TreeSet<Integer> expected = new TreeSet<>();
+		for (int i = 0; i < 30_000; i++) {
+			int value = i % 3 == 0 ? random.nextInt(1 << 20) : random.nextInt(8000);
+			assertThat(bitmap.add(value)).isEqualTo(expected.add(value));
+		}
+		for (int i = 0; i < 6_000; i++) {
+			int value = random.nextInt(8000);
+			assertThat(bitmap.remove(value)).isEqualTo(expected.remove(value));
+		}
+		assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+		assertThat(bitmap.toList()).containsExactlyElementsOf(expected);
+		assertThat(bitmap.stream().boxed().toList()).containsExactlyElementsOf(expected);
+		assertThat(bitmap.first()).isEqualTo(expected.first());
+		assertThat(bitmap.contains(expected.last())).isTrue();
+	}
+
+	@Test
+	public void should_combine_bitmaps() {
+		Bitmap evens = new Bitmap();
+		Bitmap thirds = new Bitmap();
+		for (int i = 0; i < 200_000; i += 2) evens.add(i);
+		for (int i = 0; i < 200_000; i += 3) thirds.add(i);
+		Bitmap and = Bitmap.and(evens, thirds);
+		Bitmap or = Bitmap.or(evens, thirds);
+		Bitmap andNot = Bitmap.andNot(evens, thirds);
+		assertThat(and.cardinality()).isEqualTo(33_334);
+		assertThat(and.contains(6)).isTrue();
+		assertThat(and.contains(4)).isFalse();
+		assertThat(or.cardinality()).isEqualTo(133_333);
+		assertThat(andNot.cardinality()).isEqualTo(66_666);
+		assertThat(andNot.contains(6)).isFalse();
+		assertThat(Bitmap.and(Bitmap.of(1, 70_000, 140_000), Bitmap.of(70_000))).isEqualTo(Bitmap.of(70_000));
+		assertThat(Bitmap.or(Bitmap.of(1), Bitmap.of(70_000)).toList()).containsExactly(1, 70_000);
+	}
+
+	@Test
+	public void should_switch_containers_from_array_to_bitset_and_back() {
+		Bitmap bitmap = new Bitmap();
+		for (int i = 0; i < 4096; i++) bitmap.add(65_536 + i * 2);
+		assertThat(bitmap.add(65_536 + 8191)).isTrue();
+		assertThat(bitmap.add(65_536 + 8191)).isFalse();
+		assertThat(bitmap.cardinality()).isEqualTo(4097);
+		assertThat(bitmap.contains(65_536 + 8190)).isTrue();
+		assertThat(bitmap.contains(65_536 + 8189)).isFalse();
+		assertThat(bitmap.remove(65_536 + 8191)).isTrue();
+		assertThat(bitmap.remove(65_536 + 8191)).isFalse();
+		assertThat(bitmap.cardinality()).isEqualTo(4096);
+		assertThat(bitmap.add(65_536 + 1)).isTrue();
+		assertThat(bitmap.first()).isEqualTo(65_536);
+		assertThat(bitmap.toList()).hasSize(4097).startsWith(65_536, 65_537, 65_538).endsWith(65_536 + 8190);
+		assertThat(bitmap).isEqualTo(Bitmap.of(bitmap.stream().toArray()));
+	}
+
+	@Test
+	public void should_become_empty_when_every_value_is_removed_from_any_container() {
+		for (int count : new int[] {1, 100, 4096, 4097, 10_000}) {
+			Bitmap bitmap = Bitmap.range(131_072, 131_072 + count);
+			for (int i = 0; i < count; i++) assertThat(bitmap.remove(131_072 + i)).isTrue();
+			assertThat(bitmap.isEmpty()).isTrue();
+			assertThat(bitmap.cardinality()).isZero();
+			assertThat(bitmap.toList()).isEmpty();
+			assertThat(bitmap.iterator().hasNext()).isFalse();
+			assertThat(bitmap).isEqualTo(new Bitmap());
+			assertThat(bitmap.add(131_072)).isTrue();
+			assertThat(bitmap.toList()).containsExactly(131_072);
+		}
+	}
+
+	@Test
+	public void should_combine_array_and_bitset_containers_in_any_order() {
+		Map<String, Bitmap> bitmaps = new LinkedHashMap<>();
+		bitmaps.put("sparse", Bitmap.of(IntStream.range(0, 3000).map(i -> i * 7).toArray()));
+		bitmaps.put("sparse-shifted", Bitmap.of(IntStream.range(0, 3000).map(i -> i * 7 + 1).toArray()));
+		bitmaps.put("dense", Bitmap.range(0, 30_000));
+		bitmaps.put("dense-odd", Bitmap.of(IntStream.range(0, 20_000).map(i -> i * 2 + 1).toArray()));
+		bitmaps.put("empty", new Bitmap());
+		for (Bitmap a : bitmaps.values())
+			for (Bitmap b : bitmaps.values()) {
+				Set<Integer> left = new TreeSet<>(a.toList());
+				Set<Integer> right = new TreeSet<>(b.toList());
+				assertThat(Bitmap.and(a, b).toList()).containsExactlyElementsOf(left.stream().filter(right::contains).toList());
+				assertThat(Bitmap.or(a, b).toList()).containsExactlyElementsOf(new TreeSet<>(union(left, right)));
+				assertThat(Bitmap.andNot(a, b).toList()).containsExactlyElementsOf(left.stream().filter(v -> !right.contains(v)).toList());
+				assertThat(Bitmap.and(a, b).cardinality()).isEqualTo(Bitmap.and(b, a).cardinality());
+				assertThat(Bitmap.or(a, b)).isEqualTo(Bitmap.or(b, a));
+			}
+	}
+
+	@Test
+	public void should_not_share_containers_between_combined_bitmaps() {
+		Bitmap dense = Bitmap.range(0, 5000);
+		Bitmap sparse = Bitmap.of(10, 70_000);
+		Bitmap or = Bitmap.or(dense, sparse);
+		Bitmap andNot = Bitmap.andNot(dense, Bitmap.of(3));
+		Bitmap copy = dense.copy();
+		or.remove(10);
+		or.add(70_001);
+		andNot.remove(4);
+		copy.remove(5);
+		assertThat(dense.cardinality()).isEqualTo(5000);
+		assertThat(sparse.toList()).containsExactly(10, 70_000);
+		assertThat(dense.contains(4)).isTrue();
+		assertThat(dense.contains(5)).isTrue();
+	}
+
+	private static Set<Integer> union(Set<Integer> a, Set<Integer> b) {
+		Set<Integer> result = new TreeSet<>(a);
+		result.addAll(b);
+		return result;
+	}
+}
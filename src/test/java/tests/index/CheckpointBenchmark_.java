@@ -0,0 +1,48 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.SubjectStore;
+import systems.intino.datamarts.subjectstore.model.journals.GroupCommitJournal.Policy;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+public class CheckpointBenchmark_ {
+	private static final int Subjects = 200_000;
+	private static final int Attributes = 5;
+
+	public static void main(String[] args) throws Exception {
+		for (int changes : new int[] {100, 1_000, 10_000}) report(changes);
+	}
+
+	@SuppressWarnings("ResultOfMethodCallIgnored")
+	private static void report(int changes) throws Exception {
+		File directory = Files.createTempDirectory("checkpoint").toFile();
+		SubjectStore store = new SubjectStore(new File(directory, "index.triples"), Policy.defaults());
+		for (int i = 0; i < Subjects; i++)
+			for (int a = 0; a < Attributes; a++) store.create("x" + i, "sensor").update().put("a" + a, i % 1000);
+		store.seal();
+		Random random = new Random(1);
+		double seal = 0, checkpoint = 0;
+		for (int round = 0; round < 3; round++) {
+			touch(store, random, changes);
+			long start = System.nanoTime();
+			store.seal();
+			seal = (System.nanoTime() - start) / 1e6;
+			touch(store, random, changes);
+			start = System.nanoTime();
+			store.checkpoint();
+			checkpoint = (System.nanoTime() - start) / 1e6;
+		}
+		System.out.printf("changes %6d  seal %8.1f ms  checkpoint %8.1f ms%n", changes, seal, checkpoint);
+		store.close();
+		Arrays.stream(directory.listFiles()).forEach(File::delete);
+		directory.delete();
+	}
+
+	private static void touch(SubjectStore store, Random random, int changes) {
+		for (int i = 0; i < changes; i++)
+			store.open("x" + random.nextInt(Subjects), "sensor").update().set("a0", random.nextInt(1000));
+	}
+}
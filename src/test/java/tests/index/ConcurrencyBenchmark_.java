@@ -0,0 +1,51 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.model.Journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrencyBenchmark_ {
+	private static final int Subjects = 100_000;
+	private static final long Millis = 3_000;
+
+	public static void main(String[] args) throws Exception {
+		SubjectIndex index = new SubjectIndex(Journal.from(""));
+		for (int i = 0; i < Subjects; i++)
+			index.create("x" + i, "sensor").update().put("model", "m" + i % 20).put("floor", i % 40);
+		for (int readers : new int[] {1, 2, 4, 8}) report(index, readers);
+	}
+
+	private static void report(SubjectIndex index, int readers) throws InterruptedException {
+		AtomicBoolean running = new AtomicBoolean(true);
+		LongAdder reads = new LongAdder();
+		LongAdder writes = new LongAdder();
+		List<Thread> threads = new ArrayList<>();
+		threads.add(new Thread(() -> {
+			Random random = new Random();
+			while (running.get()) {
+				index.open("x" + random.nextInt(Subjects), "sensor").update().set("temperature", random.nextInt(40));
+				writes.increment();
+			}
+		}));
+		for (int r = 0; r < readers; r++)
+			threads.add(new Thread(() -> {
+				Random random = new Random();
+				while (running.get()) {
+					String identifier = "x" + random.nextInt(Subjects) + ".sensor";
+					if (index.has(identifier)) index.open(identifier).terms();
+					if (random.nextInt(100) == 0) index.query().where("model").equals("m3").where("floor").equals("23").size();
+					reads.increment();
+				}
+			}));
+		threads.forEach(Thread::start);
+		Thread.sleep(Millis);
+		running.set(false);
+		for (Thread thread : threads) thread.join();
+		System.out.printf("readers %d  reads %10.0f/s  writes %8.0f/s%n", readers, reads.sum() * 1000.0 / Millis, writes.sum() * 1000.0 / Millis);
+	}
+}
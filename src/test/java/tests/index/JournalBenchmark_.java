@@ -0,0 +1,38 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.Subject;
+import systems.intino.datamarts.subjectstore.model.journals.GroupCommitJournal.Policy;
+
+import java.io.File;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+public class JournalBenchmark_ {
+	private static final int Threads = 8;
+	private static final int Updates = 25_000;
+
+	public static void main(String[] args) throws Exception {
+		report("file", Journal::from);
+		report("group", file -> Journal.from(file, Policy.defaults()));
+		report("group+await", file -> Journal.from(file, Policy.defaults().awaitingDurability()));
+	}
+
+	private static void report(String name, Function<File, Journal> journals) throws Exception {
+		File file = File.createTempFile("journal", ".log");
+		file.delete();
+		Journal journal = journals.apply(file);
+		SubjectIndex index = new SubjectIndex(journal);
+		long start = System.nanoTime();
+		IntStream.range(0, Threads).parallel().forEach(thread -> {
+			Subject subject = index.create("sensor" + thread, "sensor");
+			for (int i = 0; i < Updates; i++) subject.update().set("temperature", i);
+		});
+		journal.sync();
+		long elapsed = System.nanoTime() - start;
+		if (journal instanceof AutoCloseable closeable) closeable.close();
+		System.out.printf("%-12s %8.0f updates/s  journal %6.1f MB%n", name, Threads * Updates / (elapsed / 1e9), file.length() / 1e6);
+		file.delete();
+	}
+}
@@ -0,0 +1,55 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.journals.BinaryJournal;
+import systems.intino.datamarts.subjectstore.model.journals.StringJournal;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class JournalReplay_ {
+	private static final int Transactions = 2_000_000;
+
+	public static void main(String[] args) throws IOException {
+		File text = File.createTempFile("journal", ".txt");
+		File binary = File.createTempFile("journal", ".bin");
+		binary.delete();
+		write(text);
+		BinaryJournal.convert(Journal.from(text), binary);
+		System.out.printf("size    text %6.1f MB  binary %6.1f MB%n", text.length() / 1e6, binary.length() / 1e6);
+		for (int i = 0; i < 3; i++) {
+			report("text", Journal.from(text));
+			report("binary", new BinaryJournal(binary));
+		}
+		text.delete();
+		binary.delete();
+	}
+
+	private static void report(String name, Journal journal) {
+		long start = System.nanoTime();
+		long count = 0;
+		for (Journal.Transaction ignored : journal) count++;
+		long scan = System.nanoTime() - start;
+		start = System.nanoTime();
+		new SubjectIndex(new StringJournal()).restore(journal);
+		long restore = System.nanoTime() - start;
+		System.out.printf("%-7s scan %8.0f tx/s  restore %8.0f tx/s%n", name, count / (scan / 1e9), count / (restore / 1e9));
+	}
+
+	private static void write(File file) throws IOException {
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+			for (int i = 0; i < Transactions; i++) {
+				String subject = "s" + i % 10_000 / 1000 + ".site/x" + i % 10_000 + ".sensor";
+				writer.write(switch (i % 5) {
+					case 0 -> "put " + subject + " model=m" + i % 20;
+					case 1 -> "put " + subject + " floor=" + i % 40;
+					default -> "set " + subject + " temperature=" + i % 3000 / 100.0;
+				});
+				writer.write('\n');
+			}
+		}
+	}
+}
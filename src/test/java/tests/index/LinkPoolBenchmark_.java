@@ -0,0 +1,54 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.pools.LinkPool;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+public class LinkPoolBenchmark_ {
+	private static final int Subjects = 1_000_000;
+	private static final int Terms = 200_000;
+	private static final int TermsPerSubject = 8;
+
+	public static void main(String[] args) {
+		report("triskel", LinkPool::triskel);
+		report("bitmaps", LinkPool::bitmaps);
+	}
+
+	private static void report(String name, Supplier<LinkPool> supplier) {
+		long before = heap();
+		long start = System.nanoTime();
+		LinkPool pool = supplier.get();
+		Random random = new Random(1);
+		for (int subject = 0; subject < Subjects; subject++)
+			for (int i = 0; i < TermsPerSubject; i++)
+				pool.add(subject, term(random));
+		long load = System.nanoTime() - start;
+		long used = heap() - before;
+		long termsOf = time(() -> {
+			for (int subject = 0; subject < Subjects; subject += 1000) pool.termsOf(subject);
+		}) / (Subjects / 1000);
+		long subjectsWith = time(() -> {
+			for (int term = 0; term < Terms; term += 2000) pool.subjectsWith(term);
+		}) / (Terms / 2000);
+		System.out.printf("%-8s load %5.2fs  heap %6.1f MB  termsOf %8d ns  subjectsWith %10d ns%n",
+				name, load / 1e9, used / 1e6, termsOf, subjectsWith);
+	}
+
+	private static int term(Random random) {
+		return random.nextInt(4) == 0 ? random.nextInt(Terms) : random.nextInt(100);
+	}
+
+	private static long time(Runnable runnable) {
+		long start = System.nanoTime();
+		runnable.run();
+		return System.nanoTime() - start;
+	}
+
+	@SuppressWarnings("CallToSystemGC")
+	private static long heap() {
+		for (int i = 0; i < 3; i++) System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
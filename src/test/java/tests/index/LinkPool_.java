@@ -0,0 +1,35 @@
+package tests.index;
+
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.helpers.Bitmap;
+import systems.intino.datamarts.subjectstore.pools.LinkPool;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("NewClassNamingConvention")
+public class LinkPool_ {
+	private static final List<Supplier<LinkPool>> Pools = List.of(LinkPool::bitmaps, LinkPool::triskel);
+
+	@Test
+	public void should_hand_out_bitmaps_that_do_not_alter_the_pool() {
+		for (Supplier<LinkPool> supplier : Pools) {
+			LinkPool pool = supplier.get();
+			pool.add(0, new int[] {1, 2});
+			pool.add(1, 2);
+			Bitmap subjects = pool.subjectBitmapOf(2);
+			Bitmap terms = pool.termBitmapOf(0);
+			subjects.add(7);
+			terms.remove(1);
+			pool.subjectBitmapOf(9).add(3);
+			pool.termBitmapOf(9).add(3);
+			assertThat(pool.subjectsWith(2)).containsExactly(0, 1);
+			assertThat(pool.termsOf(0)).containsExactly(1, 2);
+			assertThat(pool.subjectsWith(9)).isEmpty();
+			assertThat(pool.termsOf(9)).isEmpty();
+			assertThat(pool.exists(0, 1)).isTrue();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package tests.index;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.io.triples.ParallelDump;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.Triple;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings({"ResultOfMethodCallIgnored", "NewClassNamingConvention"})
+public class ParallelDump_ {
+	private static final int Subjects = 60_000;
+	private static File dump;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		dump = File.createTempFile("index", ".triples");
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dump), UTF_8))) {
+			for (int i = 0; i < Subjects; i++) {
+				String subject = "s" + i / 1000 + ".site/x" + i + ".sensor";
+				writer.write(new Triple(subject, "name", "sensör " + i) + "\n");
+				writer.write(new Triple(subject, "model", "m" + i % 20) + (i % 7 == 0 ? "\r\n" : "\n"));
+				writer.write(new Triple(subject, "floor", String.valueOf(i % 40)) + "\n");
+				if (i % 1000 == 0) writer.write("\n");
+			}
+			writer.write(new Triple("last.sensor", "model", "m1").toString());
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		dump.delete();
+	}
+
+	@Test
+	public void should_load_the_same_index_as_a_sequential_restore_for_any_number_of_chunks() throws IOException {
+		List<Triple> expected = triplesOf(sequential());
+		assertThat(expected).hasSize(Subjects * 3 + 1);
+		for (int chunks : new int[] {1, 2, 3, 4, 7})
+			assertThat(triplesOf(new SubjectIndex(Journal.from("")).restore(new ParallelDump(dump, chunks)))).isEqualTo(expected);
+	}
+
+	@Test
+	public void should_answer_queries_on_a_parallel_loaded_index() throws IOException {
+		SubjectIndex index = new SubjectIndex(Journal.from("")).restore(new ParallelDump(dump, 4));
+		assertThat(index.query().isType("sensor").where("model").equals("m3").size()).isEqualTo(Subjects / 20);
+		assertThat(index.query().isChildOf("s7.site").size()).isEqualTo(1000);
+		assertThat(index.open("x59999.sensor")).isNull();
+		assertThat(index.open("s59.site/x59999.sensor").get("name")).isEqualTo("sensör 59999");
+	}
+
+	private static SubjectIndex sequential() throws IOException {
+		List<Triple> triples = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(dump), UTF_8))) {
+			reader.lines().filter(line -> !line.isBlank()).map(Triple::of).forEach(triples::add);
+		}
+		return new SubjectIndex(Journal.from("")).restore(triples::iterator);
+	}
+
+	private static List<Triple> triplesOf(SubjectIndex index) {
+		List<Triple> result = new ArrayList<>();
+		index.triples().forEach(result::add);
+		return result;
+	}
+}
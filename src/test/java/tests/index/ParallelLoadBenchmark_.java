@@ -0,0 +1,54 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.io.triples.DumpTriples;
+import systems.intino.datamarts.subjectstore.io.triples.ParallelDump;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.Triple;
+
+import java.io.*;
+
+public class ParallelLoadBenchmark_ {
+	private static final int Subjects = 1_000_000;
+
+	@SuppressWarnings("ResultOfMethodCallIgnored")
+	public static void main(String[] args) throws Exception {
+		File dump = File.createTempFile("index", ".triples");
+		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(dump), 1 << 16)) {
+			for (int i = 0; i < Subjects; i++) {
+				String subject = "s" + i / 100_000 + ".site/x" + i + ".sensor";
+				write(os, new Triple(subject, "name", "sensor " + i));
+				write(os, new Triple(subject, "model", "m" + i % 20));
+				write(os, new Triple(subject, "floor", String.valueOf(i % 40)));
+				write(os, new Triple(subject, "vendor", "v" + i % 7));
+				write(os, new Triple(subject, "serial", Integer.toHexString(i * 31)));
+			}
+		}
+		System.out.printf("dump    %d triples  %.1f MB  %d cpus%n", Subjects * 5, dump.length() / 1e6, Runtime.getRuntime().availableProcessors());
+		for (int round = 0; round < 2; round++) {
+			System.out.printf("load    sequential %5.2fs%n", time(() -> {
+				try (DumpTriples triples = new DumpTriples(new BufferedInputStream(new FileInputStream(dump)))) {
+					new SubjectIndex(Journal.from("")).restore(triples);
+				}
+			}));
+			for (int chunks : new int[] {1, 2, 4, 8})
+				System.out.printf("load    parallel/%d %5.2fs%n", chunks, time(() -> new SubjectIndex(Journal.from("")).restore(new ParallelDump(dump, chunks))));
+		}
+		dump.delete();
+	}
+
+	private static double time(Load load) throws IOException {
+		System.gc();
+		long start = System.nanoTime();
+		load.run();
+		return (System.nanoTime() - start) / 1e9;
+	}
+
+	private static void write(OutputStream os, Triple triple) throws IOException {
+		os.write((triple + "\n").getBytes());
+	}
+
+	private interface Load {
+		void run() throws IOException;
+	}
+}
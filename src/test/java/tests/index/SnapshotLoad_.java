@@ -0,0 +1,66 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.SubjectStore;
+import systems.intino.datamarts.subjectstore.model.Triple;
+
+import java.io.*;
+
+public class SnapshotLoad_ {
+	private static final int Subjects = 1_000_000;
+
+	@SuppressWarnings("ResultOfMethodCallIgnored")
+	public static void main(String[] args) throws Exception {
+		File text = File.createTempFile("index", ".triples");
+		File binary = File.createTempFile("index", ".snapshot");
+		binary.delete();
+		SubjectStore store = new SubjectStore(binary);
+		SubjectIndex.Batch batch = store.batch();
+		for (int i = 0; i < Subjects; i++) {
+			String subject = "s" + i / 100_000 + ".site/x" + i + ".sensor";
+			batch.put(new Triple(subject, "name", "sensor " + i));
+			batch.put(new Triple(subject, "model", "m" + i % 20));
+			batch.put(new Triple(subject, "floor", String.valueOf(i % 40)));
+			batch.put(new Triple(subject, "vendor", "v" + i % 7));
+			batch.put(new Triple(subject, "serial", Integer.toHexString(i * 31)));
+		}
+		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(text))) {
+			store.triples().forEach(t -> write(os, t));
+		}
+		long start = System.nanoTime();
+		store.seal();
+		System.out.printf("seal    %5.2fs%n", (System.nanoTime() - start) / 1e9);
+		System.out.printf("size    text %6.1f MB  binary %6.1f MB%n", text.length() / 1e6, binary.length() / 1e6);
+		store = null;
+		for (int i = 0; i < 3; i++) {
+			System.out.printf("load    text %5.2fs  binary %5.2fs  mapped %5.3fs%n", time(text, false), time(binary, false), time(binary, true));
+		}
+		text.delete();
+		binary.delete();
+	}
+
+	private static double time(File file, boolean mapped) throws IOException {
+		System.gc();
+		long start = System.nanoTime();
+		SubjectStore store = mapped ? SubjectStore.mapped(file) : new SubjectStore(file);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (!store.has("s9.site/x999999.sensor")) throw new IllegalStateException();
+		query(store);
+		start = System.nanoTime();
+		int found = query(store);
+		System.out.printf("        %-6s query %6.2f ms (%d)%n", mapped ? "mapped" : "heap", (System.nanoTime() - start) / 1e6, found);
+		return seconds;
+	}
+
+	private static int query(SubjectStore store) {
+		return store.query().isType("sensor").where("model").equals("m3").where("floor").equals("23").collect().size();
+	}
+
+	private static void write(OutputStream os, Triple triple) {
+		try {
+			os.write((triple + "\n").getBytes());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.pools.StringPool;
+import systems.intino.datamarts.subjectstore.pools.strings.OffHeapStringPool;
+
+import java.util.function.Supplier;
+
+public class StringPoolMemory_ {
+	private static final int Subjects = 2_000_000;
+
+	public static void main(String[] args) {
+		report("on-heap", StringPool::onHeap);
+		report("off-heap", StringPool::offHeap);
+	}
+
+	private static void report(String name, Supplier<StringPool> supplier) {
+		long before = heap();
+		long start = System.nanoTime();
+		StringPool subjects = supplier.get();
+		StringPool terms = supplier.get();
+		for (int i = 0; i < Subjects; i++) {
+			subjects.add(subject(i));
+			terms.add("name=sensor " + i);
+			terms.add("floor=" + (i / 50) % 40);
+		}
+		long stop = System.nanoTime();
+		long used = heap() - before;
+		long offHeap = offHeap(subjects) + offHeap(terms);
+		long lookups = lookups(subjects);
+		System.out.printf("%-9s load %5.2fs  heap %6.1f MB  off-heap %6.1f MB  lookup %4d ns%n",
+				name, (stop - start) / 1e9, used / 1e6, offHeap / 1e6, lookups);
+	}
+
+	private static long lookups(StringPool pool) {
+		long start = System.nanoTime();
+		for (int i = 0; i < Subjects; i += 7) pool.id(subject(i));
+		return (System.nanoTime() - start) / (Subjects / 7);
+	}
+
+	private static String subject(int i) {
+		return "s" + i / 200_000 + ".site/b" + i / 10_000 + ".building/f" + i / 50 + ".floor/x" + i + ".sensor";
+	}
+
+	private static long offHeap(StringPool pool) {
+		return pool instanceof OffHeapStringPool p ? p.bytes() : 0;
+	}
+
+	@SuppressWarnings("CallToSystemGC")
+	private static long heap() {
+		for (int i = 0; i < 3; i++) System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
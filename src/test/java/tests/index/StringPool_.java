@@ -0,0 +1,89 @@
+package tests.index;
+
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.pools.StringPool;
+import systems.intino.datamarts.subjectstore.pools.strings.OffHeapStringPool;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("NewClassNamingConvention")
+public class StringPool_ {
+	private static final List<Supplier<StringPool>> Pools = List.of(StringPool::onHeap, StringPool::offHeap);
+
+	@Test
+	public void should_resolve_ids_beyond_any_cache_size() {
+		for (Supplier<StringPool> supplier : Pools) {
+			StringPool pool = supplier.get();
+			for (int i = 0; i < 50_000; i++)
+				assertThat(pool.add("s" + i + ".o")).isEqualTo(i);
+			assertThat(pool.add("s0.o")).isEqualTo(0);
+			assertThat(pool.id("s49999.o")).isEqualTo(49_999);
+			assertThat(pool.id("s50000.o")).isEqualTo(-1);
+			assertThat(pool.size()).isEqualTo(50_000);
+		}
+	}
+
+	@Test
+	public void should_forget_removed_and_fixed_values() {
+		for (Supplier<StringPool> supplier : Pools) {
+			StringPool pool = supplier.get();
+			pool.add("a.o");
+			pool.add("b.o");
+			pool.remove("a.o");
+			assertThat(pool.contains("a.o")).isFalse();
+			assertThat(pool.contains(0)).isFalse();
+			pool.fix(1, "c.o");
+			assertThat(pool.id("b.o")).isEqualTo(-1);
+			assertThat(pool.id("c.o")).isEqualTo(1);
+			assertThat(pool.add("a.o")).isEqualTo(2);
+			assertThat(pool.stream()).containsExactly("c.o", "a.o");
+		}
+	}
+
+	@Test
+	public void should_keep_values_across_many_fixes_and_removals() {
+		for (Supplier<StringPool> supplier : Pools) {
+			StringPool pool = supplier.get();
+			for (int i = 0; i < 20_000; i++) pool.add("site.s/sensor" + i + ".o");
+			for (int i = 0; i < 20_000; i += 2) pool.fix(i, "s" + i + ".o");
+			for (int i = 1; i < 20_000; i += 4) pool.remove(i);
+			for (int i = 0; i < 20_000; i++) {
+				String expected = i % 2 == 0 ? "s" + i + ".o" : i % 4 == 1 ? null : "site.s/sensor" + i + ".o";
+				assertThat(pool.get(i)).isEqualTo(expected);
+				if (expected != null) assertThat(pool.id(expected)).isEqualTo(i);
+			}
+			assertThat(pool.id("site.s/sensor0.o")).isEqualTo(-1);
+			assertThat(pool.id("site.s/sensor1.o")).isEqualTo(-1);
+			pool.fix(1, "site.s/sensor1.o");
+			assertThat(pool.id("site.s/sensor1.o")).isEqualTo(1);
+			assertThat(pool.add("s20000.o")).isEqualTo(20_000);
+		}
+	}
+
+	@Test
+	public void should_fold_fixes_back_into_off_heap_storage() {
+		OffHeapStringPool pool = new OffHeapStringPool();
+		for (int i = 0; i < 20_000; i++) pool.add("site.s/building" + i + ".b/floor" + i + ".f");
+		long bytes = pool.bytes();
+		for (int i = 0; i < 20_000; i++) pool.fix(i, "f" + i);
+		assertThat(pool.bytes()).isLessThan(bytes / 2);
+		assertThat(pool.get(19_999)).isEqualTo("f19999");
+		assertThat(pool.id("f12345")).isEqualTo(12_345);
+	}
+
+	@Test
+	public void should_decode_front_coded_paths() {
+		StringPool pool = StringPool.offHeap();
+		for (int i = 0; i < 100; i++)
+			pool.add("site.s/building" + (i / 10) + ".b/floor" + i + ".f");
+		pool.add("año=ñandú");
+		pool.add("site.s");
+		assertThat(pool.get(37)).isEqualTo("site.s/building3.b/floor37.f");
+		assertThat(pool.get(100)).isEqualTo("año=ñandú");
+		assertThat(pool.id("site.s")).isEqualTo(101);
+		assertThat(pool.id("site.s/building9.b/floor99.f")).isEqualTo(99);
+	}
+}
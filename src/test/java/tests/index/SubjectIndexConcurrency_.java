@@ -0,0 +1,160 @@
+package tests.index;
+
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.Subject;
+import systems.intino.datamarts.subjectstore.model.Term;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("NewClassNamingConvention")
+public class SubjectIndexConcurrency_ {
+	private static final int Writers = 4;
+	private static final int Readers = 4;
+	private static final int Subjects = 50;
+	private static final int Updates = 500;
+
+	@Test
+	public void should_let_readers_observe_consistent_and_monotonic_state_while_writers_update() throws Exception {
+		SubjectIndex index = new SubjectIndex(Journal.from(""));
+		for (int i = 0; i < Subjects; i++) index.create("s" + i, "sensor").update().set("counter", 0).put("model", "m" + i % 5);
+		Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+		AtomicBoolean writing = new AtomicBoolean(true);
+		CountDownLatch writers = new CountDownLatch(Writers);
+		List<Thread> threads = IntStream.range(0, Writers + Readers)
+				.mapToObj(i -> new Thread(() -> {
+					try {
+						if (i < Writers) write(index, i);
+						else read(index, writing);
+					} catch (Throwable e) {
+						errors.add(e);
+					} finally {
+						if (i < Writers) writers.countDown();
+					}
+				}))
+				.toList();
+		threads.forEach(Thread::start);
+		writers.await();
+		writing.set(false);
+		for (Thread thread : threads) thread.join();
+		assertThat(errors).isEmpty();
+		for (int i = 0; i < Subjects; i++)
+			assertThat(index.open("s" + i, "sensor").get("counter")).isEqualTo(String.valueOf(Updates));
+		assertThat(index.query().isType("sensor").where("counter").equals(String.valueOf(Updates)).size()).isEqualTo(Subjects);
+		assertThat(index.query().isType("probe").size()).isEqualTo(Writers * 10);
+	}
+
+	@Test
+	public void should_apply_concurrent_updates_to_disjoint_subjects_and_journal_them_replayably() throws Exception {
+		Journal journal = Journal.from("");
+		SubjectIndex index = new SubjectIndex(journal);
+		for (int i = 0; i < Subjects; i++) index.create("s" + i, "sensor").update().set("state", "idle");
+		Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+		List<Thread> threads = IntStream.range(0, Writers)
+				.mapToObj(writer -> new Thread(() -> {
+					try {
+						update(index, writer);
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}))
+				.toList();
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) thread.join();
+		assertThat(errors).isEmpty();
+		assertThat(index.query().isType("sensor").where("state").equals("state" + (Updates - 1) % 3).size()).isEqualTo(Subjects);
+		assertThat(index.query().isType("sensor").where("seen").equals(String.valueOf(Updates - 1)).size()).isEqualTo(Subjects);
+		assertThat(index.query().isType("sensor").where("seen").equals(String.valueOf(Updates - 2)).size()).isEqualTo(0);
+		assertThat(index.query().isType("probe").size()).isEqualTo(Writers);
+		assertThat(dumpOf(new SubjectIndex(Journal.from("")).restore(journal))).isEqualTo(dumpOf(index));
+	}
+
+	@Test
+	public void should_never_let_queries_see_a_single_valued_tag_with_two_values_while_it_is_set() throws Exception {
+		SubjectIndex index = new SubjectIndex(Journal.from(""));
+		for (int i = 0; i < Subjects; i++) index.create("s" + i, "sensor").update().set("state", "on");
+		Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+		AtomicBoolean writing = new AtomicBoolean(true);
+		CountDownLatch writers = new CountDownLatch(Writers);
+		List<Thread> threads = IntStream.range(0, Writers + Readers)
+				.mapToObj(i -> new Thread(() -> {
+					try {
+						if (i < Writers) toggle(index, i);
+						else while (writing.get()) {
+							assertThat(index.query().isType("sensor").where("state").equals("on").where("state").equals("off").size()).isZero();
+							assertThat(index.query().isType("sensor").where("state").satisfy(v -> true).size()).isEqualTo(Subjects);
+						}
+					} catch (Throwable e) {
+						errors.add(e);
+					} finally {
+						if (i < Writers) writers.countDown();
+					}
+				}))
+				.toList();
+		threads.forEach(Thread::start);
+		writers.await();
+		writing.set(false);
+		for (Thread thread : threads) thread.join();
+		assertThat(errors).isEmpty();
+	}
+
+	private static void toggle(SubjectIndex index, int writer) {
+		for (int update = 0; update < Updates * 4; update++)
+			for (int s = writer; s < Subjects; s += Writers)
+				index.open("s" + s, "sensor").update().set("state", update % 2 == 0 ? "off" : "on");
+	}
+
+	private static void update(SubjectIndex index, int writer) {
+		for (int update = 0; update < Updates; update++) {
+			for (int s = writer; s < Subjects; s += Writers) {
+				Subject subject = index.open("s" + s, "sensor");
+				subject.update().set("state", "state" + update % 3).put("seen", update);
+				if (update > 0) subject.update().del("seen", String.valueOf(update - 1));
+			}
+			if (update % 100 == 0) index.create("p" + writer + "-" + update, "probe").update().put("writer", writer);
+			if (update % 100 == 50) index.open("p" + writer + "-" + (update - 50), "probe").drop();
+		}
+		index.create("p" + writer, "probe");
+	}
+
+	private static List<String> dumpOf(SubjectIndex index) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		index.dump(os);
+		return os.toString().lines().sorted().toList();
+	}
+
+	private static void write(SubjectIndex index, int writer) {
+		for (int update = 1; update <= Updates; update++) {
+			for (int s = writer; s < Subjects; s += Writers)
+				index.open("s" + s, "sensor").update().set("counter", update);
+			if (update % 50 == 0) index.create("p" + writer + "-" + update, "probe").update().put("writer", writer);
+		}
+	}
+
+	private static void read(SubjectIndex index, AtomicBoolean writing) {
+		Random random = new Random();
+		int[] seen = new int[Subjects];
+		while (writing.get()) {
+			int s = random.nextInt(Subjects);
+			Subject subject = index.open("s" + s, "sensor");
+			List<Term> counters = subject.terms().stream().filter(t -> t.is("counter")).toList();
+			assertThat(counters).hasSize(1);
+			int value = Integer.parseInt(counters.getFirst().value());
+			assertThat(value).isGreaterThanOrEqualTo(seen[s]);
+			seen[s] = value;
+			assertThat(index.has("s" + s + ".sensor")).isTrue();
+			assertThat(index.query().isType("sensor").where("model").equals("m" + s % 5).size()).isEqualTo(Subjects / 5);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package tests.index;
+
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.ReadOnlySubjectIndex;
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.SubjectIndexView;
+import systems.intino.datamarts.subjectstore.SubjectStore;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.Triple;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static systems.intino.datamarts.subjectstore.view.index.Column.Type.Text;
+
+@SuppressWarnings({"ResultOfMethodCallIgnored", "NewClassNamingConvention"})
+public class SubjectIndexSnapshot_ {
+
+	@Test
+	public void should_keep_the_state_at_snapshot_time_while_the_index_changes() throws IOException {
+		SubjectIndex index = new SubjectIndex(Journal.from(""));
+		index.create("a", "building").update().set("city", "paris").put("tag", "old");
+		index.create("b", "building").update().set("city", "rome");
+		index.open("a", "building").create("x", "room").update().set("floor", 1);
+		String dump = dumpOf(index);
+		try (SubjectIndex.Snapshot snapshot = index.snapshot()) {
+			index.open("a", "building").update().set("city", "london").del("tag", "old");
+			index.open("b", "building").drop();
+			index.open("a.building/x.room").rename("y");
+			index.create("c", "building").update().set("city", "paris");
+
+			assertThat(snapshot.has("b.building")).isTrue();
+			assertThat(snapshot.has("c.building")).isFalse();
+			assertThat(snapshot.open("a", "building").get("city")).isEqualTo("paris");
+			assertThat(snapshot.open("a", "building").get("tag")).isEqualTo("old");
+			assertThat(snapshot.open("a", "building").children().collect()).extracting(s -> s.identifier()).containsExactly("a.building/x.room");
+			assertThat(snapshot.query().isType("building").where("city").equals("paris").collect()).extracting(s -> s.identifier()).containsExactly("a.building");
+			assertThat(snapshot.query().isType("building").size()).isEqualTo(2);
+			assertThat(snapshot.query("type:building root").where("city").equals("rome").collect()).extracting(s -> s.identifier()).containsExactly("b.building");
+			assertThat(dumpOf(snapshot)).isEqualTo(dump);
+
+			assertThat(index.query().isType("building").where("city").equals("paris").collect()).extracting(s -> s.identifier()).containsExactly("c.building");
+			assertThat(index.open("a", "building").children().collect()).extracting(s -> s.identifier()).containsExactly("a.building/y.room");
+		}
+	}
+
+	@Test
+	public void should_reject_updates_through_a_snapshot() {
+		SubjectIndex index = new SubjectIndex(Journal.from(""));
+		index.create("a", "building").update().set("city", "paris");
+		try (SubjectIndex.Snapshot snapshot = index.snapshot()) {
+			assertThatThrownBy(() -> snapshot.open("a", "building").update().set("city", "rome")).isInstanceOf(UnsupportedOperationException.class);
+			assertThatThrownBy(() -> snapshot.open("a", "building").create("x", "room")).isInstanceOf(UnsupportedOperationException.class);
+			assertThatThrownBy(() -> snapshot.open("a", "building").drop()).isInstanceOf(UnsupportedOperationException.class);
+		}
+		assertThat(index.open("a", "building").get("city")).isEqualTo("paris");
+		assertThat(index.has("b", "building")).isFalse();
+	}
+
+	@Test
+	public void should_export_a_consistent_view_while_writers_keep_updating() throws Exception {
+		File file = File.createTempFile("index", ".snapshot");
+		file.delete();
+		SubjectStore store = new SubjectStore(file, f -> Journal.from(""));
+		for (int i = 0; i < 200; i++) store.create("s" + i, "sensor").update().set("round", 0).put("model", "m" + i % 4);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		Thread writer = new Thread(() -> {
+			for (int round = 1; writing.get(); round++)
+				for (int i = 0; i < 200; i++) store.open("s" + i, "sensor").update().set("round", round);
+		});
+		writer.start();
+		try (SubjectIndex.Snapshot snapshot = store.snapshot()) {
+			List<Triple> first = new ArrayList<>();
+			snapshot.triples().forEach(first::add);
+			Thread.sleep(50);
+			List<Triple> second = new ArrayList<>();
+			snapshot.triples().forEach(second::add);
+			assertThat(second).isEqualTo(first);
+			assertThat(first).hasSize(400);
+
+			String export = exportOf(snapshot);
+			Thread.sleep(50);
+			assertThat(exportOf(snapshot)).isEqualTo(export);
+			assertThat(export.split("\n")).hasSize(200);
+		} finally {
+			writing.set(false);
+			writer.join();
+			store.close();
+			file.delete();
+		}
+	}
+
+	private static String exportOf(ReadOnlySubjectIndex index) {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		SubjectIndexView.of(index.query().isType("sensor").collect()).add("round", Text).export().to(os);
+		return os.toString();
+	}
+
+	private static String dumpOf(ReadOnlySubjectIndex index) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		index.dump(os);
+		return os.toString();
+	}
+}
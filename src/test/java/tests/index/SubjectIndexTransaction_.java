@@ -0,0 +1,147 @@
+package tests.index;
+
+import org.junit.Test;
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.SubjectStore;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.journals.BinaryJournal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings({"ResultOfMethodCallIgnored", "NewClassNamingConvention"})
+public class SubjectIndexTransaction_ {
+
+	@Test
+	public void should_apply_nothing_until_commit_and_journal_the_transaction_as_one_group() {
+		Journal journal = Journal.from("");
+		SubjectIndex index = new SubjectIndex(journal);
+		index.create("a", "building").update().set("city", "paris").put("tag", "old");
+		index.create("b", "building").update().set("city", "rome");
+		SubjectIndex.Transaction transaction = index.transaction();
+		transaction.update("a.building").set("city", "london").del("tag", "old").put("tag", "new");
+		transaction.update("c.building").put("city", "oslo");
+		transaction.drop("b.building");
+		assertThat(index.open("a", "building").get("city")).isEqualTo("paris");
+		assertThat(index.has("c.building")).isFalse();
+		assertThat(transaction.size()).isEqualTo(5);
+
+		transaction.commit();
+
+		assertThat(index.open("a", "building").get("city")).isEqualTo("london");
+		assertThat(index.open("a", "building").get("tag")).isEqualTo("new");
+		assertThat(index.open("c", "building").get("city")).isEqualTo("oslo");
+		assertThat(index.has("b.building")).isFalse();
+		assertThat(journal.toString().lines().skip(3).toList()).containsExactly(
+				"batch - 5",
+				"set a.building city=london",
+				"del a.building tag=old",
+				"put a.building tag=new",
+				"put c.building city=oslo",
+				"drop b.building -");
+		SubjectIndex replayed = new SubjectIndex(Journal.from("")).restore(journal);
+		assertThat(replayed.query().isType("building").collect()).extracting(s -> s.identifier()).containsExactly("a.building", "c.building");
+		assertThat(replayed.open("a", "building").terms()).isEqualTo(index.open("a", "building").terms());
+	}
+
+	@Test
+	public void should_clear_tags_with_del_inside_a_transaction() {
+		SubjectIndex index = new SubjectIndex(Journal.from(""));
+		index.create("a", "building").update().put("phone", "1").put("phone", "2").set("city", "paris");
+		SubjectIndex.Transaction transaction = index.transaction();
+		transaction.update("a.building").del("phone");
+		transaction.commit();
+		assertThat(index.open("a", "building").get("phone")).isEmpty();
+		assertThat(index.open("a", "building").get("city")).isEqualTo("paris");
+		assertThat(index.query().where("phone").equals("1").isEmpty()).isTrue();
+	}
+
+	@Test
+	public void should_drop_a_torn_transaction_when_recovering_a_text_journal() throws Exception {
+		File file = File.createTempFile("index", ".triples");
+		File journal = new File(file.getAbsolutePath() + ".journal");
+		file.delete();
+		try {
+			Files.writeString(journal.toPath(), """
+					put a.building city=paris
+					batch - 3
+					set a.building city=london
+					put b.building city=rome
+					""");
+			SubjectStore store = new SubjectStore(file);
+			assertThat(store.open("a", "building").get("city")).isEqualTo("paris");
+			assertThat(store.has("b.building")).isFalse();
+			store.close();
+		} finally {
+			file.delete();
+			journal.delete();
+		}
+	}
+
+	@Test
+	public void should_drop_a_transaction_with_a_torn_last_line_when_recovering_a_text_journal() throws Exception {
+		File file = File.createTempFile("index", ".journal");
+		try {
+			SubjectIndex index = new SubjectIndex(Journal.from(file));
+			index.create("a", "person").update().set("name", "Al");
+			SubjectIndex.Transaction transaction = index.transaction();
+			transaction.update("a.person").set("name", "Ana");
+			transaction.update("b.person").set("name", "Bob");
+			transaction.commit();
+			for (int cut : new int[] {1, 4}) {
+				byte[] bytes = Files.readAllBytes(file.toPath());
+				File torn = File.createTempFile("torn", ".journal");
+				Files.write(torn.toPath(), Arrays.copyOf(bytes, bytes.length - cut));
+				SubjectIndex replayed = new SubjectIndex(Journal.from("")).restore(Journal.from(torn));
+				torn.delete();
+				assertThat(replayed.open("a", "person").get("name")).isEqualTo("Al");
+				assertThat(replayed.has("b.person")).isFalse();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void should_ignore_a_torn_multibyte_character_at_the_end_of_a_text_journal() throws Exception {
+		File file = File.createTempFile("index", ".journal");
+		try {
+			byte[] line = "put a.person name=Zoë\n".getBytes(UTF_8);
+			Files.write(file.toPath(), line);
+			Files.write(file.toPath(), Arrays.copyOf(line, line.length - 2), APPEND);
+			SubjectIndex replayed = new SubjectIndex(Journal.from("")).restore(Journal.from(file));
+			assertThat(replayed.open("a", "person").get("name")).isEqualTo("Zoë");
+			assertThat(replayed.open("a", "person").terms()).hasSize(1);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void should_recover_committed_transactions_from_a_binary_journal() throws Exception {
+		File file = File.createTempFile("index", ".triples");
+		file.delete();
+		try {
+			SubjectStore store = new SubjectStore(file, BinaryJournal::new);
+			for (int round = 0; round < 3; round++) {
+				SubjectIndex.Transaction transaction = store.transaction();
+				for (int i = 0; i < 100; i++) transaction.update("s" + i + ".sensor").set("round", round).put("model", "m" + i % 4);
+				transaction.commit();
+			}
+			store.close();
+			store = new SubjectStore(file, BinaryJournal::new);
+			assertThat(store.query().isType("sensor").where("round").equals("2").size()).isEqualTo(100);
+			assertThat(store.query().isType("sensor").where("model").equals("m1").size()).isEqualTo(25);
+			store.close();
+		} finally {
+			file.delete();
+			new File(file.getAbsolutePath() + ".journal").delete();
+		}
+	}
+}
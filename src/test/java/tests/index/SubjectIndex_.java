@@ -5,6 +5,7 @@ import org.junit.Test;
 import systems.intino.datamarts.subjectstore.model.Journal;
 import systems.intino.datamarts.subjectstore.model.Term;
 import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.io.snapshots.BinarySnapshot;
 import systems.intino.datamarts.subjectstore.model.Subject;
 
 import java.io.*;
@@ -178,6 +179,45 @@ public class SubjectIndex_ {
 			""");
 	}
 
+	@Test
+	public void should_keep_type_queries_in_sync_with_create_rename_and_drop() throws IOException {
+		SubjectIndex index = new SubjectIndex(tempFile());
+		Subject building = index.create("b1", "building");
+		building.create("f1", "floor");
+		building.create("f2", "floor").create("s1", "sensor");
+		index.create("b2", "building");
+		assertThat(index.query().isType("floor").size()).isEqualTo(2);
+		building.rename("b3");
+		assertThat(index.query().isType("floor").collect()).containsOnly(subject("b3.building/f1.floor"), subject("b3.building/f2.floor"));
+		assertThat(index.query("type:sensor").first()).isEqualTo(subject("b3.building/f2.floor/s1.sensor"));
+		index.open("b3.building/f2.floor").drop();
+		assertThat(index.query().isType("floor").collect()).containsOnly(subject("b3.building/f1.floor"));
+		assertThat(index.query().isType("sensor").isEmpty()).isTrue();
+		assertThat(index.query().isType("building").collect()).containsOnly(subject("b3.building"), subject("b2.building"));
+	}
+
+	@Test
+	public void should_resolve_children_and_subtrees_from_the_hierarchy_index() throws IOException {
+		SubjectIndex index = new SubjectIndex(tempFile());
+		Subject site = index.create("a", "site");
+		Subject building = site.create("b", "building");
+		building.create("f1", "floor").create("s1", "sensor");
+		building.create("f2", "floor");
+		index.create("a", "sitex").create("c", "building");
+		assertThat(index.query().isRoot().collect()).containsOnly(subject("a.site"), subject("a.sitex"));
+		assertThat(index.query().isChildOf("a.site/b.building").collect()).containsOnly(subject("a.site/b.building/f1.floor"), subject("a.site/b.building/f2.floor"));
+		assertThat(index.query().isUnderOf("a.site").size()).isEqualTo(4);
+		assertThat(index.query().isUnderOf("a.site").isType("sensor").first()).isEqualTo(subject("a.site/b.building/f1.floor/s1.sensor"));
+		assertThat(site.children().collect()).containsOnly(subject("a.site/b.building"));
+		site.rename("z");
+		assertThat(index.has("a.sitex/c.building")).isTrue();
+		assertThat(index.query().isUnderOf("z.site").size()).isEqualTo(4);
+		assertThat(index.open("z.site/b.building").children().size()).isEqualTo(2);
+		index.open("z.site/b.building").drop();
+		assertThat(index.query().isUnderOf("z.site").isEmpty()).isTrue();
+		assertThat(index.query().size()).isEqualTo(3);
+	}
+
 	@Test
 	public void should_support_sorting() throws IOException {
 		File file = tempFile();
@@ -414,6 +454,40 @@ public class SubjectIndex_ {
 		assertThat(os.toString()).isEqualTo(string);
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void should_restore_index_from_binary_snapshot() throws Exception {
+		SubjectIndex index = new SubjectIndex(tempFile()).restore(triples("movies.triples"));
+		index.create("empty.folder/inner.folder");
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		index.snapshot(os);
+		SubjectIndex restored = new SubjectIndex(tempFile()).restore(new BinarySnapshot(new ByteArrayInputStream(os.toByteArray())));
+		assertThat(lines(restored)).containsExactlyInAnyOrderElementsOf(lines(index));
+		assertThat(restored.has("empty.folder/inner.folder")).isTrue();
+		assertThat(restored.query().isType("folder").isChildOf("empty.folder").collect()).containsExactly(Subject.of("empty.folder/inner.folder"));
+		assertThat(restored.query().collect()).hasSameSizeAs(index.query().collect());
+		assertThat(restored.query().where("primaryTitle").equals("Carmencita").collect()).isEqualTo(index.query().where("primaryTitle").equals("Carmencita").collect());
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void should_merge_binary_snapshot_into_non_empty_index() throws Exception {
+		SubjectIndex index = new SubjectIndex(tempFile()).restore(triples("movies.triples"));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		index.snapshot(os);
+		SubjectIndex restored = new SubjectIndex(tempFile());
+		restored.create("P001.model").update().put("name", "AI Research");
+		restored.restore(new BinarySnapshot(new ByteArrayInputStream(os.toByteArray())));
+		assertThat(lines(restored)).containsAll(lines(index)).contains("P001.model\tname\tAI Research");
+		assertThat(restored.query().isType("model").collect()).containsExactly(Subject.of("P001.model"));
+	}
+
+	private static List<String> lines(SubjectIndex index) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		index.dump(os);
+		return os.toString().lines().toList();
+	}
+
 	@Test
 	public void should_detect_deletions() throws IOException {
 		File file = File.createTempFile("index",".journal");
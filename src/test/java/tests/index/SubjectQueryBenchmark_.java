@@ -0,0 +1,39 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.model.Triple;
+
+import java.io.File;
+import java.util.function.Supplier;
+
+public class SubjectQueryBenchmark_ {
+	private static final int Subjects = 2_000_000;
+
+	public static void main(String[] args) throws Exception {
+		File file = File.createTempFile("index", ".journal");
+		file.deleteOnExit();
+		SubjectIndex index = new SubjectIndex(file);
+		long start = System.nanoTime();
+		SubjectIndex.Batch batch = index.batch();
+		for (int i = 0; i < Subjects; i++) {
+			String subject = "s" + i / 1000 + ".site/x" + i + (i % 10 == 0 ? ".gateway" : ".sensor");
+			batch.put(new Triple(subject, "model", "m" + i % 50));
+			batch.put(new Triple(subject, "vendor", "v" + i % 7));
+			batch.put(new Triple(subject, "floor", String.valueOf(i % 40)));
+		}
+		System.out.printf("load %.2fs%n", (System.nanoTime() - start) / 1e9);
+		for (int i = 0; i < 3; i++) {
+			time("where model", () -> index.query().where("model").equals("m7").size());
+			time("where model vendor floor", () -> index.query().where("model").equals("m7").where("vendor").equals("v3").where("floor").equals("17").size());
+			time("children", () -> index.query().isChildOf("s7.site").size());
+			time("type", () -> index.query("type:gateway").size());
+			time("type where", () -> index.query().isType("sensor").where("vendor").equals("v3").where("floor").equals("17").size());
+		}
+	}
+
+	private static void time(String name, Supplier<Integer> query) {
+		long start = System.nanoTime();
+		int size = query.get();
+		System.out.printf("%-26s %8d results  %8.2f ms%n", name, size, (System.nanoTime() - start) / 1e6);
+	}
+}
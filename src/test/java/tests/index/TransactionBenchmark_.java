@@ -0,0 +1,53 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.model.Journal;
+import systems.intino.datamarts.subjectstore.model.journals.BinaryJournal;
+import systems.intino.datamarts.subjectstore.model.journals.GroupCommitJournal.Policy;
+
+import java.io.File;
+import java.util.function.Function;
+
+public class TransactionBenchmark_ {
+	private static final int Subjects = 10_000;
+	private static final int Attributes = 10;
+	private static final int PerTransaction = 1_000;
+
+	public static void main(String[] args) throws Exception {
+		for (int round = 0; round < 2; round++) {
+			report("file", Journal::from);
+			report("group+await", file -> Journal.from(file, Policy.defaults().awaitingDurability()));
+			report("binary", BinaryJournal::new);
+		}
+	}
+
+	private static void report(String name, Function<File, Journal> journals) throws Exception {
+		System.out.printf("%-12s updates %8.0f ops/s  transactions %8.0f ops/s%n", name, run(journals, false), run(journals, true));
+	}
+
+	@SuppressWarnings("ResultOfMethodCallIgnored")
+	private static double run(Function<File, Journal> journals, boolean transactional) throws Exception {
+		File file = File.createTempFile("journal", ".log");
+		file.delete();
+		Journal journal = journals.apply(file);
+		SubjectIndex index = new SubjectIndex(journal);
+		for (int i = 0; i < Subjects; i++) index.create("x" + i, "sensor");
+		long start = System.nanoTime();
+		SubjectIndex.Transaction transaction = index.transaction();
+		for (int i = 0; i < Subjects; i++)
+			for (int a = 0; a < Attributes; a++) {
+				if (!transactional) {
+					index.open("x" + i, "sensor").update().set("a" + a, i + a);
+					continue;
+				}
+				transaction.update("x" + i + ".sensor").set("a" + a, i + a);
+				if (transaction.size() == PerTransaction) transaction.commit();
+			}
+		transaction.commit();
+		journal.sync();
+		long elapsed = System.nanoTime() - start;
+		if (journal instanceof AutoCloseable closeable) closeable.close();
+		file.delete();
+		return Subjects * Attributes / (elapsed / 1e9);
+	}
+}
@@ -0,0 +1,52 @@
+package tests.index;
+
+import systems.intino.datamarts.subjectstore.SubjectIndex;
+import systems.intino.datamarts.subjectstore.model.Journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public class UpdateScalingBenchmark_ {
+	private static final int Subjects = 100_000;
+	private static final long Millis = 3_000;
+
+	public static void main(String[] args) throws Exception {
+		SubjectIndex index = new SubjectIndex(Journal.from(""));
+		for (int i = 0; i < Subjects; i++)
+			index.create("x" + i, "sensor").update().put("model", "m" + i % 20).set("temperature", i % 40);
+		System.out.printf("cpus %d%n", Runtime.getRuntime().availableProcessors());
+		run(index, 1);
+		double base = 0;
+		for (int threads : new int[] {1, 2, 4, 8}) {
+			double rate = run(index, threads);
+			if (threads == 1) base = rate;
+			System.out.printf("threads %d  updates %10.0f/s  speedup %.2fx%n", threads, rate, rate / base);
+		}
+	}
+
+	private static double run(SubjectIndex index, int count) throws InterruptedException {
+		AtomicBoolean running = new AtomicBoolean(true);
+		LongAdder updates = new LongAdder();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < count; t++) {
+			int thread = t;
+			threads.add(new Thread(() -> {
+				Random random = new Random(thread);
+				int share = Subjects / count;
+				while (running.get()) {
+					String subject = "x" + (thread * share + random.nextInt(share));
+					index.open(subject, "sensor").update().set("temperature", random.nextInt(40));
+					updates.increment();
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		Thread.sleep(Millis);
+		running.set(false);
+		for (Thread thread : threads) thread.join();
+		return updates.sum() * 1000.0 / Millis;
+	}
+}